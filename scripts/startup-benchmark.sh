@@ -0,0 +1,93 @@
+#!/usr/bin/env sh
+# Mide el time-to-ready del servicio: arranca la app RUNS veces por modo y espera a que
+# /actuator/health/liveness (arrancado) y /actuator/health/readiness (listo) respondan 200.
+# Arranca igual que la imagen (Dockerfile): jar desempaquetado en classes.jar + lib/*.jar con
+# -cp, sin y con el archivo AppCDS. El archivo se entrena aquí con una corrida completa, así
+# que necesita las mismas dependencias (config-server, Mongo, Redis, Kafka) que las mediciones.
+#
+# Uso: mvn -B package -DskipTests && scripts/startup-benchmark.sh
+#   RUNS=5 PORT=8080 JAR=target/customer-0.0.1-SNAPSHOT.jar scripts/startup-benchmark.sh
+set -eu
+
+JAR=${JAR:-target/customer-0.0.1-SNAPSHOT.jar}
+PORT=${PORT:-8080}
+RUNS=${RUNS:-5}
+TIMEOUT_S=${TIMEOUT_S:-120}
+WORK=${WORK:-target/startup-benchmark}
+MAIN_CLASS=com.nttdata.bootcamp.BootcampApplication
+
+# POSIX date no tiene milisegundos (%3N es de GNU): se prueba y si no, perl o python3
+if date +%s%3N 2>/dev/null | grep -Eq '^[0-9]{13}$'; then
+  now_ms() { date +%s%3N; }
+elif command -v perl > /dev/null 2>&1; then
+  now_ms() { perl -MTime::HiRes=time -e 'printf("%d\n", time() * 1000)'; }
+elif command -v python3 > /dev/null 2>&1; then
+  now_ms() { python3 -c 'import time; print(int(time.time() * 1000))'; }
+else
+  echo "Se necesita GNU date, perl o python3 para medir en milisegundos" >&2
+  exit 1
+fi
+
+# Mismo desempaquetado que la etapa cds del Dockerfile, con rutas locales
+extract() {
+  rm -rf "$WORK"
+  mkdir -p "$WORK/lib"
+  java -Djarmode=layertools -jar "$JAR" extract --destination "$WORK/extracted"
+  cp "$WORK"/extracted/dependencies/BOOT-INF/lib/*.jar "$WORK/lib/"
+  cp "$WORK"/extracted/snapshot-dependencies/BOOT-INF/lib/*.jar "$WORK/lib/" 2>/dev/null || true
+  jar cf "$WORK/classes.jar" -C "$WORK/extracted/application/BOOT-INF/classes" .
+  rm -rf "$WORK/extracted"
+  CP="$WORK/classes.jar"
+  for j in "$WORK"/lib/*.jar; do
+    CP="$CP:$j"
+  done
+}
+
+# Corrida de entrenamiento y volcado, como CDS_TRAINING=true en el Dockerfile
+train() {
+  java -XX:DumpLoadedClassList="$WORK/classes.lst" -Dstartup.exit-after-ready=true \
+      -Dserver.port="$PORT" -Dspring.profiles.active=faststart -cp "$CP" "$MAIN_CLASS" \
+      > "$WORK/training.log" 2>&1
+  java -Xshare:dump -XX:SharedClassListFile="$WORK/classes.lst" -XX:SharedArchiveFile="$WORK/app.jsa" \
+      -cp "$CP" > "$WORK/dump.log" 2>&1
+}
+
+wait_for() {
+  url=$1
+  start=$2
+  while :; do
+    if curl -fs -o /dev/null "$url"; then
+      echo $(( $(now_ms) - start ))
+      return 0
+    fi
+    if [ $(( $(now_ms) - start )) -gt $(( TIMEOUT_S * 1000 )) ]; then
+      echo "timeout"
+      return 0
+    fi
+    sleep 0.05
+  done
+}
+
+run_mode() {
+  mode=$1
+  shift
+  i=1
+  while [ "$i" -le "$RUNS" ]; do
+    start=$(now_ms)
+    java "$@" -Dserver.port="$PORT" -cp "$CP" "$MAIN_CLASS" > "$WORK/startup-$mode-$i.log" 2>&1 &
+    pid=$!
+    live=$(wait_for "http://localhost:$PORT/actuator/health/liveness" "$start")
+    ready=$(wait_for "http://localhost:$PORT/actuator/health/readiness" "$start")
+    kill "$pid" 2>/dev/null || true
+    wait "$pid" 2>/dev/null || true
+    echo "$mode run=$i started_ms=$live ready_ms=$ready"
+    i=$((i + 1))
+  done
+}
+
+extract
+train
+# -Xshare:on hace fallar el arranque si el archivo no coincide con el classpath, en vez de medir sin él
+run_mode no-cds -Xshare:off
+run_mode cds -Xshare:on -XX:SharedArchiveFile="$WORK/app.jsa"
+run_mode cds-faststart -Xshare:on -XX:SharedArchiveFile="$WORK/app.jsa" -Dspring.profiles.active=faststart
@@ -0,0 +1,58 @@
+#!/usr/bin/env sh
+# Compara los modos de transporte del servidor HTTP en el camino findByClient:
+# NIO + HTTP/1.1, epoll + HTTP/1.1 y epoll + h2c. Usa h2load (nghttp2): --h1 para HTTP/1.1
+# y HTTP/2 con prior knowledge para h2c, con las mismas conexiones y peticiones en cada modo.
+# Requiere Mongo/Redis levantados y un cliente existente (DNI).
+#
+# Uso: mvn -B package -DskipTests && DNI=12345678 scripts/transport-benchmark.sh
+#   REQUESTS=100000 CONNECTIONS=16 STREAMS=32 PORT=8080 JAR=target/customer-0.0.1-SNAPSHOT.jar
+set -eu
+
+JAR=${JAR:-target/customer-0.0.1-SNAPSHOT.jar}
+PORT=${PORT:-8080}
+DNI=${DNI:?DNI de un cliente existente}
+REQUESTS=${REQUESTS:-100000}
+CONNECTIONS=${CONNECTIONS:-16}
+# Peticiones concurrentes por conexión: en HTTP/1.1 h2load usa 1 (sin pipelining)
+STREAMS=${STREAMS:-32}
+TIMEOUT_S=${TIMEOUT_S:-120}
+BASE="http://localhost:$PORT"
+
+wait_ready() {
+  i=0
+  until curl -fs -o /dev/null "$BASE/actuator/health/readiness"; do
+    i=$((i + 1))
+    if [ "$i" -gt $((TIMEOUT_S * 10)) ]; then
+      echo "timeout esperando readiness" >&2
+      return 1
+    fi
+    sleep 0.1
+  done
+}
+
+login() {
+  curl -fs -H 'Content-Type: application/json' -d '{"username":"user","password":"password"}' \
+    "$BASE/auth/login" | sed -n 's/.*"token":"\([^"]*\)".*/\1/p'
+}
+
+run_mode() {
+  mode=$1
+  h2load_flags=$2
+  shift 2
+  java "$@" -Dserver.port="$PORT" -jar "$JAR" > "target/transport-$mode.log" 2>&1 &
+  pid=$!
+  wait_ready
+  token=$(login)
+  url="$BASE/customer/findByClient/$DNI"
+  # Calentamiento: JIT y caché de Redis
+  h2load $h2load_flags -n 5000 -c "$CONNECTIONS" -H "Authorization: Bearer $token" "$url" > /dev/null
+  result=$(h2load $h2load_flags -n "$REQUESTS" -c "$CONNECTIONS" -H "Authorization: Bearer $token" "$url")
+  kill "$pid" 2>/dev/null || true
+  wait "$pid" 2>/dev/null || true
+  echo "== $mode"
+  echo "$result" | grep -E "finished in|requests:|status codes:|time for request:"
+}
+
+run_mode nio-http1 "--h1" -Dserver-transport.native=nio
+run_mode epoll-http1 "--h1" -Dserver-transport.native=epoll
+run_mode epoll-h2c "-m $STREAMS" -Dserver-transport.native=epoll -Dserver-transport.h2c.enabled=true
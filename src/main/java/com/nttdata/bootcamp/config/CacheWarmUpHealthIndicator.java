@@ -0,0 +1,30 @@
+package com.nttdata.bootcamp.config;
+
+import com.nttdata.bootcamp.service.CacheWarmUpService;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indicador "cacheWarmUp" del grupo readiness: el pod no recibe tráfico
+ * hasta que la caché está precargada.
+ */
+@Component("cacheWarmUp")
+public class CacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmUpService cacheWarmUpService;
+
+    public CacheWarmUpHealthIndicator(CacheWarmUpService cacheWarmUpService) {
+        this.cacheWarmUpService = cacheWarmUpService;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = cacheWarmUpService.isReady() ? Health.up() : Health.outOfService();
+        builder.withDetail("loaded", cacheWarmUpService.getLoadedCount());
+        if (cacheWarmUpService.getLastError() != null) {
+            builder.withDetail("lastError", cacheWarmUpService.getLastError());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,185 @@
+package com.nttdata.bootcamp.config;
+
+import com.nttdata.bootcamp.util.GradientConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import javax.annotation.PostConstruct;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Limita la concurrencia por grupo de rutas (lecturas, escrituras, auth) con un límite
+ * adaptativo. Corre antes que la cadena de seguridad: una petición sobre el límite
+ * recibe un 503 con Retry-After sin validar el JWT ni tocar Redis/Mongo.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class ConcurrencyLimitWebFilter implements WebFilter {
+
+    enum RouteGroup { READ, WRITE, AUTH }
+
+    private final Map<RouteGroup, GradientConcurrencyLimiter> limiters = new EnumMap<>(RouteGroup.class);
+    private final Map<RouteGroup, Counter> rejections = new EnumMap<>(RouteGroup.class);
+    private final MeterRegistry meterRegistry;
+    private List<ExcludedRoute> excludedRoutes;
+
+    @Value("${concurrency-limit.enabled}")
+    private boolean enabled;
+
+    @Value("${concurrency-limit.retry-after-seconds}")
+    private String retryAfterSeconds;
+
+    // Rutas de larga duración (streaming) que distorsionarían la medición de latencia.
+    // "GET /customer/" excluye solo ese método; sin método se excluyen todos
+    @Value("${concurrency-limit.excluded-paths:}")
+    private List<String> excludedPaths;
+
+    @Value("${concurrency-limit.min-limit}")
+    private int minLimit;
+
+    // Peso de cada ajuste del límite (0-1)
+    @Value("${concurrency-limit.smoothing}")
+    private double smoothing;
+
+    // Cuánto puede crecer la latencia sobre la media de largo plazo antes de reducir el límite
+    @Value("${concurrency-limit.rtt-tolerance}")
+    private double rttTolerance;
+
+    @Value("${concurrency-limit.read.initial-limit}")
+    private int readInitialLimit;
+
+    @Value("${concurrency-limit.read.max-limit}")
+    private int readMaxLimit;
+
+    @Value("${concurrency-limit.write.initial-limit}")
+    private int writeInitialLimit;
+
+    @Value("${concurrency-limit.write.max-limit}")
+    private int writeMaxLimit;
+
+    @Value("${concurrency-limit.auth.initial-limit}")
+    private int authInitialLimit;
+
+    @Value("${concurrency-limit.auth.max-limit}")
+    private int authMaxLimit;
+
+    public ConcurrencyLimitWebFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        excludedRoutes = excludedPaths.stream()
+                .map(String::trim)
+                .filter(entry -> !entry.isEmpty())
+                .map(ExcludedRoute::parse)
+                .collect(Collectors.toList());
+
+        limiters.put(RouteGroup.READ, newLimiter(readInitialLimit, readMaxLimit));
+        limiters.put(RouteGroup.WRITE, newLimiter(writeInitialLimit, writeMaxLimit));
+        limiters.put(RouteGroup.AUTH, newLimiter(authInitialLimit, authMaxLimit));
+
+        limiters.forEach((group, limiter) -> {
+            String tag = group.name().toLowerCase();
+            Gauge.builder("http.server.concurrency.limit", limiter, GradientConcurrencyLimiter::getLimit)
+                    .tag("group", tag).register(meterRegistry);
+            Gauge.builder("http.server.concurrency.inflight", limiter, GradientConcurrencyLimiter::getInFlight)
+                    .tag("group", tag).register(meterRegistry);
+            rejections.put(group, Counter.builder("http.server.concurrency.rejected")
+                    .description("Peticiones rechazadas con 503 por el límite de concurrencia")
+                    .tag("group", tag).register(meterRegistry));
+        });
+    }
+
+    private GradientConcurrencyLimiter newLimiter(int initialLimit, int maxLimit) {
+        return new GradientConcurrencyLimiter(initialLimit, minLimit, maxLimit, smoothing, rttTolerance);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        RouteGroup group = enabled ? routeGroup(exchange) : null;
+        if (group == null) {
+            return chain.filter(exchange);
+        }
+
+        GradientConcurrencyLimiter limiter = limiters.get(group);
+        if (!limiter.tryAcquire()) {
+            rejections.get(group).increment();
+            exchange.getResponse().setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+            exchange.getResponse().getHeaders().set(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            return exchange.getResponse().setComplete();
+        }
+
+        long start = System.nanoTime();
+        return chain.filter(exchange)
+                .doFinally(signal -> {
+                    if (signal == SignalType.CANCEL) {
+                        limiter.onIgnore();
+                    } else {
+                        limiter.onSample(System.nanoTime() - start);
+                    }
+                });
+    }
+
+    RouteGroup routeGroup(ServerWebExchange exchange) {
+        PathContainer path = exchange.getRequest().getPath().pathWithinApplication();
+        for (ExcludedRoute excluded : excludedRoutes) {
+            if (excluded.matches(exchange.getRequest().getMethod(), path)) {
+                return null;
+            }
+        }
+        String value = path.value();
+        if (value.startsWith("/auth/")) {
+            return RouteGroup.AUTH;
+        }
+        if (value.startsWith("/customer/")) {
+            return HttpMethod.GET.equals(exchange.getRequest().getMethod()) ? RouteGroup.READ : RouteGroup.WRITE;
+        }
+        return null;
+    }
+
+    private static final class ExcludedRoute {
+        private final HttpMethod method;
+        private final PathPattern pattern;
+
+        private ExcludedRoute(HttpMethod method, PathPattern pattern) {
+            this.method = method;
+            this.pattern = pattern;
+        }
+
+        static ExcludedRoute parse(String entry) {
+            int space = entry.indexOf(' ');
+            if (space < 0) {
+                return new ExcludedRoute(null, PathPatternParser.defaultInstance.parse(entry));
+            }
+            HttpMethod method = HttpMethod.resolve(entry.substring(0, space).toUpperCase());
+            if (method == null) {
+                throw new IllegalArgumentException("Método inválido en concurrency-limit.excluded-paths: " + entry);
+            }
+            return new ExcludedRoute(method, PathPatternParser.defaultInstance.parse(entry.substring(space + 1).trim()));
+        }
+
+        boolean matches(HttpMethod requestMethod, PathContainer path) {
+            return (method == null || method.equals(requestMethod)) && pattern.matches(path);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.nttdata.bootcamp.config;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CustomerBloomFilterService;
+import com.nttdata.bootcamp.service.CustomerStatsService;
+import com.nttdata.bootcamp.service.RedisCacheService;
+import com.nttdata.bootcamp.util.CustomerDataGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Perfil "datagen": carga clientes sintéticos en Mongo para pruebas a escala real.
+ * java -jar customer.jar --spring.profiles.active=datagen --datagen.count=2000000 --datagen.seed=7
+ * Misma semilla e índices = mismos clientes; datagen.start-index permite ampliar un dataset existente.
+ */
+@Component
+@Profile("datagen")
+public class DataGeneratorRunner implements ApplicationRunner {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DataGeneratorRunner.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final RedisCacheService redisCacheService;
+    private final CustomerStatsService customerStatsService;
+    private final CustomerBloomFilterService customerBloomFilterService;
+    private final ApplicationContext applicationContext;
+    private final MongoIndexConfig mongoIndexConfig;
+
+    @Value("${datagen.count}")
+    private long count;
+
+    @Value("${datagen.start-index}")
+    private long startIndex;
+
+    @Value("${datagen.seed}")
+    private long seed;
+
+    // Instante ISO-8601 de referencia para las fechas generadas; fijo para que la semilla las reproduzca
+    @Value("${datagen.base-time}")
+    private String baseTime;
+
+    // Fracción de clientes EMPRESARIAL; el resto es PERSONAL
+    @Value("${datagen.business-ratio}")
+    private double businessRatio;
+
+    @Value("${datagen.vip-ratio}")
+    private double vipRatio;
+
+    @Value("${datagen.pyme-ratio}")
+    private double pymeRatio;
+
+    // ESTADO:peso, ej. ACTIVE:80,INACTIVE:15,DEBTOR:5
+    @Value("${datagen.status-weights}")
+    private List<String> statusWeights;
+
+    @Value("${datagen.batch-size}")
+    private int batchSize;
+
+    // Lotes insertados en paralelo
+    @Value("${datagen.parallelism}")
+    private int parallelism;
+
+    @Value("${datagen.drop-existing}")
+    private boolean dropExisting;
+
+    // Los primeros N clientes generados se cargan también en Redis (0 = ninguno)
+    @Value("${datagen.warm-redis-count}")
+    private long warmRedisCount;
+
+    @Value("${datagen.exit-when-done}")
+    private boolean exitWhenDone;
+
+    public DataGeneratorRunner(ReactiveMongoTemplate mongoTemplate, RedisCacheService redisCacheService,
+                               CustomerStatsService customerStatsService,
+                               CustomerBloomFilterService customerBloomFilterService,
+                               ApplicationContext applicationContext, MongoIndexConfig mongoIndexConfig) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisCacheService = redisCacheService;
+        this.customerStatsService = customerStatsService;
+        this.customerBloomFilterService = customerBloomFilterService;
+        this.applicationContext = applicationContext;
+        this.mongoIndexConfig = mongoIndexConfig;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        CustomerDataGenerator generator = new CustomerDataGenerator(seed, businessRatio, vipRatio, pymeRatio,
+                parseWeights(statusWeights), Instant.parse(baseTime).toEpochMilli());
+        long batches = (count + batchSize - 1) / batchSize;
+        AtomicLong inserted = new AtomicLong();
+        long start = System.nanoTime();
+        LOGGER.info("Generando {} clientes (seed={}, desde índice {}) en lotes de {} con paralelismo {}",
+                count, seed, startIndex, batchSize, parallelism);
+
+        // Con exit-when-done la aplicación no llega a ApplicationReadyEvent, donde se crean los índices:
+        // se crean aquí, tras el borrado, para que los únicos validen la carga y las consultas los encuentren
+        Mono<Void> drop = dropExisting ? mongoTemplate.dropCollection(Customer.class) : Mono.empty();
+        Long total = drop
+                .thenMany(mongoIndexConfig.createCustomerIndexes())
+                .thenMany(Flux.range(0, Math.toIntExact(batches)))
+                .flatMap(batch -> generateBatch(generator, batch)
+                        // Al Bloom filter compartido antes que a Mongo, como las altas del servicio
+                        .flatMap(customers -> customerBloomFilterService.putAll(customers)
+                                .then(mongoTemplate.insert(customers, Customer.class).then())
+                                .then(warmRedis(customers, batch))
+                                .thenReturn(customers.size()))
+                        .doOnNext(size -> logProgress(inserted.addAndGet(size), start)), parallelism)
+                .then(customerStatsService.reconcile())
+                .then(Mono.fromCallable(inserted::get))
+                .block();
+
+        LOGGER.info("Generación terminada: {} clientes en {} s",
+                total, (System.nanoTime() - start) / 1_000_000_000);
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    // La generación es CPU: se hace en el scheduler parallel y no en los hilos del driver de Mongo
+    private Mono<List<Customer>> generateBatch(CustomerDataGenerator generator, long batch) {
+        return Flux.range(0, batchSize)
+                .map(offset -> batch * batchSize + offset)
+                .takeWhile(relative -> relative < count)
+                .map(relative -> generator.generate(startIndex + relative))
+                .collectList()
+                .subscribeOn(Schedulers.parallel());
+    }
+
+    private Mono<Void> warmRedis(List<Customer> customers, long batch) {
+        long remaining = warmRedisCount - batch * batchSize;
+        if (remaining <= 0) {
+            return Mono.empty();
+        }
+        return Flux.fromIterable(customers)
+                .take(remaining)
+                .flatMap(redisCacheService::storeCustomer, 64)
+                .then();
+    }
+
+    private void logProgress(long done, long start) {
+        long previous = done - batchSize;
+        if (done / 100_000 != previous / 100_000 || done == count) {
+            double seconds = (System.nanoTime() - start) / 1e9;
+            LOGGER.info("Clientes insertados: {}/{} ({} por segundo)", done, count, Math.round(done / seconds));
+        }
+    }
+
+    private static Map<String, Integer> parseWeights(List<String> entries) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : entries) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("datagen.status-weights inválido: " + entry);
+            }
+            weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,44 @@
+package com.nttdata.bootcamp.config;
+
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import reactor.kafka.receiver.ReceiverOptions;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaConsumerConfig {
+
+    /**
+     * Consumidor de eventos de productos. Los offsets se confirman a mano después de
+     * aplicar cada lote; un mensaje que no se puede deserializar llega con valor null
+     * (ErrorHandlingDeserializer) en vez de detener el consumo.
+     */
+    @Bean
+    public ReceiverOptions<String, ProductEventKafka> productEventReceiverOptions(
+            @Value("${product-events.bootstrap-servers}") String bootstrapServers,
+            @Value("${product-events.topic}") String topic,
+            @Value("${product-events.group-id}") String groupId) {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ErrorHandlingDeserializer.class);
+        configProps.put(ErrorHandlingDeserializer.VALUE_DESERIALIZER_CLASS, JsonDeserializer.class);
+        // Los productores usan sus propias clases: se ignoran los headers de tipo
+        configProps.put(JsonDeserializer.USE_TYPE_INFO_HEADERS, false);
+        configProps.put(JsonDeserializer.VALUE_DEFAULT_TYPE, ProductEventKafka.class);
+        return ReceiverOptions.<String, ProductEventKafka>create(configProps)
+                .subscription(Collections.singleton(topic));
+    }
+}
@@ -6,10 +6,9 @@ import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
-import org.springframework.kafka.core.DefaultKafkaProducerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
 import org.springframework.kafka.support.serializer.JsonSerializer;
+import reactor.kafka.sender.SenderOptions;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -21,7 +20,7 @@ public class KafkaProducerConfig {
 	private final String bootstrapAddress = "localhost:9092";
 	
     @Bean
-    public ProducerFactory<String, EventKafka<?>> producerFactory() {
+    public SenderOptions<String, EventKafka<?>> senderOptions() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(
           ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, 
@@ -32,11 +31,14 @@ public class KafkaProducerConfig {
         configProps.put(
         	      ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, 
         	      JsonSerializer.class);
-        return new DefaultKafkaProducerFactory<>(configProps);
+        // El KafkaSender ejecuta send() en su propio scheduler: la espera de metadata
+        // (max.block.ms) ya no ocurre en el event loop de Netty
+        return SenderOptions.create(configProps);
     }
 
     @Bean
-    public KafkaTemplate<String, EventKafka<?>> kafkaTemplate() {
-        return new KafkaTemplate<>(producerFactory());
+    public ReactiveKafkaProducerTemplate<String, EventKafka<?>> reactiveKafkaProducerTemplate(
+            SenderOptions<String, EventKafka<?>> senderOptions) {
+        return new ReactiveKafkaProducerTemplate<>(senderOptions);
     }
 }
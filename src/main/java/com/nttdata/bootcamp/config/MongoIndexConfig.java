@@ -0,0 +1,115 @@
+package com.nttdata.bootcamp.config;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.impl.CustomerArchiveServiceImpl;
+import com.nttdata.bootcamp.service.impl.ProductSummaryServiceImpl;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.SearchNormalizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.PartialIndexFilter;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Crea los índices de customer, customer_archive y customer_product_account al arrancar
+ * (auto-index-creation está desactivado en Spring Boot) y completa las claves
+ * de búsqueda de los documentos antiguos que aún no las tienen.
+ */
+@Configuration
+public class MongoIndexConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MongoIndexConfig.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public MongoIndexConfig(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexes() {
+        createCustomerIndexes()
+                .thenMany(backfillSearchKeys())
+                .count()
+                .subscribe(
+                        count -> LOGGER.info("Claves de búsqueda completadas para {} clientes", count),
+                        e -> LOGGER.warn("No se pudieron preparar los índices de customer: {}", e.getMessage()));
+    }
+
+    /**
+     * Crea (o verifica) los índices de customer y emite sus nombres. Lo usa también el
+     * generador de datos tras borrar la colección, porque termina antes de ApplicationReadyEvent.
+     */
+    public Flux<String> createCustomerIndexes() {
+        return Flux.just(
+                        // (dni, _id): consultas por DNI y orden/reanudación de la exportación sin sort en memoria
+                        new Index().on("dni", Sort.Direction.ASC).on("_id", Sort.Direction.ASC),
+                        new Index().on("ruc", Sort.Direction.ASC).sparse(),
+                        // Unicidad garantizada por Mongo: cubre dos altas simultáneas que pasan la validación.
+                        // deletedAt forma parte de la clave para que un borrado no bloquee el alta del mismo DNI/RUC
+                        new Index().named("dni_personal_unique")
+                                .on("dni", Sort.Direction.ASC).on("deletedAt", Sort.Direction.ASC).unique()
+                                .partial(PartialIndexFilter.of(Criteria.where("typeCustomer").is(Constant.PERSONAL_CUSTOMER))),
+                        new Index().named("ruc_unique")
+                                .on("ruc", Sort.Direction.ASC).on("deletedAt", Sort.Direction.ASC).unique()
+                                .partial(PartialIndexFilter.of(Criteria.where("ruc").exists(true))),
+                        new Index().on("searchKeys", Sort.Direction.ASC),
+                        new Index().on("modificationDate", Sort.Direction.DESC),
+                        new Index().on("deletedAt", Sort.Direction.ASC).sparse())
+                .concatMap(index -> mongoTemplate.indexOps(Customer.class).ensureIndex(index)
+                        // Con duplicados ya cargados el índice único no se crea; el resto sigue
+                        .onErrorResume(e -> {
+                            LOGGER.warn("No se pudo crear el índice {} en customer: {}",
+                                    index.getIndexKeys().toJson(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .doOnNext(name -> LOGGER.info("Índice verificado en customer: {}", name));
+    }
+
+    // Estado por cuenta de la vista cliente-productos: el recálculo del resumen filtra por DNI
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureProductIndexes() {
+        mongoTemplate.indexOps(ProductSummaryServiceImpl.ACCOUNTS_COLLECTION)
+                .ensureIndex(new Index().on("dni", Sort.Direction.ASC))
+                .subscribe(
+                        name -> LOGGER.info("Índice verificado en {}: {}", ProductSummaryServiceImpl.ACCOUNTS_COLLECTION, name),
+                        e -> LOGGER.warn("No se pudo crear el índice de {}: {}",
+                                ProductSummaryServiceImpl.ACCOUNTS_COLLECTION, e.getMessage()));
+    }
+
+    // Capa fría: se consulta por DNI/RUC (fallback de las búsquedas y el alta) y se recorre
+    // en orden de (dni, _id) junto con customer en findAll y la exportación
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureArchiveIndexes() {
+        Flux.just(
+                        new Index().on("dni", Sort.Direction.ASC).on("_id", Sort.Direction.ASC),
+                        new Index().on("ruc", Sort.Direction.ASC).sparse())
+                .concatMap(index -> mongoTemplate.indexOps(CustomerArchiveServiceImpl.ARCHIVE_COLLECTION).ensureIndex(index))
+                .subscribe(
+                        name -> LOGGER.info("Índice verificado en {}: {}", CustomerArchiveServiceImpl.ARCHIVE_COLLECTION, name),
+                        e -> LOGGER.warn("No se pudieron crear los índices de {}: {}",
+                                CustomerArchiveServiceImpl.ARCHIVE_COLLECTION, e.getMessage()));
+    }
+
+    private Flux<Customer> backfillSearchKeys() {
+        Query missing = new Query(Criteria.where("searchKeys").exists(false));
+        missing.fields().include("name", "surName", "companyName");
+
+        return mongoTemplate.find(missing, Customer.class)
+                .concatMap(customer -> mongoTemplate.updateFirst(
+                                Query.query(Criteria.where("_id").is(customer.getId())),
+                                Update.update("searchKeys", SearchNormalizer.searchKeys(customer)),
+                                Customer.class)
+                        .thenReturn(customer));
+    }
+}
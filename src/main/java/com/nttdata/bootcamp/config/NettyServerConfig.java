@@ -0,0 +1,135 @@
+package com.nttdata.bootcamp.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.resources.LoopResources;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Transporte del servidor HTTP (Reactor Netty): epoll nativo o NIO, HTTP/1.1 con h2c
+ * opcional para los llamadores internos, hilos de event loop propios y límites de
+ * conexiones. Expone las métricas de Reactor Netty (reactor.netty.*) y las del límite.
+ */
+@Configuration
+public class NettyServerConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NettyServerConfig.class);
+
+    // DNIs, RUCs e ids de Mongo en la URI se agrupan en un solo tag de métrica
+    private static final Pattern ID_SEGMENT = Pattern.compile("/([0-9]+|[0-9a-fA-F]{24})(?=/|$)");
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+
+    // auto = epoll si está disponible | epoll = obligatorio (falla al arrancar si no hay) | nio
+    @Value("${server-transport.native}")
+    private String nativeMode;
+
+    @Value("${server-transport.h2c.enabled}")
+    private boolean h2c;
+
+    // 0 = los mismos hilos worker aceptan conexiones
+    @Value("${server-transport.selector-threads}")
+    private int selectorThreads;
+
+    // 0 = default de Reactor Netty, max(CPUs, 4)
+    @Value("${server-transport.worker-threads}")
+    private int workerThreads;
+
+    // 0 = sin límite; las conexiones por encima del límite se cierran al aceptarse
+    @Value("${server-transport.max-connections}")
+    private int maxConnections;
+
+    @Value("${server-transport.idle-timeout-ms}")
+    private long idleTimeoutMs;
+
+    @Value("${server-transport.max-keep-alive-requests}")
+    private int maxKeepAliveRequests;
+
+    @Value("${server-transport.h2c.max-concurrent-streams}")
+    private long maxConcurrentStreams;
+
+    @Value("${server-transport.metrics.enabled}")
+    private boolean metricsEnabled;
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources serverLoopResources() {
+        int workers = workerThreads > 0 ? workerThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        return selectorThreads > 0
+                ? LoopResources.create("customer-http", selectorThreads, workers, true)
+                : LoopResources.create("customer-http", workers, true);
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<NettyReactiveWebServerFactory> serverTransportCustomizer(
+            LoopResources serverLoopResources, MeterRegistry meterRegistry) {
+
+        boolean preferNative = preferNative();
+        Counter rejected = Counter.builder("http.server.connections.rejected")
+                .description("Conexiones cerradas por superar server-transport.max-connections")
+                .register(meterRegistry);
+        Gauge.builder("http.server.connections.active", activeConnections, AtomicInteger::get)
+                .register(meterRegistry);
+        Gauge.builder("http.server.event-loop.threads", () -> workerThreads > 0
+                        ? workerThreads : LoopResources.DEFAULT_IO_WORKER_COUNT)
+                .tag("transport", preferNative ? "epoll" : "nio")
+                .register(meterRegistry);
+
+        LOGGER.info("Servidor HTTP: transporte={}, h2c={}, selectorThreads={}, workerThreads={}, maxConnections={}",
+                preferNative ? "epoll" : "nio", h2c, selectorThreads, workerThreads, maxConnections);
+
+        return factory -> factory.addServerCustomizers(server -> customize(server, serverLoopResources,
+                preferNative, rejected));
+    }
+
+    private HttpServer customize(HttpServer server, LoopResources loopResources, boolean preferNative,
+                                 Counter rejected) {
+        HttpServer customized = server
+                .runOn(loopResources, preferNative)
+                .idleTimeout(Duration.ofMillis(idleTimeoutMs))
+                .maxKeepAliveRequests(maxKeepAliveRequests)
+                .doOnChannelInit((observer, channel, remoteAddress) -> {
+                    int active = activeConnections.incrementAndGet();
+                    channel.closeFuture().addListener(future -> activeConnections.decrementAndGet());
+                    if (maxConnections > 0 && active > maxConnections) {
+                        rejected.increment();
+                        channel.close();
+                    }
+                });
+        if (h2c) {
+            // Prior knowledge y upgrade desde HTTP/1.1: los clientes externos siguen en HTTP/1.1
+            customized = customized.protocol(HttpProtocol.HTTP11, HttpProtocol.H2C)
+                    .http2Settings(settings -> settings.maxConcurrentStreams(maxConcurrentStreams));
+        }
+        if (metricsEnabled) {
+            customized = customized.metrics(true, uri -> ID_SEGMENT.matcher(uri).replaceAll("/{id}"));
+        }
+        return customized;
+    }
+
+    private boolean preferNative() {
+        if ("nio".equalsIgnoreCase(nativeMode)) {
+            return false;
+        }
+        boolean available = LoopResources.hasNativeSupport();
+        if ("epoll".equalsIgnoreCase(nativeMode) && !available) {
+            throw new IllegalStateException("server-transport.native=epoll pero el transporte nativo no está disponible");
+        }
+        if (!available) {
+            LOGGER.info("Transporte nativo no disponible, se usa NIO");
+        }
+        return available;
+    }
+}
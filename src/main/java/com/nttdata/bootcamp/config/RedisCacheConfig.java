@@ -1,17 +1,32 @@
 package com.nttdata.bootcamp.config;
 
+import io.lettuce.core.ReadFrom;
+import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.binder.commonspool2.CommonsObjectPool2Metrics;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisClusterConfiguration;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisSentinelConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+
 @Configuration
 public class RedisCacheConfig {
     @Value("${redis.host}")
@@ -26,36 +41,152 @@ public class RedisCacheConfig {
     @Value("${redis.maximumActiveConnectionCount}")
     private Integer redisMaximumActiveConnectionCount;
 
+    // standalone | sentinel | cluster
+    @Value("${redis.mode}")
+    private String redisMode;
+
+    @Value("${redis.sentinel.master:}")
+    private String sentinelMaster;
+
+    @Value("${redis.sentinel.nodes:}")
+    private List<String> sentinelNodes;
+
+    @Value("${redis.cluster.nodes:}")
+    private List<String> clusterNodes;
+
+    // Lettuce (ReadFrom) de la factory principal en sentinel/cluster. MASTER: lee lo que escribe
+    // (tombstones, scripts, contadores, locks); una réplica atrasada los devolvería viejos
+    @Value("${redis.read-from}")
+    private String readFrom;
+
+    // ReadFrom de la conexión aparte que solo atiende los GET de la caché, ej. REPLICA_PREFERRED
+    @Value("${redis.cache-read-from}")
+    private String cacheReadFrom;
+
+    // false = una sola conexión multiplexada (default de Lettuce); true = pool de conexiones
+    @Value("${redis.pool.enabled}")
+    private boolean poolEnabled;
+
+    @Value("${redis.pool.max-idle}")
+    private Integer poolMaxIdle;
+
+    @Value("${redis.pool.min-idle}")
+    private Integer poolMinIdle;
+
+    @Value("${redis.pool.max-wait-ms}")
+    private Long poolMaxWaitMs;
+
     /**
      * Factory reactiva que reemplaza el JedisPool.
+     * Aplica el timeout de comandos, el modo de conexión (multiplexada o pool)
+     * y la topología configurada.
      */
     @Bean
     @Primary
-    public ReactiveRedisConnectionFactory reactiveRedisConnectionFactory() {
+    public LettuceConnectionFactory reactiveRedisConnectionFactory(ClientResources clientResources) {
 
-        LettuceClientConfiguration clientConfig = LettuceClientConfiguration.builder()
-                .commandTimeout(java.time.Duration.ofMillis(redisTimeout))
-                .build();
+        return connectionFactory(clientResources, readFrom);
+    }
+
+    /**
+     * Factory para las lecturas de caché que toleran réplicas. En standalone no hay réplicas
+     * y no se usa: el template de lectura va a la factory principal.
+     */
+    @Bean
+    public LettuceConnectionFactory cacheReadConnectionFactory(ClientResources clientResources) {
+        return connectionFactory(clientResources, cacheReadFrom);
+    }
 
-        LettuceConnectionFactory factory = new LettuceConnectionFactory(redisHost, redisPort);
+    private LettuceConnectionFactory connectionFactory(ClientResources clientResources, String readFromSetting) {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(redisConfiguration(),
+                clientConfiguration(clientResources, readFromSetting));
         factory.setValidateConnection(true);
-        factory.afterPropertiesSet();
+        // Con pool cada operación toma su propia conexión; sin pool todas comparten la nativa
+        factory.setShareNativeConnection(!poolEnabled);
 
         return factory;
     }
 
+    private RedisConfiguration redisConfiguration() {
+        if ("sentinel".equalsIgnoreCase(redisMode)) {
+            return new RedisSentinelConfiguration(sentinelMaster, new HashSet<>(sentinelNodes));
+        }
+        if ("cluster".equalsIgnoreCase(redisMode)) {
+            return new RedisClusterConfiguration(clusterNodes);
+        }
+        return new RedisStandaloneConfiguration(redisHost, redisPort);
+    }
+
+    private LettuceClientConfiguration clientConfiguration(ClientResources clientResources, String readFromSetting) {
+        LettuceClientConfiguration.LettuceClientConfigurationBuilder builder;
+
+        if (poolEnabled) {
+            GenericObjectPoolConfig<?> poolConfig = new GenericObjectPoolConfig<>();
+            poolConfig.setMaxTotal(redisMaximumActiveConnectionCount);
+            poolConfig.setMaxIdle(poolMaxIdle);
+            poolConfig.setMinIdle(poolMinIdle);
+            poolConfig.setMaxWait(Duration.ofMillis(poolMaxWaitMs));
+            // Expone el pool por JMX, de donde lo lee CommonsObjectPool2Metrics
+            poolConfig.setJmxEnabled(true);
+            poolConfig.setJmxNamePrefix("customer-redis");
+            builder = LettucePoolingClientConfiguration.builder().poolConfig(poolConfig);
+        } else {
+            builder = LettuceClientConfiguration.builder();
+        }
+
+        builder.commandTimeout(Duration.ofMillis(redisTimeout))
+                .clientResources(clientResources);
+
+        // ReadFrom solo aplica cuando hay réplicas conocidas (sentinel o cluster)
+        if (!"standalone".equalsIgnoreCase(redisMode)) {
+            builder.readFrom(ReadFrom.valueOf(readFromSetting));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Métricas del pool de conexiones (commons.pool2.*) en /actuator/metrics.
+     */
+    @Bean
+    public CommonsObjectPool2Metrics redisPoolMetrics() {
+        return new CommonsObjectPool2Metrics();
+    }
+
     /**
      * Template reactivo para operaciones con Redis (GET/SET/DEL).
      */
     @Bean
+    @Primary
     public ReactiveRedisTemplate<String, Object> reactiveRedisTemplate(
             ReactiveRedisConnectionFactory factory) {
+        return new ReactiveRedisTemplate<>(factory, jsonSerializationContext());
+    }
 
-        RedisSerializationContext<String, Object> serializationContext =
-                RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
-                        .value(new GenericJackson2JsonRedisSerializer())
-                        .build();
+    /**
+     * Template solo para GET de clientes cacheados: puede leer de una réplica, así que
+     * nada que dependa de leer la última escritura debe usarlo.
+     */
+    @Bean
+    public ReactiveRedisTemplate<String, Object> cacheReadRedisTemplate(
+            ReactiveRedisConnectionFactory factory,
+            @Qualifier("cacheReadConnectionFactory") LettuceConnectionFactory cacheReadConnectionFactory) {
+        ReactiveRedisConnectionFactory readFactory = "standalone".equalsIgnoreCase(redisMode)
+                ? factory
+                : cacheReadConnectionFactory;
+        return new ReactiveRedisTemplate<>(readFactory, jsonSerializationContext());
+    }
+
+    private static RedisSerializationContext<String, Object> jsonSerializationContext() {
+        return RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
+                .value(new GenericJackson2JsonRedisSerializer())
+                .build();
+    }
 
-        return new ReactiveRedisTemplate<>(factory, serializationContext);
+    /**
+     * Template reactivo con claves y valores String (contadores, hashes, scripts Lua).
+     */
+    @Bean
+    public ReactiveStringRedisTemplate reactiveStringRedisTemplate(ReactiveRedisConnectionFactory factory) {
+        return new ReactiveStringRedisTemplate(factory);
     }
 }
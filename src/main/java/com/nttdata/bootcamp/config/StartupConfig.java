@@ -0,0 +1,60 @@
+package com.nttdata.bootcamp.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Soporte del perfil "faststart" (inicialización lazy) y del entrenamiento del archivo AppCDS.
+ */
+@Configuration
+public class StartupConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupConfig.class);
+
+    // Usado por el Dockerfile para generar la lista de clases del archivo CDS: arranca y sale
+    @Value("${startup.exit-after-ready:false}")
+    private boolean exitAfterReady;
+
+    /**
+     * Con spring.main.lazy-initialization los beans con @Scheduled no se crearían hasta
+     * su primer uso y sus tareas nunca quedarían programadas: se excluyen del modo lazy.
+     */
+    @Bean
+    public static LazyInitializationExcludeFilter scheduledBeansExcludeFilter() {
+        return (beanName, beanDefinition, beanType) -> {
+            // Beans de fábrica cuyo tipo aún no se conoce: se dejan en modo lazy
+            if (beanType == null) {
+                return false;
+            }
+            AtomicBoolean scheduled = new AtomicBoolean(false);
+            ReflectionUtils.doWithMethods(beanType,
+                    method -> scheduled.set(true),
+                    method -> AnnotatedElementUtils.hasAnnotation(method, Scheduled.class));
+            return scheduled.get();
+        };
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportTimeToReady(ApplicationReadyEvent event) {
+        LOGGER.info("Time-to-ready: {} ms desde el arranque de la JVM",
+                ManagementFactory.getRuntimeMXBean().getUptime());
+        if (exitAfterReady) {
+            ApplicationContext context = event.getApplicationContext();
+            System.exit(SpringApplication.exit(context, () -> 0));
+        }
+    }
+}
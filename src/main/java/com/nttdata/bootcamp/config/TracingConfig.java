@@ -0,0 +1,81 @@
+package com.nttdata.bootcamp.config;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+import com.nttdata.bootcamp.util.FileSpanExporter;
+import com.nttdata.bootcamp.util.TailSamplingSpanHandler;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Exportador local de trazas. El muestreo por cabecera lo hace Sleuth
+ * (spring.sleuth.sampler.probability); sobre las trazas muestreadas se aplica
+ * opcionalmente el muestreo por cola, que conserva solo las lentas o con error.
+ * El muestreo por cabecera por defecto es bajo (sin exportador no hay dónde enviar
+ * las trazas); al habilitar este exportador conviene subirlo para que el muestreo
+ * por cola vea las trazas lentas.
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracing.file.enabled", havingValue = "true")
+public class TracingConfig {
+
+    @Value("${tracing.file.path}")
+    private String path;
+
+    @Value("${tracing.file.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${tracing.tail.enabled}")
+    private boolean tailEnabled;
+
+    @Value("${tracing.tail.slow-threshold-ms}")
+    private long slowThresholdMs;
+
+    // Fracción de las trazas rápidas y sin error que se exporta igual (línea base)
+    @Value("${tracing.tail.keep-probability}")
+    private double keepProbability;
+
+    @Value("${tracing.tail.max-pending-traces}")
+    private int maxPendingTraces;
+
+    @Value("${tracing.tail.max-pending-age-ms}")
+    private long maxPendingAgeMs;
+
+    @Bean(destroyMethod = "close")
+    public FileSpanExporter fileSpanExporter(MeterRegistry meterRegistry) throws IOException {
+        FileSpanExporter exporter = new FileSpanExporter(Paths.get(path), queueCapacity);
+        Gauge.builder("tracing.export.dropped", exporter, FileSpanExporter::getDropped)
+                .description("Spans descartados por cola de exportación llena")
+                .register(meterRegistry);
+        return exporter;
+    }
+
+    @Bean
+    public SpanHandler fileSpanHandler(FileSpanExporter exporter, MeterRegistry meterRegistry) {
+        if (!tailEnabled) {
+            return new SpanHandler() {
+                @Override
+                public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+                    if (cause == Cause.FINISHED) {
+                        exporter.accept(span);
+                    }
+                    return true;
+                }
+            };
+        }
+        TailSamplingSpanHandler handler = new TailSamplingSpanHandler(exporter, slowThresholdMs,
+                keepProbability, maxPendingTraces, maxPendingAgeMs);
+        Gauge.builder("tracing.tail.kept", handler, TailSamplingSpanHandler::getKeptTraces).register(meterRegistry);
+        Gauge.builder("tracing.tail.dropped", handler, TailSamplingSpanHandler::getDroppedTraces).register(meterRegistry);
+        Gauge.builder("tracing.tail.pending", handler, TailSamplingSpanHandler::getPendingTraces).register(meterRegistry);
+        return handler;
+    }
+}
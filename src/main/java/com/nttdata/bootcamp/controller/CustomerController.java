@@ -1,21 +1,41 @@
 package com.nttdata.bootcamp.controller;
 
+import com.nttdata.bootcamp.entity.dto.BulkStatusProgressDto;
 import com.nttdata.bootcamp.entity.dto.BusinessCustomerDto;
+import com.nttdata.bootcamp.entity.dto.CustomerStatsDto;
 import com.nttdata.bootcamp.entity.dto.UpdateAddressDto;
 import com.nttdata.bootcamp.entity.dto.PersonalCustomerDto;
 import com.nttdata.bootcamp.entity.dto.UpdateStatusDto;
+import com.nttdata.bootcamp.entity.enums.ExportFormat;
 import com.nttdata.bootcamp.util.Constant;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.nttdata.bootcamp.service.CustomerExportService;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
 import com.nttdata.bootcamp.service.CustomerService;
+import com.nttdata.bootcamp.service.CustomerStatsService;
+import com.nttdata.bootcamp.service.ProductSummaryService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
 import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.CustomerChange;
+import com.nttdata.bootcamp.entity.CustomerProductSummary;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import java.util.Date;
+import java.util.List;
+import java.util.Set;
 import javax.validation.Valid;
 
 @CrossOrigin(origins = "*")
@@ -24,10 +44,24 @@ import javax.validation.Valid;
 public class CustomerController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomerController.class);
+    private static final Set<String> BULK_STATUSES =
+            Set.of(Constant.CUSTOMER_ACTIVE, Constant.CUSTOMER_INACTIVE, Constant.CUSTOMER_DEBTOR);
 
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private CustomerStatsService customerStatsService;
+
+    @Autowired
+    private CustomerExportService customerExportService;
+
+    @Autowired
+    private ProductSummaryService productSummaryService;
+
+    @Autowired
+    private CustomerHistoryService customerHistoryService;
+
     // ===========================
     // CREATE PERSONAL CUSTOMER
     // ===========================
@@ -37,10 +71,7 @@ public class CustomerController {
         Customer dataCustomer = mapFromPersonal(dto);
 
         return customerService.save(dataCustomer)
-                .flatMap(saved ->
-                        Mono.fromRunnable(() -> customerService.saveInitServices(saved))
-                                .thenReturn(saved)
-                )
+                .flatMap(customerService::afterCreate)
                 .doOnSubscribe(s -> LOGGER.info("SUBSCRIBE create DNI={}", dataCustomer.getDni()))
                 .doOnSuccess(saved -> LOGGER.info("OK create DNI={} id={}", saved.getDni(), saved.getId()))
                 .doOnError(e -> LOGGER.error("ERROR create DNI={} -> {}", dataCustomer.getDni(), e.toString()));
@@ -56,10 +87,7 @@ public class CustomerController {
         Customer dataCustomer = mapFromBussines(dto);
 
         return customerService.save(dataCustomer)
-                .flatMap(saved ->
-                        Mono.fromRunnable(() -> customerService.saveInitServices(saved))
-                                .thenReturn(saved)
-                )
+                .flatMap(customerService::afterCreate)
                 .doOnSubscribe(s -> LOGGER.info("SUBSCRIBE create DNI={}", dataCustomer.getDni()))
                 .doOnSuccess(saved -> LOGGER.info("OK create DNI={} id={}", saved.getDni(), saved.getId()))
                 .doOnError(e -> LOGGER.error("ERROR create DNI={} -> {}", dataCustomer.getDni(), e.toString()));
@@ -70,8 +98,33 @@ public class CustomerController {
     // FIND ALL CUSTOMERS
     // ===========================
     @GetMapping("/")
-    public Flux<Customer> findAllCustomers() {
-        return customerService.findAll();
+    public Flux<Customer> findAllCustomers(
+            @RequestParam(value = "includeArchived", defaultValue = "false") boolean includeArchived) {
+        return customerService.findAll(includeArchived);
+    }
+
+
+    // ===========================
+    // EXPORT CUSTOMERS (gzip NDJSON/CSV)
+    // ===========================
+    @GetMapping("/export")
+    public ResponseEntity<Flux<DataBuffer>> exportCustomers(
+            @RequestParam(value = "format", defaultValue = "NDJSON") ExportFormat format,
+            @RequestParam(value = "fromDni", required = false) String fromDni,
+            @RequestParam(value = "fromId", required = false) String fromId,
+            @RequestParam(value = "includeArchived", required = false) Boolean includeArchived,
+            ServerHttpResponse response) {
+
+        // fromId es el _id del último cliente recibido
+        if (fromId != null && !fromId.isEmpty() && !ObjectId.isValid(fromId)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "fromId no es un ObjectId válido: " + fromId);
+        }
+        String fileName = "customers." + format.getExtension() + ".gz";
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/gzip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .body(customerExportService.export(format, fromDni, fromId, includeArchived,
+                        response.bufferFactory()));
     }
 
 
@@ -79,8 +132,87 @@ public class CustomerController {
     // FIND BY DNI
     // ===========================
     @GetMapping("/findByClient/{dni}")
-    public Mono<Customer> findByClient(@PathVariable String dni) {
-        return customerService.findByDni(dni);
+    public Mono<ResponseEntity<Object>> findByClient(@PathVariable String dni,
+                                                     @RequestParam(value = "fields", required = false) List<String> fields,
+                                                     ServerWebExchange exchange) {
+
+        // Proyección (?fields=status,address): con el layout hash solo esos campos salen de Redis
+        if (fields != null && !fields.isEmpty()) {
+            return customerService.findFieldsByDni(dni, fields)
+                    .map(projection -> ResponseEntity.ok().body(projection));
+        }
+
+        Mono<ResponseEntity<Object>> normalPath = Mono.defer(() -> customerService.findByDni(dni)
+                .map(customer -> ResponseEntity.ok().body(customer)));
+
+        if (!acceptsCachedJson(exchange.getRequest())) {
+            return normalPath;
+        }
+        // Passthrough: en un hit se escriben los bytes JSON cacheados tal cual
+        return customerService.findCachedJsonByDni(dni, exchange.getResponse().bufferFactory())
+                .map(json -> ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).<Object>body(json))
+                .switchIfEmpty(normalPath);
+    }
+
+
+    // ===========================
+    // PRODUCT SUMMARY
+    // ===========================
+    // Vista materializada desde los eventos de productos: una sola lectura, sin llamar a otros servicios
+    @GetMapping("/{dni}/summary")
+    public Mono<CustomerProductSummary> productSummary(@PathVariable String dni) {
+        return productSummaryService.findByDni(dni);
+    }
+
+
+    // ===========================
+    // CHANGE HISTORY
+    // ===========================
+    // Más reciente primero; from/to en ISO-8601, ej. 2024-01-01T00:00:00Z
+    @GetMapping("/{dni}/history")
+    public Flux<CustomerChange> history(
+            @PathVariable String dni,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date to,
+            @RequestParam(value = "limit", defaultValue = "100") int limit) {
+        return customerHistoryService.findByDni(dni, from, to, limit);
+    }
+
+
+    // ===========================
+    // FIND BY RUC
+    // ===========================
+    @GetMapping("/findByRuc/{ruc}")
+    public Mono<Customer> findByRuc(@PathVariable String ruc) {
+        return customerService.findByRuc(ruc);
+    }
+
+
+    // ===========================
+    // FIND BY ID
+    // ===========================
+    @GetMapping("/findById/{id}")
+    public Mono<Customer> findById(@PathVariable String id) {
+        return customerService.findById(id);
+    }
+
+
+    // ===========================
+    // SEARCH BY NAME PREFIX
+    // ===========================
+    @GetMapping("/search")
+    public Flux<Customer> searchCustomers(@RequestParam("q") String query,
+                                          @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return customerService.searchByName(query, limit);
+    }
+
+
+    // ===========================
+    // CUSTOMER STATISTICS
+    // ===========================
+    @GetMapping("/stats")
+    public Mono<CustomerStatsDto> customerStats() {
+        return customerStatsService.getStats();
     }
 
 
@@ -118,6 +250,22 @@ public class CustomerController {
     }
 
 
+    // ===========================
+    // BULK STATUS CHANGE (one DNI per line)
+    // ===========================
+    @PutMapping(value = "/status/bulk", consumes = MediaType.TEXT_PLAIN_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BulkStatusProgressDto> bulkUpdateStatus(@RequestParam("status") String status,
+                                                        @RequestBody Flux<String> dnis) {
+        if (!BULK_STATUSES.contains(status)) {
+            return Flux.error(new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Estado no permitido: " + status));
+        }
+        return customerService.bulkUpdateStatus(dnis, status)
+                .doOnSubscribe(s -> LOGGER.info("SUBSCRIBE bulk status={}", status));
+    }
+
+
     // ===========================
     // DELETE CUSTOMER
     // ===========================
@@ -128,6 +276,17 @@ public class CustomerController {
     }
 
 
+    // Los bytes cacheados son el JSON completo: cualquier parámetro (proyección de campos)
+    // o un Accept que no admita JSON sigue el camino normal con negociación de contenido
+    private static boolean acceptsCachedJson(ServerHttpRequest request) {
+        if (!request.getQueryParams().isEmpty()) {
+            return false;
+        }
+        List<MediaType> accept = request.getHeaders().getAccept();
+        return accept.isEmpty() || accept.stream().anyMatch(MediaType.APPLICATION_JSON::isCompatibleWith);
+    }
+
+
     // MAPPERS
     private Customer mapFromPersonal(PersonalCustomerDto dto) {
         Customer c = new Customer();
@@ -0,0 +1,88 @@
+package com.nttdata.bootcamp.controller;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
+import com.nttdata.bootcamp.service.CustomerService;
+import com.nttdata.bootcamp.util.JwtUtil;
+import io.rsocket.exceptions.RejectedSetupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.messaging.rsocket.annotation.ConnectMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Interfaz RSocket para los microservicios internos (cuentas, créditos, transacciones).
+ * El JWT se valida una sola vez, en el SETUP de la conexión; las llamadas posteriores
+ * viajan multiplexadas por esa misma conexión TCP sin revalidar el token.
+ * Los clientes deben usar application/cbor como data mime type, ej.:
+ * RSocketRequester.builder().dataMimeType(MediaType.APPLICATION_CBOR).setupData(jwt).tcp(host, port)
+ */
+@Controller
+public class CustomerRSocketController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerRSocketController.class);
+
+    @Autowired
+    private CustomerService customerService;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    // DNIs resueltos en paralelo dentro de un request-channel
+    @Value("${rsocket.channel.concurrency}")
+    private int channelConcurrency;
+
+    // ===========================
+    // SETUP (JWT)
+    // ===========================
+    @ConnectMapping
+    public Mono<Void> connect(@Payload(required = false) String token) {
+        if (token == null || !jwtUtil.validateToken(token)) {
+            return Mono.error(new RejectedSetupException("Invalid or missing JWT in setup payload"));
+        }
+        LOGGER.info("RSocket connection accepted for {}", jwtUtil.getUsernameFromToken(token));
+        return Mono.empty();
+    }
+
+    // ===========================
+    // REQUEST-RESPONSE
+    // ===========================
+    @MessageMapping("customer.by-dni")
+    public Mono<Customer> findByDni(String dni) {
+        return customerService.findByDni(dni);
+    }
+
+    @MessageMapping("customer.by-ruc")
+    public Mono<Customer> findByRuc(String ruc) {
+        return customerService.findByRuc(ruc);
+    }
+
+    // ===========================
+    // REQUEST-STREAM
+    // ===========================
+    // Cursor de Mongo ordenado por DNI: cada lote se pide según la demanda del cliente RSocket
+    @MessageMapping("customer.all")
+    public Flux<Customer> findAll() {
+        return customerService.findAll();
+    }
+
+    // ===========================
+    // REQUEST-CHANNEL
+    // ===========================
+    /**
+     * Recibe un stream de DNIs y responde los clientes en el mismo orden;
+     * los DNIs inexistentes se omiten en vez de cortar el canal.
+     */
+    @MessageMapping("customer.by-dnis")
+    public Flux<Customer> findByDnis(Flux<String> dnis) {
+        return dnis.flatMapSequential(dni -> customerService.findByDni(dni)
+                        .onErrorResume(CustomerNotFoundException.class, e -> Mono.empty()),
+                channelConcurrency);
+    }
+}
@@ -1,6 +1,7 @@
 package com.nttdata.bootcamp.controller.advice;
 
 
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
 import com.nttdata.bootcamp.exception.DuplicateCustomerIdException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -20,6 +21,16 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    @ExceptionHandler(CustomerNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleNotFound(CustomerNotFoundException ex) {
+        ErrorResponse body = new ErrorResponse(
+                HttpStatus.NOT_FOUND.value(),
+                "NOT_FOUND",
+                ex.getMessage()
+        );
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(body);
+    }
+
     // DTO de error simple
     public static class ErrorResponse {
         private int status;
@@ -1,6 +1,7 @@
 package com.nttdata.bootcamp.entity;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -11,6 +12,7 @@ import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.util.Date;
+import java.util.List;
 
 @Data
 @AllArgsConstructor
@@ -40,4 +42,13 @@ public class Customer {
     @LastModifiedDate
     private Date modificationDate;
 
+    // Claves normalizadas (minúsculas, sin tildes) para la búsqueda por prefijo.
+    // Se recalculan en cada escritura, ver CustomerSearchKeysCallback.
+    @JsonIgnore
+    private List<String> searchKeys;
+
+    // Tombstone: fecha de borrado lógico. El documento se elimina luego por el job de purga.
+    @JsonIgnore
+    private Date deletedAt;
+
 }
@@ -0,0 +1,43 @@
+package com.nttdata.bootcamp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+
+/**
+ * Entrada inmutable del historial de un cliente: un campo cambiado, con su valor
+ * anterior y el nuevo. Solo se inserta, nunca se actualiza.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "customer_history")
+public class CustomerChange {
+    @Id
+    private String id;
+    private String dni;
+    // address | status | deletedAt
+    private String field;
+    private String oldValue;
+    private String newValue;
+    private Date changedAt;
+    // Operación que originó el cambio, ej. UPDATE_STATUS, BULK_STATUS, DELETE
+    private String operation;
+
+    public CustomerChange(String dni, String field, Object oldValue, Object newValue, Date changedAt, String operation) {
+        this(null, dni, field, asText(oldValue), asText(newValue),
+                changedAt == null ? new Date() : changedAt, operation);
+    }
+
+    // Las fechas se guardan en ISO-8601 para que el historial sea legible sin conversión
+    private static String asText(Object value) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Date ? ((Date) value).toInstant().toString() : String.valueOf(value);
+    }
+}
@@ -0,0 +1,28 @@
+package com.nttdata.bootcamp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Vista materializada de los productos de un cliente, construida desde los eventos
+ * de los microservicios de productos (una lectura por _id = DNI).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "customer_product_summary")
+public class CustomerProductSummary {
+    @Id
+    private String dni;
+    private long totalProducts;
+    private double totalBalance;
+    private Map<String, ProductTypeSummary> byAccountType = new LinkedHashMap<>();
+    private Date updatedAt;
+}
@@ -0,0 +1,13 @@
+package com.nttdata.bootcamp.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductTypeSummary {
+    private long count;
+    private double balance;
+}
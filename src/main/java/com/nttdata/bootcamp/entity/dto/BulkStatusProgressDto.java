@@ -0,0 +1,18 @@
+package com.nttdata.bootcamp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BulkStatusProgressDto {
+    private long chunk;
+    private int chunkSize;
+    private long matched;
+    private long modified;
+    private long totalProcessed;
+    private long totalModified;
+    private long elapsedMs;
+}
@@ -0,0 +1,20 @@
+package com.nttdata.bootcamp.entity.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Date;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CustomerStatsDto {
+    private long total;
+    private Map<String, Long> byTypeCustomer;
+    private Map<String, Long> byStatus;
+    private long vip;
+    private long pyme;
+    private Date reconciledAt;
+}
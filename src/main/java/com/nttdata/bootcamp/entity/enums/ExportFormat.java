@@ -0,0 +1,15 @@
+package com.nttdata.bootcamp.entity.enums;
+
+public enum ExportFormat {
+    NDJSON("ndjson"), CSV("csv");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
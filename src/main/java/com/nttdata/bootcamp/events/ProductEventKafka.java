@@ -0,0 +1,11 @@
+package com.nttdata.bootcamp.events;
+
+import com.nttdata.bootcamp.entity.dto.ProductDto;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class ProductEventKafka extends EventKafka<ProductDto> {
+
+}
@@ -0,0 +1,11 @@
+package com.nttdata.bootcamp.exception;
+
+import static com.nttdata.bootcamp.util.Constant.CLIENT_NOT_EXIST;
+
+public class CustomerNotFoundException extends RuntimeException{
+
+    public CustomerNotFoundException(String identifier) {
+        super(CLIENT_NOT_EXIST + " " + identifier);
+    }
+
+}
@@ -1,14 +1,30 @@
 package com.nttdata.bootcamp.repository;
 
 import com.nttdata.bootcamp.entity.Customer;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 //Mongodb Repository
+//Las consultas por identificador ignoran los clientes borrados (tombstone con deletedAt)
 public interface CustomerRepository extends ReactiveCrudRepository<Customer, String> {
 
+    @Query(value = "{ 'dni': ?0, 'deletedAt': null }", exists = true)
     Mono<Boolean> existsByDni(String dni);
-    Mono<Customer> findByDni(String dni);
+    // Un DNI puede repetirse: el cliente PERSONAL y los EMPRESARIAL de los que es representante.
+    // Se resuelve siempre al mismo: primero el PERSONAL ("PERSONAL" > "EMPRESARIAL"), luego el más antiguo
+    @Query(value = "{ 'dni': ?0, 'deletedAt': null }", sort = "{ 'typeCustomer': -1, '_id': 1 }")
+    Flux<Customer> findAllByDni(String dni);
+    default Mono<Customer> findByDni(String dni) {
+        return findAllByDni(dni).next();
+    }
+    @Query(value = "{ 'ruc': ?0, 'deletedAt': null }", exists = true)
     Mono<Boolean> existsByRuc(String ruc);
+    @Query("{ 'ruc': ?0, 'deletedAt': null }")
+    Mono<Customer> findByRuc(String ruc);
+    @Query("{ 'searchKeys': { '$regex': ?0 }, 'deletedAt': null }")
+    Flux<Customer> findBySearchKeysRegex(String regex, Pageable pageable);
 
 }
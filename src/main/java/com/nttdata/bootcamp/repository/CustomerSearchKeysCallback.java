@@ -0,0 +1,22 @@
+package com.nttdata.bootcamp.repository;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.util.SearchNormalizer;
+import org.reactivestreams.Publisher;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Mantiene sincronizadas las claves de búsqueda en cada save/insert del cliente,
+ * sin importar desde qué flujo se escriba.
+ */
+@Component
+public class CustomerSearchKeysCallback implements ReactiveBeforeConvertCallback<Customer> {
+
+    @Override
+    public Publisher<Customer> onBeforeConvert(Customer customer, String collection) {
+        customer.setSearchKeys(SearchNormalizer.searchKeys(customer));
+        return Mono.just(customer);
+    }
+}
@@ -0,0 +1,27 @@
+package com.nttdata.bootcamp.service;
+
+import reactor.core.publisher.Mono;
+
+public interface CacheWarmUpService {
+
+    /**
+     * Carga en Redis el hot-set de clientes desde Mongo, por lotes y con límite de ritmo.
+     * Devuelve la cantidad de clientes cargados.
+     */
+    Mono<Long> warmUp();
+
+    /**
+     * true cuando el primer warm-up terminó (o falló y se dejó pasar).
+     */
+    boolean isReady();
+
+    /**
+     * Clientes cargados en la última ejecución.
+     */
+    long getLoadedCount();
+
+    /**
+     * Último error del warm-up, null si no hubo.
+     */
+    String getLastError();
+}
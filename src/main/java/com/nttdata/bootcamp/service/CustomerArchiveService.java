@@ -0,0 +1,37 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.Customer;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface CustomerArchiveService {
+
+    /**
+     * Mueve por lotes a la colección fría los clientes INACTIVE sin modificaciones durante
+     * el período configurado. Devuelve la cantidad de clientes archivados.
+     */
+    Mono<Long> archiveInactive();
+
+    /**
+     * Cliente archivado por DNI; vacío si no está en la capa fría. Con un DNI compartido
+     * devuelve el mismo que resolvería la capa caliente (el PERSONAL primero).
+     */
+    Mono<Customer> findArchivedByDni(String dni);
+
+    Mono<Customer> findArchivedByRuc(String ruc);
+
+    /**
+     * Intercala con el cursor de customer los archivados que cumplen la misma consulta, que
+     * debe ordenar por (dni, _id). Un cliente ya copiado al archivo y aún no borrado de
+     * customer se emite una sola vez.
+     */
+    Flux<Customer> withArchived(Flux<Customer> hot, Query query);
+
+    /**
+     * Devuelve el cliente archivado a la capa caliente con modificationDate actual (así el
+     * próximo archivado no lo vuelve a mover) y lo quita del archivo. Devuelve el documento
+     * vigente en customer; vacío si ya no estaba archivado.
+     */
+    Mono<Customer> restore(Customer archived);
+}
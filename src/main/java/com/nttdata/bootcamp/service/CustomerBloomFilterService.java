@@ -0,0 +1,35 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.Customer;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+public interface CustomerBloomFilterService {
+
+    /**
+     * false si el filtro compartido no tiene el DNI: no hay cliente con ese DNI (ni en
+     * customer ni en customer_archive) y no hace falta consultar Mongo. true si puede
+     * existir, si el filtro aún no está construido o si Redis no responde.
+     */
+    Mono<Boolean> mightContainDni(String dni);
+
+    /**
+     * Igual que mightContainDni, para el RUC de clientes empresariales.
+     */
+    Mono<Boolean> mightContainRuc(String ruc);
+
+    /**
+     * Registra el DNI/RUC de un cliente antes de insertarlo, para que ningún negativo lo
+     * oculte. No falla: si Redis no responde el alta se reintenta en segundo plano.
+     */
+    Mono<Void> put(Customer customer);
+
+    Mono<Void> putAll(Collection<Customer> customers);
+
+    /**
+     * Registra un cliente que Mongo tenía aunque el filtro lo negaba (insertado sin pasar
+     * por el servicio) y cuenta el falso negativo.
+     */
+    Mono<Void> reconcile(Customer customer);
+}
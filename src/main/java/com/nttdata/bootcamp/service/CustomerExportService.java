@@ -0,0 +1,28 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.enums.ExportFormat;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.file.Path;
+
+public interface CustomerExportService {
+
+    /**
+     * Exporta la cartera en orden de (DNI, id) como gzip (miembros concatenados).
+     * Con fromDni y fromId (los del último cliente recibido) se reanuda justo después;
+     * con solo fromDni, desde el DNI siguiente. includeArchived agrega los clientes de la
+     * capa fría en el mismo orden; null usa export.include-archived.
+     */
+    Flux<DataBuffer> export(ExportFormat format, String fromDni, String fromId, Boolean includeArchived,
+                            DataBufferFactory bufferFactory);
+
+    /**
+     * Escribe la exportación completa en el directorio configurado. Si existe un
+     * archivo parcial del mismo día, continúa desde su último bloque confirmado. Incluye los
+     * archivados según export.include-archived.
+     */
+    Mono<Path> exportToFile(ExportFormat format);
+}
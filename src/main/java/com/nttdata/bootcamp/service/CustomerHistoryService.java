@@ -0,0 +1,21 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.CustomerChange;
+import reactor.core.publisher.Flux;
+
+import java.util.Date;
+
+public interface CustomerHistoryService {
+
+    /**
+     * Encola el cambio en memoria sin esperar a Mongo; se escribe en el próximo lote.
+     * Si la cola está llena el cambio se descarta y se cuenta en la métrica de descartes.
+     */
+    void record(CustomerChange change);
+
+    /**
+     * Historial del cliente, del más reciente al más antiguo. from/to son opcionales.
+     * Los cambios aún en la cola aparecen tras el siguiente volcado.
+     */
+    Flux<CustomerChange> findByDni(String dni, Date from, Date to, int limit);
+}
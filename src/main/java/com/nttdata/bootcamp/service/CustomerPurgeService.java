@@ -0,0 +1,12 @@
+package com.nttdata.bootcamp.service;
+
+import reactor.core.publisher.Mono;
+
+public interface CustomerPurgeService {
+
+    /**
+     * Elimina físicamente, por lotes, los clientes con tombstone más antiguo que el período de gracia.
+     * Devuelve la cantidad de documentos eliminados.
+     */
+    Mono<Long> purgeTombstones();
+}
@@ -1,9 +1,15 @@
 package com.nttdata.bootcamp.service;
 
 import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.dto.BulkStatusProgressDto;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Map;
+
 //Interface Service
 public interface CustomerService {
 
@@ -11,9 +17,20 @@ public interface CustomerService {
     Mono<Customer> updateCustomerAddress(Customer dataCustomer);
     Mono<Customer> updateStatus(Customer dataCustomer);
     Mono<Void> delete(String dni);
-    Customer saveInitServices(Customer dataCustomer);
+    Mono<Customer> afterCreate(Customer dataCustomer);
     Flux<Customer> findAll();
+
+    /**
+     * Con includeArchived, intercala en el mismo orden (DNI, id) los clientes de la capa fría.
+     */
+    Flux<Customer> findAll(boolean includeArchived);
     Mono<Customer> findByDni(String dni);
+    Mono<Customer> findByRuc(String ruc);
+    Mono<Customer> findById(String id);
+    Mono<Map<String, Object>> findFieldsByDni(String dni, List<String> fields);
+    Mono<DataBuffer> findCachedJsonByDni(String dni, DataBufferFactory bufferFactory);
+    Flux<Customer> searchByName(String query, int limit);
+    Flux<BulkStatusProgressDto> bulkUpdateStatus(Flux<String> dnis, String status);
 
 
 }
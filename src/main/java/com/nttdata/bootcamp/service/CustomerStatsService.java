@@ -0,0 +1,33 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.dto.CustomerStatsDto;
+import reactor.core.publisher.Mono;
+
+public interface CustomerStatsService {
+
+    /**
+     * Suma al cliente en los contadores (alta).
+     */
+    Mono<Void> onCreated(Customer customer);
+
+    /**
+     * Resta al cliente de los contadores (baja).
+     */
+    Mono<Void> onDeleted(Customer customer);
+
+    /**
+     * Mueve un cliente de un estado a otro.
+     */
+    Mono<Void> onStatusChanged(String oldStatus, String newStatus);
+
+    /**
+     * Lee los contadores en O(1), sin recorrer la colección.
+     */
+    Mono<CustomerStatsDto> getStats();
+
+    /**
+     * Recalcula los contadores desde Mongo y corrige cualquier desvío.
+     */
+    Mono<CustomerStatsDto> reconcile();
+}
@@ -0,0 +1,43 @@
+package com.nttdata.bootcamp.service;
+
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+public interface CustomerWriteBehindService {
+
+    /**
+     * true si las actualizaciones de campos se difieren al buffer en lugar de ir a Mongo.
+     */
+    boolean isEnabled();
+
+    /**
+     * Registra la actualización en el buffer durable, fusionándola con las pendientes
+     * del mismo cliente (_id; el último valor de cada campo gana).
+     */
+    Mono<Void> enqueue(String customerId, Map<String, Object> fields);
+
+    /**
+     * true si el cliente tiene una actualización en el buffer (o en el volcado en curso) que
+     * aún no llegó a Mongo. Siempre false con write-behind desactivado.
+     */
+    Mono<Boolean> isPending(String customerId);
+
+    /**
+     * Los _id de la lista con actualizaciones pendientes; vacío con write-behind desactivado.
+     */
+    Mono<Set<String>> pendingIds(Collection<String> customerIds);
+
+    /**
+     * Descarta el valor pendiente de un campo para esos clientes, cuando otro escritor lo
+     * fija directamente en Mongo y el valor del buffer (anterior) no debe pisarlo al volcarse.
+     */
+    Mono<Long> discard(Collection<String> customerIds, String field);
+
+    /**
+     * Vuelca el buffer a Mongo en lotes bulkWrite. Devuelve la cantidad de clientes escritos.
+     */
+    Mono<Long> flush();
+}
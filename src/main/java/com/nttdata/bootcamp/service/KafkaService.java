@@ -1,7 +1,8 @@
 package com.nttdata.bootcamp.service;
 
 import com.nttdata.bootcamp.entity.Customer;
+import reactor.core.publisher.Mono;
 
 public interface KafkaService {
-    void publish(Customer customer);
+    Mono<Void> publish(Customer customer);
 }
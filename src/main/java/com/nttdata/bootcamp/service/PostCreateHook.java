@@ -0,0 +1,28 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.Customer;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Paso que corre después de crear un cliente (caché, eventos, ...). Todos los beans
+ * que implementan esta interfaz se ejecutan en paralelo, cada uno con su timeout.
+ */
+public interface PostCreateHook {
+
+    enum FailurePolicy {
+        /** El error se registra y el alta responde OK igual. */
+        IGNORE,
+        /** El error se propaga al cliente del alta. */
+        FAIL
+    }
+
+    String name();
+
+    Duration timeout();
+
+    FailurePolicy failurePolicy();
+
+    Mono<Void> apply(Customer customer);
+}
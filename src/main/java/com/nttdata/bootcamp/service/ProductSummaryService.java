@@ -0,0 +1,21 @@
+package com.nttdata.bootcamp.service;
+
+import com.nttdata.bootcamp.entity.CustomerProductSummary;
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+public interface ProductSummaryService {
+
+    /**
+     * Resumen de productos del cliente; sin eventos recibidos devuelve un resumen en cero.
+     */
+    Mono<CustomerProductSummary> findByDni(String dni);
+
+    /**
+     * Aplica un lote de eventos de productos. Idempotente: reaplicar el mismo lote
+     * (reentrega de Kafka) deja el mismo estado.
+     */
+    Mono<Void> apply(List<ProductEventKafka> events);
+}
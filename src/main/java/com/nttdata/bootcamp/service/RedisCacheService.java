@@ -2,31 +2,81 @@ package com.nttdata.bootcamp.service;
 
 
 import com.nttdata.bootcamp.entity.Customer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 public interface RedisCacheService {
 
     /**
-     * Recupera un Customer desde Redis de manera reactiva.
+     * Recupera un Customer PERSONAL desde Redis de manera reactiva.
+     * Falla con CustomerNotFoundException si el DNI tiene un tombstone.
      */
     Mono<Customer> retrieveCustomer(String customerDni);
 
     /**
-     * Elimina keys asociadas a un customer de manera reactiva.
+     * Devuelve el cliente EMPRESARIAL cacheado bajo su RUC.
+     */
+    Mono<Customer> retrieveCustomerByRuc(String ruc);
+
+    /**
+     * Resuelve id de Mongo -> clave canónica (DNI o RUC) con un puntero y devuelve el cliente.
+     */
+    Mono<Customer> retrieveCustomerById(String id);
+
+    /**
+     * Recupera solo los campos pedidos del cliente (HMGET con el layout hash);
+     * con el layout string devuelve el cliente completo.
+     */
+    Mono<Customer> retrieveCustomerFields(String customerDni, List<String> fields);
+
+    /**
+     * Recupera los bytes JSON de la respuesta ya serializada, sin deserializar.
+     * Vacío si el modo passthrough está deshabilitado o no hay entrada.
+     */
+    Mono<DataBuffer> retrieveCustomerJson(String customerDni, DataBufferFactory bufferFactory);
+
+    /**
+     * Elimina todas las keys de identidad (dni, json, id) asociadas a un customer PERSONAL.
      */
     Mono<Void> flushCustomerCache(String customerId);
 
     /**
-     * Guarda un Customer en Redis con TTL de manera reactiva.
+     * Guarda un Customer en Redis con TTL de manera reactiva, junto con su puntero por id.
+     * Los PERSONAL se guardan bajo su DNI y los EMPRESARIAL bajo su RUC, porque varios
+     * clientes EMPRESARIAL pueden compartir el DNI de su representante.
+     */
+    Mono<Customer> storeCustomer(Customer customer);
+
+    /**
+     * Actualiza en caché solo los campos indicados del cliente (HSET parcial con el layout hash);
+     * con el layout string reescribe el cliente completo.
      */
-    Mono<Customer> storeCustomer(String customerDni, Customer customer);
+    Mono<Customer> updateCustomerFields(Customer customer, String... fields);
 
     /**
-     * Limpia todo el Redis (flushAll) de forma reactiva.
+     * Invalida solo el namespace de clientes: SCAN + UNLINK por lotes, o un incremento
+     * de generación si está habilitado. Nunca ejecuta FLUSHALL.
      */
     Mono<Void> clearAll();
 
-    //******************************
+    /**
+     * Marca el cliente como borrado: un tombstone bajo su clave canónica hace que las
+     * lecturas respondan no encontrado sin consultar Mongo.
+     */
+    Mono<Void> markDeleted(Customer customer);
+
+    /**
+     * Invalida en un solo DEL las entradas (cliente, JSON y puntero) de un lote de clientes.
+     * Basta con que cada cliente traiga dni, ruc, typeCustomer e id.
+     */
+    Mono<Long> evictCustomers(List<Customer> customers);
+
+    /**
+     * Elimina el cliente PERSONAL cacheado bajo el DNI y todas sus claves (DNI, JSON, puntero id).
+     */
     Mono<Boolean> deleteCustomer(String customerId);
 
 
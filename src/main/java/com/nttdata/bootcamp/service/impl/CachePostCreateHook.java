@@ -0,0 +1,49 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.PostCreateHook;
+import com.nttdata.bootcamp.service.RedisCacheService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Deja el cliente recién creado en Redis para que la primera lectura sea un hit.
+ */
+@Component
+public class CachePostCreateHook implements PostCreateHook {
+
+    private final RedisCacheService redisCacheService;
+
+    @Value("${post-create.cache.timeout-ms}")
+    private long timeoutMs;
+
+    @Value("${post-create.cache.failure-policy}")
+    private FailurePolicy failurePolicy;
+
+    public CachePostCreateHook(RedisCacheService redisCacheService) {
+        this.redisCacheService = redisCacheService;
+    }
+
+    @Override
+    public String name() {
+        return "cache";
+    }
+
+    @Override
+    public Duration timeout() {
+        return Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public FailurePolicy failurePolicy() {
+        return failurePolicy;
+    }
+
+    @Override
+    public Mono<Void> apply(Customer customer) {
+        return redisCacheService.storeCustomer(customer).then();
+    }
+}
@@ -0,0 +1,161 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CacheWarmUpService;
+import com.nttdata.bootcamp.service.RedisCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Precarga de la caché tras un despliegue o un flush de Redis. Lee de Mongo con
+ * un cursor (backpressure), agrupa en lotes y escribe cada lote en Redis de forma
+ * concurrente, de modo que Lettuce los envía en pipeline por la misma conexión.
+ */
+@Service
+public class CacheWarmUpServiceImpl implements CacheWarmUpService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CacheWarmUpServiceImpl.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final RedisCacheService redisCacheService;
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+
+    private final AtomicBoolean ready = new AtomicBoolean(false);
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong loadedCount = new AtomicLong();
+    private volatile String lastError;
+
+    @Value("${cache.warmup.enabled}")
+    private boolean enabled;
+
+    // Tamaño del hot-set: los N clientes modificados más recientemente
+    @Value("${cache.warmup.size}")
+    private int warmUpSize;
+
+    // Si se define, se precargan estos DNIs en lugar de los más recientes
+    @Value("${cache.warmup.hot-dnis:}")
+    private List<String> hotDnis;
+
+    @Value("${cache.warmup.batch-size}")
+    private int batchSize;
+
+    @Value("${cache.warmup.max-batches-per-second}")
+    private int maxBatchesPerSecond;
+
+    @Value("${cache.warmup.marker-key}")
+    private String markerKey;
+
+    public CacheWarmUpServiceImpl(ReactiveMongoTemplate mongoTemplate,
+                                  RedisCacheService redisCacheService,
+                                  ReactiveStringRedisTemplate stringRedisTemplate) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisCacheService = redisCacheService;
+        this.stringRedisTemplate = stringRedisTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (!enabled) {
+            ready.set(true);
+            return;
+        }
+        warmUp().subscribe();
+    }
+
+    /**
+     * Si el marcador desapareció, Redis fue vaciado (flush o failover): se vuelve a precargar.
+     */
+    @Scheduled(fixedDelayString = "${cache.warmup.check-interval-ms}",
+            initialDelayString = "${cache.warmup.check-interval-ms}")
+    public void rewarmAfterFlush() {
+        if (!enabled || !ready.get() || running.get()) {
+            return;
+        }
+        stringRedisTemplate.hasKey(markerKey)
+                .filter(exists -> !exists)
+                .doOnNext(missing -> LOGGER.info("Marcador de warm-up ausente en Redis, se vuelve a precargar la caché"))
+                .flatMap(missing -> warmUp())
+                .subscribe(count -> { }, e -> LOGGER.warn("Error verificando el warm-up: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Long> warmUp() {
+        if (!running.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        long start = System.currentTimeMillis();
+        Duration batchPeriod = Duration.ofMillis(1000L / Math.max(1, maxBatchesPerSecond));
+
+        return hotSet()
+                .buffer(batchSize)
+                .delayElements(batchPeriod)
+                .concatMap(batch -> Flux.fromIterable(batch)
+                        .flatMap(customer -> redisCacheService.storeCustomer(customer)
+                                .onErrorResume(e -> Mono.empty()), batchSize)
+                        .count())
+                .reduce(0L, Long::sum)
+                .flatMap(count -> stringRedisTemplate.opsForValue()
+                        .set(markerKey, String.valueOf(System.currentTimeMillis()))
+                        .thenReturn(count))
+                .doOnNext(count -> {
+                    loadedCount.set(count);
+                    lastError = null;
+                    LOGGER.info("Warm-up de caché completado: {} clientes en {} ms",
+                            count, System.currentTimeMillis() - start);
+                })
+                .doOnError(e -> {
+                    lastError = e.getMessage();
+                    LOGGER.warn("Warm-up de caché fallido, se continúa con la caché fría: {}", e.getMessage());
+                })
+                // La caché es una optimización: un fallo no debe bloquear el readiness para siempre
+                .onErrorResume(e -> Mono.just(0L))
+                .doFinally(signal -> {
+                    running.set(false);
+                    ready.set(true);
+                });
+    }
+
+    private Flux<Customer> hotSet() {
+        Query query;
+        if (hotDnis != null && !hotDnis.isEmpty()) {
+            query = new Query(Criteria.where("dni").in(hotDnis).and("deletedAt").is(null));
+        } else {
+            query = new Query(Criteria.where("deletedAt").is(null))
+                    .with(Sort.by(Sort.Direction.DESC, "modificationDate"))
+                    .limit(warmUpSize);
+        }
+        return mongoTemplate.find(query.cursorBatchSize(batchSize), Customer.class);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready.get();
+    }
+
+    @Override
+    public long getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+}
@@ -0,0 +1,359 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.CustomerChange;
+import com.nttdata.bootcamp.service.CustomerArchiveService;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import com.nttdata.bootcamp.service.RedisCacheService;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Archivado por capas: los clientes INACTIVE sin cambios durante archive.inactive-days
+ * pasan de customer a customer_archive, así la colección caliente y sus índices se
+ * mantienen del tamaño de la cartera activa. Cada lote se copia primero (upsert por _id,
+ * idempotente si el job se corta) y luego se borra de customer con el mismo filtro, de modo
+ * que un cliente reactivado entre ambos pasos se queda en la capa caliente. Un cliente
+ * archivado vuelve a customer (restore) cuando se lo actualiza, borra o da de alta otra vez.
+ */
+@Service
+public class CustomerArchiveServiceImpl implements CustomerArchiveService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerArchiveServiceImpl.class);
+
+    public static final String ARCHIVE_COLLECTION = "customer_archive";
+    // Mismo orden que Mongo para (dni, _id): DNI nulo primero; los ObjectId en hex ordenan igual que en BSON
+    private static final Comparator<Customer> BY_DNI_AND_ID = Comparator
+            .comparing(Customer::getDni, Comparator.nullsFirst(Comparator.<String>naturalOrder()))
+            .thenComparing(Customer::getId, Comparator.nullsFirst(Comparator.<String>naturalOrder()));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final RedisCacheService redisCacheService;
+    private final CustomerHistoryService customerHistoryService;
+    private final CustomerWriteBehindService customerWriteBehindService;
+    private final DependencyGuard dependencyGuard;
+    private final MeterRegistry meterRegistry;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    // colección -> (métrica de collStats -> valor)
+    private final Map<String, Map<String, AtomicLong>> collectionStats = new LinkedHashMap<>();
+
+    @Value("${archive.enabled}")
+    private boolean enabled;
+
+    @Value("${archive.inactive-days}")
+    private long inactiveDays;
+
+    @Value("${archive.batch-size}")
+    private int batchSize;
+
+    // Pausa entre lotes para no saturar el primario
+    @Value("${archive.batch-delay-ms}")
+    private long batchDelayMs;
+
+    @Value("${archive.max-per-run}")
+    private long maxPerRun;
+
+    public CustomerArchiveServiceImpl(ReactiveMongoTemplate mongoTemplate, RedisCacheService redisCacheService,
+                                      CustomerHistoryService customerHistoryService,
+                                      CustomerWriteBehindService customerWriteBehindService,
+                                      DependencyGuard dependencyGuard, MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.redisCacheService = redisCacheService;
+        this.customerHistoryService = customerHistoryService;
+        this.customerWriteBehindService = customerWriteBehindService;
+        this.dependencyGuard = dependencyGuard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * mongo.collection.* con tag collection: documentos, tamaño de datos sin comprimir
+     * (working set), tamaño en disco y tamaño total de índices, de customer y customer_archive.
+     */
+    @PostConstruct
+    public void registerMetrics() {
+        for (String collection : new String[]{mongoTemplate.getCollectionName(Customer.class), ARCHIVE_COLLECTION}) {
+            Map<String, AtomicLong> stats = new LinkedHashMap<>();
+            stats.put("count", gauge("mongo.collection.documents", collection, "Documentos de la colección", null));
+            stats.put("size", gauge("mongo.collection.data.size", collection, "Datos sin comprimir", "bytes"));
+            stats.put("storageSize", gauge("mongo.collection.storage.size", collection, "Tamaño en disco", "bytes"));
+            stats.put("totalIndexSize", gauge("mongo.collection.index.size", collection, "Todos los índices", "bytes"));
+            collectionStats.put(collection, stats);
+        }
+    }
+
+    @Scheduled(cron = "${archive.cron}")
+    public void scheduledArchive() {
+        if (!enabled) {
+            return;
+        }
+        archiveInactive().subscribe(
+                count -> { },
+                e -> LOGGER.warn("Error archivando clientes inactivos: {}", e.getMessage()));
+    }
+
+    @Scheduled(fixedDelayString = "${archive.stats.refresh-ms}", initialDelayString = "${archive.stats.refresh-ms}")
+    public void scheduledStatsRefresh() {
+        refreshStats().subscribe();
+    }
+
+    @Override
+    public Mono<Long> archiveInactive() {
+        if (!running.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        Date cutoff = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(inactiveDays));
+        AtomicLong archived = new AtomicLong();
+        Set<Object> skipped = ConcurrentHashMap.newKeySet();
+        String hot = mongoTemplate.getCollectionName(Customer.class);
+
+        return refreshStats()
+                .then(Mono.fromRunnable(() -> logStats("antes")))
+                // Se sigue mientras el lote venga completo, con pausa entre lotes y tope por ejecución
+                .then(archiveBatch(cutoff, archived, skipped)
+                        .expand(batch -> batch.getT1() >= batchSize && archived.get() < maxPerRun
+                                ? archiveBatch(cutoff, archived, skipped).delaySubscription(Duration.ofMillis(batchDelayMs))
+                                : Mono.empty())
+                        .map(Tuple2::getT2)
+                        .reduce(0L, Long::sum))
+                .flatMap(total -> refreshStats()
+                        .then(Mono.fromRunnable(() -> logStats("después")))
+                        .thenReturn(total))
+                .doOnSuccess(total -> LOGGER.info("Clientes inactivos archivados de {} a {}: {}",
+                        hot, ARCHIVE_COLLECTION, total))
+                .doFinally(signal -> running.set(false));
+    }
+
+    @Override
+    public Mono<Customer> findArchivedByDni(String dni) {
+        Query query = Query.query(Criteria.where("dni").is(dni).and("deletedAt").is(null))
+                .with(Sort.by(Sort.Order.desc("typeCustomer"), Sort.Order.asc("id")));
+        return dependencyGuard.mongo(mongoTemplate.findOne(query, Customer.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Mono<Customer> findArchivedByRuc(String ruc) {
+        return dependencyGuard.mongo(mongoTemplate.findOne(
+                Query.query(Criteria.where("ruc").is(ruc).and("deletedAt").is(null)), Customer.class, ARCHIVE_COLLECTION));
+    }
+
+    @Override
+    public Flux<Customer> withArchived(Flux<Customer> hot, Query query) {
+        return Flux.mergeComparing(BY_DNI_AND_ID, hot, mongoTemplate.find(query, Customer.class, ARCHIVE_COLLECTION))
+                .distinctUntilChanged(Customer::getId);
+    }
+
+    /**
+     * Inserta en customer solo si no está ($setOnInsert), así dos restauraciones simultáneas no
+     * pisan una actualización hecha entre ambas. modificationDate se fija siempre: si el job de
+     * archivado copió el cliente y aún no lo borró de customer, su borrado condicional
+     * (INACTIVE y sin cambios) ya no lo alcanza y el cliente se queda en la capa caliente.
+     */
+    @Override
+    public Mono<Customer> restore(Customer archived) {
+        String hot = mongoTemplate.getCollectionName(Customer.class);
+        // Mismo mapeo que Spring aplica al @Id String de Customer
+        Object id = ObjectId.isValid(archived.getId()) ? new ObjectId(archived.getId()) : archived.getId();
+        Date now = new Date();
+
+        return dependencyGuard.mongo(mongoTemplate.findOne(Query.query(Criteria.where("_id").is(id)),
+                        Document.class, ARCHIVE_COLLECTION))
+                .flatMap(document -> {
+                    Document fields = new Document(document);
+                    fields.remove("_id");
+                    fields.remove("archivedAt");
+                    fields.remove("modificationDate");
+                    Document update = new Document("$setOnInsert", fields)
+                            .append("$set", new Document("modificationDate", now));
+                    return mongoTemplate.getCollection(hot)
+                            .flatMap(collection -> Mono.from(collection.updateOne(Filters.eq("_id", id), update,
+                                    new UpdateOptions().upsert(true))))
+                            .then(mongoTemplate.remove(Query.query(Criteria.where("_id").is(id)), ARCHIVE_COLLECTION))
+                            .then(mongoTemplate.findById(id, Customer.class, hot));
+                })
+                .doOnNext(restored -> {
+                    customerHistoryService.record(new CustomerChange(restored.getDni(), "tier", ARCHIVE_COLLECTION,
+                            "customer", now, "RESTORE"));
+                    LOGGER.info("Cliente restaurado desde {}: DNI={}", ARCHIVE_COLLECTION, restored.getDni());
+                });
+    }
+
+    /**
+     * Emite (leídos, archivados) del lote. Los clientes con una actualización write-behind
+     * pendiente no se mueven (al volcarse no encontrarían el documento): se saltan en esta
+     * ejecución y se reconsideran en la siguiente.
+     */
+    private Mono<Tuple2<Integer, Long>> archiveBatch(Date cutoff, AtomicLong archived, Set<Object> skipped) {
+        String hot = mongoTemplate.getCollectionName(Customer.class);
+        Criteria candidates = skipped.isEmpty()
+                ? inactiveSince(cutoff)
+                : new Criteria().andOperator(inactiveSince(cutoff), Criteria.where("_id").nin(skipped));
+        Query batch = new Query(candidates).limit(batchSize);
+
+        // Documentos sin mapear: se conservan todos los campos tal cual
+        return mongoTemplate.find(batch, Document.class, hot)
+                .collectList()
+                .filter(documents -> !documents.isEmpty())
+                .flatMap(read -> withoutPendingUpdates(read, skipped).map(documents -> Tuples.of(read.size(), documents)))
+                .flatMap(batchRead -> {
+                    int read = batchRead.getT1();
+                    List<Document> documents = batchRead.getT2();
+                    if (documents.isEmpty()) {
+                        return Mono.just(Tuples.of(read, 0L));
+                    }
+                    return copyToArchive(documents)
+                            .then(mongoTemplate.remove(Query.query(Criteria.where("_id").in(ids(documents))
+                                    .andOperator(inactiveSince(cutoff))), hot))
+                            .flatMap(result -> result.getDeletedCount() == documents.size()
+                                    ? Mono.just(documents)
+                                    : keepOnlyRemoved(documents))
+                            .flatMap(moved -> afterMove(moved)
+                                    .then(Mono.fromCallable(() -> {
+                                        archived.addAndGet(moved.size());
+                                        return Tuples.of(read, (long) moved.size());
+                                    })));
+                })
+                .defaultIfEmpty(Tuples.of(0, 0L));
+    }
+
+    private Mono<List<Document>> withoutPendingUpdates(List<Document> documents, Set<Object> skipped) {
+        Map<String, Object> byId = new LinkedHashMap<>();
+        documents.forEach(document -> byId.put(String.valueOf(document.get("_id")), document.get("_id")));
+        return customerWriteBehindService.pendingIds(byId.keySet())
+                .map(pending -> {
+                    pending.forEach(id -> skipped.add(byId.get(id)));
+                    return documents.stream()
+                            .filter(document -> !pending.contains(String.valueOf(document.get("_id"))))
+                            .collect(Collectors.toList());
+                });
+    }
+
+    private Mono<Void> copyToArchive(List<Document> documents) {
+        Date archivedAt = new Date();
+        List<WriteModel<Document>> models = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            Document copy = new Document(document).append("archivedAt", archivedAt);
+            models.add(new ReplaceOneModel<>(Filters.eq("_id", document.get("_id")), copy,
+                    new ReplaceOptions().upsert(true)));
+        }
+        return mongoTemplate.getCollection(ARCHIVE_COLLECTION)
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .then();
+    }
+
+    /**
+     * Los que siguen en customer (reactivados durante el lote) se quitan del archivo,
+     * para que cada cliente viva en una sola capa.
+     */
+    private Mono<List<Document>> keepOnlyRemoved(List<Document> documents) {
+        Query remaining = Query.query(Criteria.where("_id").in(ids(documents)));
+        remaining.fields().include("_id");
+        return mongoTemplate.find(remaining, Document.class, mongoTemplate.getCollectionName(Customer.class))
+                .map(document -> document.get("_id"))
+                .collect(Collectors.toSet())
+                .flatMap(kept -> mongoTemplate.remove(Query.query(Criteria.where("_id").in(kept)), ARCHIVE_COLLECTION)
+                        .thenReturn(documents.stream()
+                                .filter(document -> !kept.contains(document.get("_id")))
+                                .collect(Collectors.toList())));
+    }
+
+    // La caché no debe seguir sirviendo ni aceptando actualizaciones de un cliente archivado
+    private Mono<Void> afterMove(List<Document> moved) {
+        if (moved.isEmpty()) {
+            return Mono.empty();
+        }
+        Date now = new Date();
+        List<Customer> customers = moved.stream()
+                .map(document -> mongoTemplate.getConverter().read(Customer.class, document))
+                .collect(Collectors.toList());
+        customers.forEach(customer -> customerHistoryService.record(new CustomerChange(customer.getDni(), "tier",
+                "customer", ARCHIVE_COLLECTION, now, "ARCHIVE")));
+        return redisCacheService.evictCustomers(customers)
+                .onErrorResume(e -> {
+                    LOGGER.warn("No se pudo invalidar la caché de {} clientes archivados: {}", customers.size(), e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private static Criteria inactiveSince(Date cutoff) {
+        return Criteria.where("status").is(Constant.CUSTOMER_INACTIVE)
+                .and("modificationDate").lt(cutoff)
+                .and("deletedAt").is(null);
+    }
+
+    private static Set<Object> ids(List<Document> documents) {
+        Set<Object> ids = new HashSet<>();
+        documents.forEach(document -> ids.add(document.get("_id")));
+        return ids;
+    }
+
+    private Mono<Void> refreshStats() {
+        return Flux.fromIterable(collectionStats.entrySet())
+                .concatMap(entry -> mongoTemplate.executeCommand(new Document("collStats", entry.getKey()))
+                        .doOnNext(stats -> entry.getValue().forEach((field, value) -> {
+                            Object number = stats.get(field);
+                            value.set(number instanceof Number ? ((Number) number).longValue() : 0L);
+                        }))
+                        .onErrorResume(e -> {
+                            LOGGER.debug("collStats de {} no disponible: {}", entry.getKey(), e.getMessage());
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    private void logStats(String moment) {
+        collectionStats.forEach((collection, stats) -> LOGGER.info(
+                "{} {} del archivado: {} documentos, datos {} bytes, índices {} bytes", collection, moment,
+                stats.get("count").get(), stats.get("size").get(), stats.get("totalIndexSize").get()));
+    }
+
+    private AtomicLong gauge(String name, String collection, String description, String unit) {
+        AtomicLong value = new AtomicLong();
+        Gauge.builder(name, value, AtomicLong::get)
+                .tag("collection", collection)
+                .description(description)
+                .baseUnit(unit)
+                .register(meterRegistry);
+        return value;
+    }
+}
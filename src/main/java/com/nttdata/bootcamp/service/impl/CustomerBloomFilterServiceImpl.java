@@ -0,0 +1,263 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CustomerBloomFilterService;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import com.nttdata.bootcamp.util.ScalableBloomFilter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Filtro de DNIs/RUCs conocidos, compartido en Redis por todas las instancias (ver
+ * ScalableBloomFilter). Cada alta se registra antes de insertarse en Mongo, también las
+ * del generador, así que un negativo es definitivo: findByDni, findByRuc y el control de
+ * duplicados del alta responden sin consultar Mongo. Mientras el filtro no existe (primer
+ * arranque, Redis vaciado) o Redis no responde, todo se consulta a Mongo como antes.
+ * Una reconstrucción periódica desde customer y customer_archive, de una instancia por vez,
+ * recupera lo insertado por fuera del servicio.
+ */
+@Service
+public class CustomerBloomFilterServiceImpl implements CustomerBloomFilterService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerBloomFilterServiceImpl.class);
+    private static final String DNI_PREFIX = "dni:";
+    private static final String RUC_PREFIX = "ruc:";
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final DependencyGuard dependencyGuard;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean building = new AtomicBoolean(false);
+    private final AtomicLong lastRebuild = new AtomicLong();
+    private final AtomicReference<ScalableBloomFilter.Stats> stats = new AtomicReference<>();
+    // Altas que no llegaron a Redis: mientras haya alguna, los negativos de esta instancia no son definitivos
+    private final Queue<String> unsynced = new ConcurrentLinkedQueue<>();
+    private ScalableBloomFilter filter;
+    private Counter falseNegatives;
+    private Counter negatives;
+
+    @Value("${bloom.enabled}")
+    private boolean enabled;
+
+    @Value("${bloom.key}")
+    private String key;
+
+    @Value("${bloom.expected-insertions}")
+    private long expectedInsertions;
+
+    @Value("${bloom.false-positive-rate}")
+    private double falsePositiveRate;
+
+    @Value("${bloom.max-memory-bytes}")
+    private long maxMemoryBytes;
+
+    @Value("${bloom.rebuild-lock-ms}")
+    private long rebuildLockMs;
+
+    @Value("${bloom.rebuild-batch-size}")
+    private int rebuildBatchSize;
+
+    public CustomerBloomFilterServiceImpl(ReactiveMongoTemplate mongoTemplate,
+                                          ReactiveStringRedisTemplate stringRedisTemplate,
+                                          DependencyGuard dependencyGuard,
+                                          MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.dependencyGuard = dependencyGuard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        filter = new ScalableBloomFilter(stringRedisTemplate, key, expectedInsertions, falsePositiveRate, maxMemoryBytes);
+        Gauge.builder("customer.bloom.memory.bytes", stats, s -> s.get() == null ? 0 : s.get().getMemoryBytes())
+                .description("Memoria en Redis de las etapas en uso del Bloom filter de DNI/RUC").register(meterRegistry);
+        Gauge.builder("customer.bloom.insertions", stats, s -> s.get() == null ? 0 : s.get().getInsertions())
+                .register(meterRegistry);
+        Gauge.builder("customer.bloom.stages", stats, s -> s.get() == null ? 0 : s.get().getStages())
+                .register(meterRegistry);
+        Gauge.builder("customer.bloom.expected.fpp", stats, s -> s.get() == null ? 0 : s.get().getExpectedFalsePositiveRate())
+                .description("Tasa de falsos positivos estimada con el llenado actual").register(meterRegistry);
+        Gauge.builder("customer.bloom.configured.fpp", filter, ScalableBloomFilter::getConfiguredFalsePositiveRate)
+                .register(meterRegistry);
+        negatives = Counter.builder("customer.bloom.negatives")
+                .description("Consultas de DNI/RUC respondidas por el Bloom filter sin ir a Mongo")
+                .register(meterRegistry);
+        falseNegatives = Counter.builder("customer.bloom.false.negatives")
+                .description("Clientes encontrados en Mongo que el Bloom filter no tenía")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        // Solo si no existe: con varias instancias el filtro ya construido se comparte
+        filter.stats()
+                .doOnNext(stats::set)
+                .hasElement()
+                .subscribe(exists -> {
+                    if (!exists) {
+                        rebuild();
+                    }
+                }, e -> LOGGER.warn("No se pudo leer el Bloom filter de Redis: {}", e.getMessage()));
+    }
+
+    @Scheduled(fixedDelayString = "${bloom.rebuild-interval-ms}", initialDelayString = "${bloom.rebuild-interval-ms}")
+    public void rebuild() {
+        if (!enabled || !building.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        lastRebuild.set(start);
+        String lockKey = key + ":rebuild-lock";
+        String owner = UUID.randomUUID().toString();
+
+        Query query = new Query();
+        query.fields().include("dni", "ruc");
+        // Los archivados también: findByDni y el alta los buscan en la capa fría
+        Mono<Long> fill = filter.startRebuild()
+                .thenMany(mongoTemplate.find(query.cursorBatchSize(5_000), Customer.class)
+                        .concatWith(mongoTemplate.find(query, Customer.class, CustomerArchiveServiceImpl.ARCHIVE_COLLECTION)))
+                .buffer(rebuildBatchSize)
+                .concatMap(customers -> filter.putAllRebuilding(values(customers)).thenReturn((long) customers.size()))
+                .reduce(0L, Long::sum)
+                .flatMap(count -> filter.finishRebuild().thenReturn(count))
+                .onErrorResume(e -> filter.abortRebuild().onErrorResume(ignored -> Mono.empty()).then(Mono.error(e)));
+
+        // Una sola instancia reconstruye: dos llenando la misma clave de trabajo se pisarían al renombrarla
+        stringRedisTemplate.opsForValue().setIfAbsent(lockKey, owner, Duration.ofMillis(rebuildLockMs))
+                .filter(Boolean::booleanValue)
+                .flatMap(locked -> fill
+                        .flatMap(count -> filter.stats().doOnNext(stats::set).thenReturn(count))
+                        .doFinally(signal -> stringRedisTemplate.opsForValue().get(lockKey)
+                                .filter(owner::equals)
+                                .flatMap(mine -> stringRedisTemplate.delete(lockKey))
+                                .subscribe()))
+                .doFinally(signal -> building.set(false))
+                .subscribe(count -> LOGGER.info("Bloom filter reconstruido: {} clientes, {} bytes, fpp estimada {} en {} ms",
+                                count, stats.get() == null ? 0 : stats.get().getMemoryBytes(),
+                                stats.get() == null ? 0 : stats.get().getExpectedFalsePositiveRate(),
+                                System.currentTimeMillis() - start),
+                        e -> LOGGER.warn("No se pudo reconstruir el Bloom filter, se consulta a Mongo: {}", e.getMessage()));
+    }
+
+    /**
+     * Refresca las métricas y reintenta las altas que no llegaron a Redis.
+     */
+    @Scheduled(fixedDelayString = "${bloom.stats-refresh-ms}", initialDelayString = "${bloom.stats-refresh-ms}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        List<String> pending = new ArrayList<>(unsynced);
+        Mono<Long> retry = pending.isEmpty()
+                ? Mono.just(0L)
+                : dependencyGuard.redis(filter.putAll(pending))
+                        .doOnNext(added -> unsynced.removeAll(pending));
+        retry.then(filter.stats())
+                .subscribe(stats::set, e -> LOGGER.debug("No se pudo refrescar el Bloom filter: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Boolean> mightContainDni(String dni) {
+        return mightContain(dni, DNI_PREFIX);
+    }
+
+    @Override
+    public Mono<Boolean> mightContainRuc(String ruc) {
+        return mightContain(ruc, RUC_PREFIX);
+    }
+
+    @Override
+    public Mono<Void> put(Customer customer) {
+        return putAll(Collections.singletonList(customer));
+    }
+
+    @Override
+    public Mono<Void> putAll(Collection<Customer> customers) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        List<String> values = values(customers);
+        return dependencyGuard.redis(filter.putAll(values))
+                .onErrorResume(e -> {
+                    LOGGER.warn("No se pudo registrar {} valores en el Bloom filter, se reintenta: {}",
+                            values.size(), e.getMessage());
+                    unsynced.addAll(values);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    @Override
+    public Mono<Void> reconcile(Customer customer) {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        falseNegatives.increment();
+        return put(customer);
+    }
+
+    private Mono<Boolean> mightContain(String value, String prefix) {
+        if (!enabled || value == null || !unsynced.isEmpty()) {
+            return Mono.just(true);
+        }
+        return dependencyGuard.redis(filter.mightContain(prefix + value))
+                .doOnNext(found -> {
+                    if (!found) {
+                        negatives.increment();
+                    }
+                })
+                // Sin filtro en Redis (vaciado o sin construir) se reconstruye; mientras tanto, Mongo
+                .switchIfEmpty(Mono.fromRunnable(this::rebuildIfMissing).thenReturn(true))
+                .onErrorResume(e -> Mono.just(true));
+    }
+
+    // Como mucho un intento por ventana de bloqueo: un fallo de Mongo no dispara una reconstrucción por consulta
+    private void rebuildIfMissing() {
+        if (System.currentTimeMillis() - lastRebuild.get() >= rebuildLockMs) {
+            rebuild();
+        }
+    }
+
+    private static List<String> values(Collection<Customer> customers) {
+        List<String> values = new ArrayList<>(customers.size() * 2);
+        for (Customer customer : customers) {
+            if (customer.getDni() != null) {
+                values.add(DNI_PREFIX + customer.getDni());
+            }
+            if (customer.getRuc() != null) {
+                values.add(RUC_PREFIX + customer.getRuc());
+            }
+        }
+        return values;
+    }
+}
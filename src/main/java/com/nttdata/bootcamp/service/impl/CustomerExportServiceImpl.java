@@ -0,0 +1,312 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.enums.ExportFormat;
+import com.nttdata.bootcamp.service.CustomerArchiveService;
+import com.nttdata.bootcamp.service.CustomerExportService;
+import com.nttdata.bootcamp.util.GzipChunker;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exportación de la cartera leyendo un cursor de Mongo en orden de (DNI, _id), paginado
+ * por clave sobre el índice compuesto. El DNI no es único (varios clientes empresariales
+ * pueden compartirlo): _id desempata y hace exacto el punto de reanudación. Cada cliente
+ * se serializa y se comprime por bloques sin acumular la colección: la memoria queda
+ * acotada al tamaño de bloque. Con los archivados, el cursor de customer_archive se
+ * intercala en el mismo orden, así la reanudación vale para ambas capas.
+ */
+@Service
+public class CustomerExportServiceImpl implements CustomerExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerExportServiceImpl.class);
+
+    private static final String CSV_HEADER = "id,dni,ruc,companyName,typeCustomer,flagVip,flagPyme,name,surName,"
+            + "address,status,phoneNumber,creationDate,modificationDate\n";
+    private static final DateTimeFormatter CSV_DATE = DateTimeFormatter.ISO_LOCAL_DATE.withZone(ZoneOffset.UTC);
+    // Clave de reanudación de cada bloque: dni y _id en Base64 URL separados por ':', que no
+    // pertenece a ese alfabeto; así ningún valor puede correr el corte
+    private static final String KEY_SEPARATOR = ":";
+    private static final Base64.Encoder KEY_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder KEY_DECODER = Base64.getUrlDecoder();
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final ObjectMapper objectMapper;
+    private final CustomerArchiveService customerArchiveService;
+    private final AtomicBoolean fileExportRunning = new AtomicBoolean(false);
+
+    // Bytes sin comprimir por miembro gzip; cada miembro es un punto de reanudación
+    @Value("${export.chunk-bytes}")
+    private int chunkBytes;
+
+    @Value("${export.cursor-batch-size}")
+    private int cursorBatchSize;
+
+    @Value("${export.include-archived}")
+    private boolean includeArchivedByDefault;
+
+    @Value("${export.file.enabled}")
+    private boolean fileExportEnabled;
+
+    @Value("${export.file.dir}")
+    private String exportDir;
+
+    @Value("${export.file.format}")
+    private ExportFormat fileFormat;
+
+    public CustomerExportServiceImpl(ReactiveMongoTemplate mongoTemplate, ObjectMapper objectMapper,
+                                     CustomerArchiveService customerArchiveService) {
+        this.mongoTemplate = mongoTemplate;
+        this.objectMapper = objectMapper;
+        this.customerArchiveService = customerArchiveService;
+    }
+
+    @Override
+    public Flux<DataBuffer> export(ExportFormat format, String fromDni, String fromId, Boolean includeArchived,
+                                   DataBufferFactory bufferFactory) {
+        return chunks(format, fromDni, fromId, includeArchived == null ? includeArchivedByDefault : includeArchived)
+                .map(chunk -> bufferFactory.wrap(chunk.getData()));
+    }
+
+    @Scheduled(cron = "${export.file.cron}")
+    public void scheduledExport() {
+        if (!fileExportEnabled) {
+            return;
+        }
+        exportToFile(fileFormat).subscribe(
+                path -> { },
+                e -> LOGGER.warn("Error en la exportación programada de clientes: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Path> exportToFile(ExportFormat format) {
+        if (!fileExportRunning.compareAndSet(false, true)) {
+            return Mono.error(new IllegalStateException("Ya hay una exportación a archivo en curso"));
+        }
+        long start = System.currentTimeMillis();
+        Path dir = Paths.get(exportDir);
+        String name = "customers-" + LocalDate.now(ZoneOffset.UTC) + "." + format.getExtension() + ".gz";
+        Path target = dir.resolve(name);
+        Path part = dir.resolve(name + ".part");
+        Path checkpoint = dir.resolve(name + ".offset");
+
+        return Mono.using(
+                        () -> PartFile.open(dir, part, checkpoint),
+                        file -> chunks(format, file.resumeDni, file.resumeId, includeArchivedByDefault)
+                                .publishOn(Schedulers.boundedElastic())
+                                .doOnNext(file::write)
+                                .then(Mono.fromCallable(() -> {
+                                    file.channel.force(true);
+                                    return file.position;
+                                })),
+                        PartFile::close)
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(bytes -> {
+                    try {
+                        Files.move(part, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                        Files.deleteIfExists(checkpoint);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    LOGGER.info("Exportación de clientes escrita en {} ({} bytes) en {} ms",
+                            target, bytes, System.currentTimeMillis() - start);
+                    return target;
+                })
+                .doFinally(signal -> fileExportRunning.set(false));
+    }
+
+    private Flux<GzipChunker.Chunk> chunks(ExportFormat format, String fromDni, String fromId, boolean includeArchived) {
+        return Flux.defer(() -> {
+            GzipChunker chunker = new GzipChunker(chunkBytes);
+            if (format == ExportFormat.CSV && fromDni == null) {
+                chunker.append(null, CSV_HEADER.getBytes(StandardCharsets.UTF_8));
+            }
+            Query query = exportQuery(fromDni, fromId);
+            Flux<Customer> hot = mongoTemplate.find(query, Customer.class);
+            Flux<GzipChunker.Chunk> full = (includeArchived ? customerArchiveService.withArchived(hot, query) : hot)
+                    .<GzipChunker.Chunk>handle((customer, sink) -> {
+                        GzipChunker.Chunk chunk;
+                        try {
+                            chunk = chunker.append(resumeKey(customer), serialize(format, customer));
+                        } catch (IOException e) {
+                            sink.error(e);
+                            return;
+                        }
+                        if (chunk != null) {
+                            sink.next(chunk);
+                        }
+                    });
+            return full.concatWith(Mono.fromSupplier(chunker::flush));
+        });
+    }
+
+    private static String resumeKey(Customer customer) {
+        return encodeKeyPart(customer.getDni()) + KEY_SEPARATOR + encodeKeyPart(customer.getId());
+    }
+
+    private static String encodeKeyPart(String value) {
+        return KEY_ENCODER.encodeToString(Objects.toString(value, "").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodeKeyPart(String encoded) {
+        return new String(KEY_DECODER.decode(encoded), StandardCharsets.UTF_8);
+    }
+
+    // Después de (fromDni, fromId): mismo DNI con _id mayor, o DNI mayor. Sin fromId, desde el DNI siguiente
+    private Query exportQuery(String fromDni, String fromId) {
+        Criteria criteria = Criteria.where("deletedAt").is(null);
+        if (fromDni != null && !fromDni.isEmpty()) {
+            if (fromId != null && !fromId.isEmpty()) {
+                if (!ObjectId.isValid(fromId)) {
+                    throw new IllegalArgumentException("fromId no es un ObjectId válido: " + fromId);
+                }
+                criteria.orOperator(
+                        Criteria.where("dni").gt(fromDni),
+                        Criteria.where("dni").is(fromDni).and("_id").gt(new ObjectId(fromId)));
+            } else {
+                criteria.and("dni").gt(fromDni);
+            }
+        }
+        Query query = new Query(criteria);
+        query.with(Sort.by(Sort.Direction.ASC, "dni", "_id"))
+                .cursorBatchSize(cursorBatchSize)
+                .fields().exclude("searchKeys");
+        return query;
+    }
+
+    private byte[] serialize(ExportFormat format, Customer customer) throws IOException {
+        if (format == ExportFormat.CSV) {
+            return csvLine(customer).getBytes(StandardCharsets.UTF_8);
+        }
+        byte[] json = objectMapper.writeValueAsBytes(customer);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private static String csvLine(Customer c) {
+        StringBuilder sb = new StringBuilder(256);
+        List<Object> values = Arrays.asList(c.getId(), c.getDni(), c.getRuc(), c.getCompanyName(),
+                c.getTypeCustomer(), c.getFlagVip(), c.getFlagPyme(), c.getName(), c.getSurName(),
+                c.getAddress(), c.getStatus(), c.getPhoneNumber(), c.getCreationDate(), c.getModificationDate());
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendCsv(sb, values.get(i));
+        }
+        return sb.append('\n').toString();
+    }
+
+    private static void appendCsv(StringBuilder sb, Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value instanceof Date ? CSV_DATE.format(((Date) value).toInstant()) : value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            sb.append(text);
+            return;
+        }
+        sb.append('"').append(text.replace("\"", "\"\"")).append('"');
+    }
+
+    /**
+     * Archivo parcial más su checkpoint (bytes confirmados y DNI/_id del último cliente escrito).
+     */
+    private static final class PartFile {
+        private final FileChannel channel;
+        private final Path checkpoint;
+        private final String resumeDni;
+        private final String resumeId;
+        private long position;
+
+        private PartFile(FileChannel channel, Path checkpoint, long position, String resumeDni, String resumeId) {
+            this.channel = channel;
+            this.checkpoint = checkpoint;
+            this.position = position;
+            this.resumeDni = resumeDni;
+            this.resumeId = resumeId;
+        }
+
+        static PartFile open(Path dir, Path part, Path checkpoint) throws IOException {
+            Files.createDirectories(dir);
+            long position = 0;
+            String resumeDni = null;
+            String resumeId = null;
+            if (Files.exists(part) && Files.exists(checkpoint)) {
+                // Un checkpoint con otro formato (p. ej. solo DNI) no se usa: se reescribe desde cero
+                List<String> lines = Files.readAllLines(checkpoint, StandardCharsets.UTF_8);
+                if (lines.size() == 3 && ObjectId.isValid(lines.get(2))) {
+                    position = Long.parseLong(lines.get(0));
+                    resumeDni = lines.get(1);
+                    resumeId = lines.get(2);
+                    LOGGER.info("Reanudando exportación {} desde DNI {} / _id {} ({} bytes)",
+                            part, resumeDni, resumeId, position);
+                }
+            }
+            FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Descarta cualquier bloque escrito después del último checkpoint
+            channel.truncate(position);
+            return new PartFile(channel, checkpoint, position, resumeDni, resumeId);
+        }
+
+        void write(GzipChunker.Chunk chunk) {
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(chunk.getData());
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                if (chunk.getLastKey() != null) {
+                    channel.force(false);
+                    String[] key = chunk.getLastKey().split(KEY_SEPARATOR, 2);
+                    Files.write(checkpoint, Arrays.asList(String.valueOf(position),
+                            decodeKeyPart(key[0]), decodeKeyPart(key[1])), StandardCharsets.UTF_8);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                LOGGER.warn("Error cerrando {}: {}", checkpoint, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.CustomerChange;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Historial de cambios de clientes, solo inserciones. El camino de actualización
+ * solo encola en memoria (cola acotada, segura para varios productores); un único
+ * escritor la vacía por lotes, al completarse uno o cada intervalo, en una colección
+ * time-series (o capped) indexada por DNI y fecha. Si Mongo no responde, los lotes se
+ * reintentan y, agotados los reintentos, se descartan: la auditoría nunca frena ni hace
+ * fallar una actualización.
+ */
+@Service
+public class CustomerHistoryServiceImpl implements CustomerHistoryService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerHistoryServiceImpl.class);
+
+    private static final int MAX_QUERY_LIMIT = 1000;
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final DependencyGuard dependencyGuard;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong pending = new AtomicLong();
+    private final CountDownLatch drained = new CountDownLatch(1);
+
+    private ArrayBlockingQueue<CustomerChange> queue;
+    // Avisos de lote completo: si el escritor está ocupado se descartan, al terminar vuelve a mirar la cola
+    private final Sinks.Many<Boolean> wakeups = Sinks.many().multicast().directBestEffort();
+    private final Sinks.One<Boolean> stopSignal = Sinks.one();
+    private Disposable subscription;
+    private Counter dropped;
+    private DistributionSummary batchSizes;
+
+    @Value("${customer-history.enabled}")
+    private boolean enabled;
+
+    // timeseries (MongoDB 5.0+) | capped
+    @Value("${customer-history.storage}")
+    private String storage;
+
+    @Value("${customer-history.capped-size-bytes}")
+    private long cappedSizeBytes;
+
+    @Value("${customer-history.queue-capacity}")
+    private int queueCapacity;
+
+    @Value("${customer-history.batch-size}")
+    private int batchSize;
+
+    @Value("${customer-history.flush-interval-ms}")
+    private long flushIntervalMs;
+
+    @Value("${customer-history.max-retries}")
+    private int maxRetries;
+
+    @Value("${customer-history.shutdown-timeout-ms}")
+    private long shutdownTimeoutMs;
+
+    public CustomerHistoryServiceImpl(ReactiveMongoTemplate mongoTemplate, DependencyGuard dependencyGuard,
+                                      MeterRegistry meterRegistry) {
+        this.mongoTemplate = mongoTemplate;
+        this.dependencyGuard = dependencyGuard;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        // Lo encolado antes de arrancar el volcado queda en la cola hasta ApplicationReadyEvent
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        Gauge.builder("customer.history.pending", pending, AtomicLong::get)
+                .description("Cambios de clientes encolados aún no escritos en Mongo")
+                .register(meterRegistry);
+        dropped = Counter.builder("customer.history.dropped")
+                .description("Cambios de clientes descartados (cola llena o Mongo caído)")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("customer.history.batch.size")
+                .description("Cambios por inserción en lote")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = ensureCollection()
+                .thenMany(Flux.defer(this::writeLoop))
+                // Al detenerse se escribe lo que quede en la cola
+                .concatWith(Flux.defer(() -> drain(true)))
+                .doFinally(signal -> drained.countDown())
+                .subscribe(
+                        count -> LOGGER.debug("Historial: {} cambios escritos", count),
+                        e -> LOGGER.error("Escritura del historial de clientes detenida: {}", e.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription == null) {
+            return;
+        }
+        // Corta el bucle de escritura (termina el lote en curso) y espera al volcado final
+        stopSignal.tryEmitValue(Boolean.TRUE);
+        try {
+            if (!drained.await(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Historial: {} cambios sin escribir al detener la aplicación", pending.get());
+                subscription.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void record(CustomerChange change) {
+        if (!enabled) {
+            return;
+        }
+        pending.incrementAndGet();
+        if (!queue.offer(change)) {
+            pending.decrementAndGet();
+            dropped.increment();
+            LOGGER.debug("Historial: cambio de {} descartado (cola llena)", change.getDni());
+            return;
+        }
+        // Un aviso que falla por otro emisor concurrente no se reintenta: ya hay uno en curso
+        if (queue.size() >= batchSize) {
+            wakeups.tryEmitNext(Boolean.TRUE);
+        }
+    }
+
+    @Override
+    public Flux<CustomerChange> findByDni(String dni, Date from, Date to, int limit) {
+        Criteria criteria = Criteria.where("dni").is(dni);
+        if (from != null || to != null) {
+            Criteria changedAt = criteria.and("changedAt");
+            if (from != null) {
+                changedAt.gte(from);
+            }
+            if (to != null) {
+                changedAt.lt(to);
+            }
+        }
+        Query query = Query.query(criteria)
+                .with(Sort.by(Sort.Direction.DESC, "changedAt"))
+                .limit(Math.max(1, Math.min(limit, MAX_QUERY_LIMIT)));
+        return dependencyGuard.mongo(mongoTemplate.find(query, CustomerChange.class));
+    }
+
+    /**
+     * Un único escritor: cada aviso escribe los lotes completos y cada intervalo todo lo
+     * pendiente. Los avisos y ticks que llegan mientras escribe se descartan (la cola conserva
+     * los cambios), así el intervalo nunca falla por falta de demanda. Un error inesperado
+     * reinicia el bucle en vez de dejar el historial detenido.
+     */
+    private Flux<Integer> writeLoop() {
+        return Flux.merge(
+                        Flux.interval(Duration.ofMillis(flushIntervalMs)).map(tick -> Boolean.TRUE),
+                        wakeups.asFlux().map(wakeup -> Boolean.FALSE))
+                .takeUntilOther(stopSignal.asMono())
+                .onBackpressureDrop()
+                .publishOn(Schedulers.boundedElastic(), 1)
+                .concatMap(this::drain, 1)
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> LOGGER.warn("Reiniciando la escritura del historial: {}",
+                                signal.failure().getMessage())));
+    }
+
+    private Flux<Integer> drain(boolean all) {
+        return Flux.<List<CustomerChange>>generate(batches -> {
+                    if (!all && queue.size() < batchSize) {
+                        batches.complete();
+                        return;
+                    }
+                    List<CustomerChange> batch = new ArrayList<>(batchSize);
+                    queue.drainTo(batch, batchSize);
+                    if (batch.isEmpty()) {
+                        batches.complete();
+                    } else {
+                        batches.next(batch);
+                    }
+                })
+                .concatMap(this::writeBatch, 1);
+    }
+
+    private Mono<Integer> writeBatch(List<CustomerChange> changes) {
+        return mongoTemplate.insert(changes, CustomerChange.class)
+                .then(Mono.just(changes.size()))
+                .retryWhen(Retry.backoff(maxRetries, Duration.ofMillis(200)))
+                .doOnNext(batchSizes::record)
+                .onErrorResume(e -> {
+                    LOGGER.warn("Historial: lote de {} cambios descartado: {}", changes.size(), e.getMessage());
+                    dropped.increment(changes.size());
+                    return Mono.just(0);
+                })
+                .doFinally(signal -> pending.addAndGet(-changes.size()));
+    }
+
+    /**
+     * Crea la colección si no existe y el índice (dni, changedAt). Otra instancia puede
+     * crearla al mismo tiempo, por eso el error de creación solo se registra.
+     */
+    private Mono<Void> ensureCollection() {
+        return mongoTemplate.collectionExists(CustomerChange.class)
+                .filter(exists -> !exists)
+                .flatMap(missing -> mongoTemplate.createCollection(CustomerChange.class, collectionOptions()))
+                .doOnNext(collection -> LOGGER.info("Colección de historial creada ({})", storage))
+                .then(mongoTemplate.indexOps(CustomerChange.class)
+                        .ensureIndex(new Index().on("dni", Sort.Direction.ASC).on("changedAt", Sort.Direction.DESC)))
+                .doOnNext(name -> LOGGER.info("Índice verificado en customer_history: {}", name))
+                .onErrorResume(e -> {
+                    LOGGER.warn("No se pudo preparar la colección de historial: {}", e.getMessage());
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private CollectionOptions collectionOptions() {
+        if ("capped".equalsIgnoreCase(storage)) {
+            return CollectionOptions.empty().capped().size(cappedSizeBytes);
+        }
+        return CollectionOptions.empty().timeSeries(CollectionOptions.TimeSeriesOptions.timeSeries("changedAt")
+                .metaField("dni")
+                .granularity(Granularity.HOURS));
+    }
+}
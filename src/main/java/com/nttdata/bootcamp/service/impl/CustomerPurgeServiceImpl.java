@@ -0,0 +1,85 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CustomerPurgeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Purga asíncrona de tombstones: el borrado del endpoint solo marca deletedAt y
+ * este job elimina los documentos por lotes de _id, fuera del camino de la petición.
+ */
+@Service
+public class CustomerPurgeServiceImpl implements CustomerPurgeService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerPurgeServiceImpl.class);
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    @Value("${tombstone.purge.enabled}")
+    private boolean enabled;
+
+    @Value("${tombstone.purge.grace-seconds}")
+    private long graceSeconds;
+
+    @Value("${tombstone.purge.batch-size}")
+    private int batchSize;
+
+    public CustomerPurgeServiceImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Scheduled(fixedDelayString = "${tombstone.purge.interval-ms}",
+            initialDelayString = "${tombstone.purge.interval-ms}")
+    public void scheduledPurge() {
+        if (!enabled) {
+            return;
+        }
+        purgeTombstones().subscribe(
+                count -> {
+                    if (count > 0) {
+                        LOGGER.info("Tombstones de clientes purgados: {}", count);
+                    }
+                },
+                e -> LOGGER.warn("Error purgando tombstones de clientes: {}", e.getMessage()));
+    }
+
+    @Override
+    public Mono<Long> purgeTombstones() {
+        if (!running.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        Date cutoff = new Date(System.currentTimeMillis() - graceSeconds * 1000);
+
+        // Se sigue con otro lote mientras el anterior haya venido completo
+        return purgeBatch(cutoff)
+                .expand(deleted -> deleted >= batchSize ? purgeBatch(cutoff) : Mono.empty())
+                .reduce(0L, Long::sum)
+                .doFinally(signal -> running.set(false));
+    }
+
+    private Mono<Long> purgeBatch(Date cutoff) {
+        Query batch = new Query(Criteria.where("deletedAt").lt(cutoff)).limit(batchSize);
+        batch.fields().include("_id");
+
+        return mongoTemplate.find(batch, Customer.class)
+                .map(Customer::getId)
+                .collectList()
+                .filter(ids -> !ids.isEmpty())
+                .flatMap(ids -> mongoTemplate.remove(
+                        new Query(Criteria.where("_id").in(ids).and("deletedAt").lt(cutoff)), Customer.class))
+                .map(result -> result.getDeletedCount())
+                .defaultIfEmpty(0L);
+    }
+}
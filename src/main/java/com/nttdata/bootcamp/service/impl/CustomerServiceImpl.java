@@ -1,55 +1,108 @@
 package com.nttdata.bootcamp.service.impl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.nttdata.bootcamp.controller.CustomerController;
 import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.CustomerChange;
+import com.nttdata.bootcamp.entity.dto.BulkStatusProgressDto;
 import com.nttdata.bootcamp.entity.dto.CustomerCreateResponse;
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
 import com.nttdata.bootcamp.exception.DuplicateCustomerIdException;
 import com.nttdata.bootcamp.repository.CustomerRepository;
+import com.nttdata.bootcamp.service.CustomerArchiveService;
+import com.nttdata.bootcamp.service.CustomerBloomFilterService;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
 import com.nttdata.bootcamp.service.CustomerService;
-import com.nttdata.bootcamp.service.KafkaService;
+import com.nttdata.bootcamp.service.CustomerStatsService;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import com.nttdata.bootcamp.service.PostCreateHook;
 import com.nttdata.bootcamp.service.RedisCacheService;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import com.nttdata.bootcamp.util.SearchNormalizer;
+import com.mongodb.client.result.UpdateResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.annotation.NewSpan;
+import org.springframework.cloud.sleuth.annotation.SpanTag;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 //Service implementation
 @Service
 public class CustomerServiceImpl implements CustomerService {
     private static final Logger LOGGER = LoggerFactory.getLogger(CustomerServiceImpl.class);
+    private static final int MAX_SEARCH_RESULTS = 50;
+    private static final TypeReference<Map<String, Object>> JSON_MAP = new TypeReference<Map<String, Object>>() { };
     @Autowired
     private CustomerRepository customerRepository;
     @Autowired
-    private KafkaService kafkaService;
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+    @Autowired
+    private List<PostCreateHook> postCreateHooks;
     @Autowired
     private RedisCacheService redisCacheService;
+    @Autowired
+    private CustomerStatsService customerStatsService;
+    @Autowired
+    private CustomerBloomFilterService customerBloomFilterService;
+    @Autowired
+    private DependencyGuard dependencyGuard;
+    @Autowired
+    private CustomerWriteBehindService customerWriteBehindService;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private CustomerHistoryService customerHistoryService;
+    @Autowired
+    private CustomerArchiveService customerArchiveService;
+    @Value("${bulk-status.chunk-size}")
+    private int bulkStatusChunkSize;
+    @Value("${customer.find-all.cursor-batch-size}")
+    private int findAllCursorBatchSize;
 
     //******************************
     // --- SAVE BUSINESS ---
     @Override
+    @NewSpan("customer-save")
     public Mono<Customer> save(Customer dataCustomer) {
         return Mono.defer(() ->
-                validarExistencia(dataCustomer)
-                        .flatMap(exists -> {
-                            if (exists) {
-                                return Mono.error(new DuplicateCustomerIdException(
-                                        obtenerIdentificador(dataCustomer)
-                                ));
-                            }
-                            return customerRepository.save(dataCustomer)
-                                    .doOnSuccess(saved ->
-                                            LOGGER.info("Customer guardado. type={} id={}",
-                                                    saved.getTypeCustomer(), saved.getId())
-                                    );
-                        })
+                identidadConocida(dataCustomer)
+                        // Un negativo del Bloom filter basta: la identidad nunca se registró
+                        .flatMap(known -> (known ? validarExistencia(dataCustomer) : Mono.just(false))
+                                .flatMap(exists -> {
+                                    if (exists) {
+                                        return Mono.error(new DuplicateCustomerIdException(
+                                                obtenerIdentificador(dataCustomer)
+                                        ));
+                                    }
+                                    return persistNew(dataCustomer, known);
+                                }))
                         .doOnSubscribe(s ->
                                 LOGGER.info("SUBSCRIBE save() {}", logIdentificador(dataCustomer))
                         )
@@ -63,13 +116,58 @@ public class CustomerServiceImpl implements CustomerService {
         );
     }
 
+    private Mono<Customer> persistNew(Customer dataCustomer, boolean known) {
+        // Si la identidad está archivada se reactiva ese cliente (mismo id) con los datos nuevos
+        return (known ? restoreArchived(dataCustomer) : Mono.<Customer>empty())
+                .map(restored -> {
+                    dataCustomer.setId(restored.getId());
+                    if (dataCustomer.getCreationDate() == null) {
+                        dataCustomer.setCreationDate(restored.getCreationDate());
+                    }
+                    return Optional.of(restored);
+                })
+                .defaultIfEmpty(Optional.empty())
+                // Se registra en el Bloom filter antes de insertar: ningún negativo puede ocultar al cliente
+                .flatMap(restored -> customerBloomFilterService.put(dataCustomer)
+                        .then(Mono.defer(() -> dependencyGuard.mongo(customerRepository.save(dataCustomer))))
+                        // Dos altas simultáneas pasan ambas la validación: la segunda choca con el índice único.
+                        // Si el filtro la daba por nueva, el cliente pudo entrar por fuera del servicio
+                        .onErrorResume(DuplicateKeyException.class, e -> (known
+                                ? Mono.<Void>empty()
+                                : customerBloomFilterService.reconcile(dataCustomer))
+                                .then(Mono.error(new DuplicateCustomerIdException(obtenerIdentificador(dataCustomer)))))
+                        // El archivado ya contaba en las estadísticas: se reemplaza por el dato nuevo
+                        .flatMap(saved -> restored.map(customerStatsService::onDeleted)
+                                .orElse(Mono.empty())
+                                .then(customerStatsService.onCreated(saved))
+                                .thenReturn(saved)))
+                .doOnSuccess(saved ->
+                        LOGGER.info("Customer guardado. type={} id={}",
+                                saved.getTypeCustomer(), saved.getId())
+                );
+    }
+
+    // false solo si el Bloom filter descarta el DNI (PERSONAL) o el RUC (EMPRESARIAL)
+    private Mono<Boolean> identidadConocida(Customer customer) {
+        if (Constant.PERSONAL_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())) {
+            return customerBloomFilterService.mightContainDni(customer.getDni());
+        }
+        if (Constant.BUSINESS_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())) {
+            return customerBloomFilterService.mightContainRuc(customer.getRuc());
+        }
+        // validarExistencia rechaza el tipo
+        return Mono.just(true);
+    }
+
     private Mono<Boolean> validarExistencia(Customer customer) {
-        if ("PERSONAL".equalsIgnoreCase(customer.getTypeCustomer())) {
-            return customerRepository.existsByDni(customer.getDni());
+        // Con un positivo del Bloom filter se confirma en Mongo; los índices únicos cubren la carrera.
+        // Un cliente archivado no cuenta como existente: el alta lo reactiva (restoreArchived)
+        if (Constant.PERSONAL_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())) {
+            return dependencyGuard.mongo(customerRepository.existsByDni(customer.getDni()));
         }
 
-        if ("EMPRESARIAL".equalsIgnoreCase(customer.getTypeCustomer())) {
-            return customerRepository.existsByRuc(customer.getRuc());
+        if (Constant.BUSINESS_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())) {
+            return dependencyGuard.mongo(customerRepository.existsByRuc(customer.getRuc()));
         }
 
         return Mono.error(new IllegalArgumentException(
@@ -77,8 +175,17 @@ public class CustomerServiceImpl implements CustomerService {
         ));
     }
 
+    // Cliente archivado con la misma identidad que el alta, ya devuelto a la capa caliente
+    private Mono<Customer> restoreArchived(Customer customer) {
+        Mono<Customer> archived = Constant.PERSONAL_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())
+                ? customerArchiveService.findArchivedByDni(customer.getDni())
+                        .filter(found -> Constant.PERSONAL_CUSTOMER.equalsIgnoreCase(found.getTypeCustomer()))
+                : customerArchiveService.findArchivedByRuc(customer.getRuc());
+        return archived.flatMap(customerArchiveService::restore);
+    }
+
     private String obtenerIdentificador(Customer customer) {
-        return "PERSONA".equalsIgnoreCase(customer.getTypeCustomer())
+        return Constant.PERSONAL_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())
                 ? customer.getDni()
                 : customer.getRuc();
     }
@@ -91,41 +198,105 @@ public class CustomerServiceImpl implements CustomerService {
 
     @Override
     public Flux<Customer> findAll() {
+        return findAll(false);
+    }
+
+    @Override
+    @NewSpan("customer-find-all")
+    public Flux<Customer> findAll(boolean includeArchived) {
         LOGGER.info("Consultando todos los clientes del banco NTTBANK");
         LOGGER.info("Manejo de colecciones utilizando correctamente las APIs para Streams. ");
 
-        //Map       = Transforma el contenido / No cambia el tipo de flujo / NO aplana Publishers
-        //flatMap   = Transforma y aplana / Se usa cuando retornas un Publisher (Mono o Flux)
-        return customerRepository.findAll()
-                .collectList() // Convertimos el Flux en una lista para trabajar con Streams
-                .map(list ->
-                        list.stream()
-                                .sorted((c1, c2) -> c1.getDni().compareTo(c2.getDni()))
-                                .collect(Collectors.toList())
-                )
-                .flatMapMany(Flux::fromIterable);
+        // Mongo ordena con el índice (dni, _id) y entrega por lotes de cursor: no se carga la
+        // colección en memoria y el consumidor (HTTP o RSocket request-stream) aplica backpressure
+        Query query = Query.query(Criteria.where("deletedAt").is(null))
+                .with(Sort.by("dni", "id"))
+                .cursorBatchSize(findAllCursorBatchSize);
+        Flux<Customer> hot = reactiveMongoTemplate.find(query, Customer.class);
+        return dependencyGuard.mongoStream(includeArchived ? customerArchiveService.withArchived(hot, query) : hot);
     }
 
 
 
     @Override
-    public Mono<Customer> findByDni(String dni) {
+    @NewSpan("customer-find-by-dni")
+    public Mono<Customer> findByDni(@SpanTag("dni") String dni) {
         // En esta parte use cache por demanda (lazy cache)
         LOGGER.info("Consultando un clientes del banco NTTBANK");
         return redisCacheService.retrieveCustomer(dni)   // 1) BUSCA PRIMERO EN REDIS (rápido)
-                .switchIfEmpty(
-                        customerRepository.findByDni(dni) // 2) SI NO ESTÁ, BUSCA EN MONGO
+                .switchIfEmpty(Mono.defer(() -> customerBloomFilterService.mightContainDni(dni)
+                        .filter(Boolean::booleanValue)                     // 2) DNI DESCARTADO POR EL BLOOM: NO EXISTE
+                        .flatMap(known -> dependencyGuard.mongo(customerRepository.findByDni(dni)) // 3) SI NO ESTÁ, BUSCA EN MONGO
                                 .flatMap(customer ->
-                                        redisCacheService.storeCustomer(dni, customer) // 3) GUARDA EN REDIS
+                                        redisCacheService.storeCustomer(customer) // 4) GUARDA EN REDIS
                                                 .thenReturn(customer)                  // Y DEVUELVE EL CUSTOMER
                                 )
-                )
-                .switchIfEmpty(Mono.error(new RuntimeException(
-                        "Cliente no encontrado con DNI: " + dni
-                )));
+                                // 5) SI FUE ARCHIVADO, LO LEE DE LA CAPA FRÍA (sin cachearlo: es de consulta rara)
+                                .switchIfEmpty(Mono.defer(() -> customerArchiveService.findArchivedByDni(dni))))
+                ))
+                .switchIfEmpty(Mono.error(new CustomerNotFoundException(dni)));
+    }
+
+    @Override
+    @NewSpan("customer-find-by-ruc")
+    public Mono<Customer> findByRuc(@SpanTag("ruc") String ruc) {
+        return redisCacheService.retrieveCustomerByRuc(ruc)
+                .switchIfEmpty(Mono.defer(() -> customerBloomFilterService.mightContainRuc(ruc)
+                        .filter(Boolean::booleanValue)
+                        .flatMap(known -> dependencyGuard.mongo(customerRepository.findByRuc(ruc))
+                                .flatMap(redisCacheService::storeCustomer)
+                                // Archivado: se lee de la capa fría, sin cachearlo
+                                .switchIfEmpty(Mono.defer(() -> customerArchiveService.findArchivedByRuc(ruc))))))
+                .switchIfEmpty(Mono.error(new CustomerNotFoundException(ruc)));
+    }
+
+    @Override
+    @NewSpan("customer-find-by-id")
+    public Mono<Customer> findById(String id) {
+        return redisCacheService.retrieveCustomerById(id)
+                .switchIfEmpty(Mono.defer(() -> dependencyGuard.mongo(customerRepository.findById(id))
+                        .filter(customer -> customer.getDeletedAt() == null)
+                        .flatMap(redisCacheService::storeCustomer)))
+                .switchIfEmpty(Mono.error(new CustomerNotFoundException(id)));
+    }
+
+    /**
+     * Proyección por campos: con el layout hash un hit lee solo esos campos de Redis.
+     * La respuesta usa los nombres y formatos JSON de Customer.
+     */
+    @Override
+    public Mono<Map<String, Object>> findFieldsByDni(String dni, List<String> fields) {
+        return redisCacheService.retrieveCustomerFields(dni, fields)
+                .switchIfEmpty(Mono.defer(() -> findByDni(dni)))
+                .map(customer -> {
+                    Map<String, Object> json = objectMapper.convertValue(customer, JSON_MAP);
+                    Map<String, Object> projection = new LinkedHashMap<>();
+                    fields.stream()
+                            .filter(json::containsKey)
+                            .forEach(field -> projection.put(field, json.get(field)));
+                    return projection;
+                });
+    }
+
+    @Override
+    public Mono<DataBuffer> findCachedJsonByDni(String dni, DataBufferFactory bufferFactory) {
+        return redisCacheService.retrieveCustomerJson(dni, bufferFactory);
+    }
+
+    @Override
+    @NewSpan("customer-search")
+    public Flux<Customer> searchByName(String query, int limit) {
+        String prefix = SearchNormalizer.normalize(query);
+        if (prefix.isEmpty()) {
+            return Flux.empty();
+        }
+        int size = Math.max(1, Math.min(limit, MAX_SEARCH_RESULTS));
+        // Prefijo anclado y sin metacaracteres: Mongo lo resuelve como rango sobre el índice searchKeys
+        return dependencyGuard.mongo(customerRepository.findBySearchKeysRegex("^" + prefix, PageRequest.of(0, size)));
     }
 
     @Override
+    @NewSpan("customer-update-address")
     public Mono<Customer> updateCustomerAddress(Customer dataCustomer) {
 
         String dni = dataCustomer.getDni();
@@ -161,36 +332,26 @@ public class CustomerServiceImpl implements CustomerService {
                 }))
                 // Aplana Mono<Mono<Customer>> → Mono<Customer>
                 .flatMap(mono -> mono)
-                .switchIfEmpty(
-                        // No está en Redis → buscar en Mongo
-                        customerRepository.findAll()
-                                .filter(c -> dni.equals(c.getDni()))
-                                .next()
-                                .switchIfEmpty(Mono.error(new RuntimeException(
-                                        "Customer con DNI " + dni + " no existe"
-                                )))
-                                .flatMap(found ->
-                                        Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
-                                            redisCacheService.storeCustomer(dni, found);
-                                            return found;
-                                        }))
-                                )
-                )
+                // No está en Redis → buscar en Mongo
+                .switchIfEmpty(Mono.defer(() -> loadForUpdate(dni)))
                 // Actualizar campos
-                .map(customer -> {
+                .flatMap(customer -> {
+                    String oldAddress = customer.getAddress();
                     customer.setAddress(dataCustomer.getAddress());
                     customer.setModificationDate(dataCustomer.getModificationDate());
-                    return customer;
-                })
-                .flatMap(customerRepository::save)
-                .doOnNext(updated ->
-                        CompletableFuture.runAsync(() ->
-                                redisCacheService.storeCustomer(updated.getDni(), updated)
-                        )
-                );
+                    Mono<Customer> persisted = customerWriteBehindService.isEnabled()
+                            ? writeBehind(customer, "address", customer.getAddress())
+                            : dependencyGuard.mongo(customerRepository.save(customer))
+                                    .flatMap(updated -> redisCacheService.updateCustomerFields(updated,
+                                            "address", "modificationDate"));
+                    return persisted.doOnNext(saved -> customerHistoryService.record(new CustomerChange(
+                            dni, "address", oldAddress, saved.getAddress(), saved.getModificationDate(),
+                            "UPDATE_ADDRESS")));
+                });
     }
 
     @Override
+    @NewSpan("customer-update-status")
     public Mono<Customer> updateStatus(Customer dataCustomer) {
 
         String dni = dataCustomer.getDni();
@@ -228,61 +389,167 @@ public class CustomerServiceImpl implements CustomerService {
                 }))
                 // Aplana Mono<Mono<Customer>> → Mono<Customer>
                 .flatMap(mono -> mono)
-                .switchIfEmpty(
-                        // No está en Redis → buscar en Mongo
-                        customerRepository.findAll()
-                                .filter(c -> dni.equals(c.getDni()))
-                                .next()
-                                .switchIfEmpty(Mono.error(new RuntimeException(
-                                        "Customer con DNI " + dni + " no existe"
-                                )))
-                                .flatMap(found ->
-                                        Mono.fromFuture(CompletableFuture.supplyAsync(() -> {
-                                            redisCacheService.storeCustomer(dni, found);
-                                            return found;
-                                        }))
-                                )
-                )
+                // No está en Redis → buscar en Mongo
+                .switchIfEmpty(Mono.defer(() -> loadForUpdate(dni)))
                 // Actualizar campos
-                .map(customer -> {
+                .flatMap(customer -> {
+                    String oldStatus = customer.getStatus();
                     customer.setStatus(dataCustomer.getStatus());
                     customer.setModificationDate(dataCustomer.getModificationDate());
-                    return customer;
-                })
-                .flatMap(customerRepository::save)
-                .doOnNext(updated ->
-                        CompletableFuture.runAsync(() ->
-                                redisCacheService.storeCustomer(updated.getDni(), updated)
-                        )
-                );
+                    Mono<Customer> persisted = customerWriteBehindService.isEnabled()
+                            ? writeBehind(customer, "status", customer.getStatus())
+                            : dependencyGuard.mongo(customerRepository.save(customer))
+                                    .flatMap(updated -> redisCacheService.updateCustomerFields(updated,
+                                            "status", "modificationDate"));
+                    return persisted
+                            .doOnNext(saved -> customerHistoryService.record(new CustomerChange(
+                                    dni, "status", oldStatus, saved.getStatus(), saved.getModificationDate(),
+                                    "UPDATE_STATUS")))
+                            .flatMap(saved -> customerStatsService.onStatusChanged(oldStatus, saved.getStatus())
+                                    .thenReturn(saved));
+                });
+    }
+
+    // Lectura indexada por DNI (no un recorrido de la colección) y se deja en caché.
+    // Si fue archivado vuelve a customer: las actualizaciones solo se aplican en la capa caliente
+    private Mono<Customer> loadForUpdate(String dni) {
+        return dependencyGuard.mongo(customerRepository.findByDni(dni))
+                .switchIfEmpty(Mono.defer(() -> customerArchiveService.findArchivedByDni(dni)
+                        .flatMap(customerArchiveService::restore)))
+                .flatMap(found -> redisCacheService.storeCustomer(found).thenReturn(found))
+                .switchIfEmpty(Mono.error(new CustomerNotFoundException(dni)));
+    }
+
+    /**
+     * Modo write-behind: la actualización queda en el buffer y la caché se actualiza ya,
+     * para que las lecturas vean el cambio antes de que llegue a Mongo.
+     */
+    private Mono<Customer> writeBehind(Customer customer, String field, Object value) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(field, value);
+        fields.put("modificationDate", customer.getModificationDate() == null
+                ? System.currentTimeMillis()
+                : customer.getModificationDate().getTime());
+        return customerWriteBehindService.enqueue(customer.getId(), fields)
+                .then(redisCacheService.updateCustomerFields(customer, field, "modificationDate"));
     }
 
+    /**
+     * Cambio de estado masivo: los DNIs llegan en streaming y se procesan por bloques,
+     * con un updateMany y un DEL de caché por bloque. Emite el avance de cada bloque.
+     */
     @Override
-    public Customer saveInitServices(Customer dataCustomer){
-        redisCacheService.storeCustomer(dataCustomer.getDni(), dataCustomer);
-        kafkaService.publish(dataCustomer);
-        return dataCustomer;
+    @NewSpan("customer-bulk-update-status")
+    public Flux<BulkStatusProgressDto> bulkUpdateStatus(Flux<String> dnis, String status) {
+        long start = System.currentTimeMillis();
+        AtomicLong totalProcessed = new AtomicLong();
+        AtomicLong totalModified = new AtomicLong();
+
+        Flux<BulkStatusProgressDto> progress = dnis
+                .map(String::trim)
+                .filter(dni -> !dni.isEmpty())
+                .buffer(bulkStatusChunkSize)
+                .index()
+                .concatMap(chunk -> {
+                    List<String> chunkDnis = chunk.getT2().stream().distinct().collect(Collectors.toList());
+                    return updateStatusChunk(chunkDnis, status)
+                            .map(result -> new BulkStatusProgressDto(
+                                    chunk.getT1() + 1,
+                                    chunkDnis.size(),
+                                    result.getMatchedCount(),
+                                    result.getModifiedCount(),
+                                    totalProcessed.addAndGet(chunkDnis.size()),
+                                    totalModified.addAndGet(result.getModifiedCount()),
+                                    System.currentTimeMillis() - start));
+                });
+
+        // Los contadores por estado se recalculan una vez al final, en lugar de un delta por cliente
+        return progress.concatWith(Mono.defer(() -> totalModified.get() == 0
+                ? Mono.<BulkStatusProgressDto>empty()
+                : customerStatsService.reconcile()
+                        .onErrorResume(e -> {
+                            LOGGER.warn("Error reconciliando estadísticas tras el cambio masivo: {}", e.getMessage());
+                            return Mono.empty();
+                        })
+                        .then(Mono.<BulkStatusProgressDto>empty())))
+                .doOnComplete(() -> LOGGER.info("Cambio masivo a {}: {} DNIs, {} modificados en {} ms",
+                        status, totalProcessed.get(), totalModified.get(), System.currentTimeMillis() - start));
+    }
+
+    private Mono<UpdateResult> updateStatusChunk(List<String> dnis, String status) {
+        Criteria criteria = Criteria.where("dni").in(dnis)
+                .and("deletedAt").is(null)
+                .and("status").ne(status);
+        Date modificationDate = new Date();
+        Update update = Update.update("status", status).set("modificationDate", modificationDate);
+
+        // Estado previo de los clientes del bloque, para el historial (una lectura proyectada por bloque)
+        Query previous = Query.query(Criteria.where("dni").in(dnis).and("deletedAt").is(null));
+        // ruc, tipo e id ubican las claves de caché de cada cliente (los EMPRESARIAL van por RUC)
+        previous.fields().include("dni", "status", "ruc", "typeCustomer", "id");
+
+        return dependencyGuard.mongo(reactiveMongoTemplate.find(previous, Customer.class))
+                .collectList()
+                // Un estado anterior aún en el buffer write-behind desharía el cambio masivo al volcarse,
+                // también en los que ya tienen el estado destino en Mongo
+                .flatMap(chunk -> customerWriteBehindService.discard(
+                                chunk.stream().map(Customer::getId).collect(Collectors.toList()), "status")
+                        .thenReturn(chunk.stream()
+                                .filter(customer -> !status.equals(customer.getStatus()))
+                                .collect(Collectors.toList())))
+                .flatMap(changing -> dependencyGuard.mongo(
+                                reactiveMongoTemplate.updateMulti(Query.query(criteria), update, Customer.class))
+                        .doOnNext(result -> changing.forEach(customer -> customerHistoryService.record(
+                                new CustomerChange(customer.getDni(), "status", customer.getStatus(), status,
+                                        modificationDate, "BULK_STATUS"))))
+                        .flatMap(result -> redisCacheService.evictCustomers(changing).thenReturn(result)));
     }
 
     @Override
-    public Mono<Void> delete(String dni) {
+    @NewSpan("customer-after-create")
+    public Mono<Customer> afterCreate(Customer dataCustomer) {
+        // Todos los pasos post-alta corren en paralelo, cada uno con su timeout y política de fallo
+        return Flux.fromIterable(postCreateHooks)
+                .flatMap(hook -> hook.apply(dataCustomer)
+                        .timeout(hook.timeout())
+                        .onErrorResume(e -> {
+                            LOGGER.warn("Post-create '{}' falló para DNI={}: {}",
+                                    hook.name(), dataCustomer.getDni(), e.toString());
+                            return hook.failurePolicy() == PostCreateHook.FailurePolicy.IGNORE
+                                    ? Mono.empty()
+                                    : Mono.error(e);
+                        }))
+                .then(Mono.just(dataCustomer));
+    }
 
-        return findByDni(dni)
-                .switchIfEmpty(Mono.error(
-                        new Error("The customer with DNI " + dni + " does not exist")
-                ))
-                .flatMap(customerFound ->
-                        customerRepository.delete(customerFound)
-                )
-                .then(
-                        redisCacheService.deleteCustomer(dni)
-                                .onErrorResume(e -> {
-                                    LOGGER.warn("Failed to delete customer {} from Redis: {}", dni, e.getMessage());
-                                    return Mono.just(false);
-                                })
-                )
-                .then();
+    @Override
+    @NewSpan("customer-delete")
+    public Mono<Void> delete(@SpanTag("dni") String dni) {
+        // Un solo findAndModify condicional marca el tombstone y devuelve el cliente previo;
+        // la caché y las estadísticas se actualizan después en un mismo pipeline de Redis
+        // Con un DNI compartido se borra el mismo cliente que resuelve findByDni (el PERSONAL primero)
+        Query query = Query.query(Criteria.where("dni").is(dni).and("deletedAt").is(null))
+                .with(Sort.by(Sort.Order.desc("typeCustomer"), Sort.Order.asc("id")));
+        Date deletedAt = new Date();
+        Update update = Update.update("deletedAt", deletedAt);
+
+        Mono<Customer> tombstone = Mono.defer(() ->
+                dependencyGuard.mongo(reactiveMongoTemplate.findAndModify(query, update, Customer.class)));
+
+        // Un cliente archivado se restaura primero, así el tombstone queda en la capa caliente
+        return tombstone
+                .switchIfEmpty(Mono.defer(() -> customerArchiveService.findArchivedByDni(dni)
+                        .flatMap(customerArchiveService::restore)
+                        .flatMap(restored -> tombstone)))
+                .switchIfEmpty(Mono.error(new CustomerNotFoundException(dni)))
+                .doOnNext(deleted -> customerHistoryService.record(new CustomerChange(
+                        dni, "deletedAt", null, deletedAt, deletedAt, "DELETE")))
+                .flatMap(deleted -> Mono.when(
+                        redisCacheService.markDeleted(deleted),
+                        customerStatsService.onDeleted(deleted)))
+                .doOnSuccess(ignored -> LOGGER.info("Customer borrado (tombstone). DNI={}", dni));
     }
 
 
+
 }
@@ -0,0 +1,212 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.dto.CustomerStatsDto;
+import com.nttdata.bootcamp.service.CustomerStatsService;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.UnionWithOperation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Contadores de clientes en un hash de Redis. Cada evento aplica todos sus
+ * HINCRBY en un solo script Lua, así el hash nunca queda a medio actualizar.
+ */
+@Service
+public class CustomerStatsServiceImpl implements CustomerStatsService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerStatsServiceImpl.class);
+
+    private static final String FIELD_TOTAL = "total";
+    private static final String FIELD_VIP = "vip";
+    private static final String FIELD_PYME = "pyme";
+    private static final String FIELD_RECONCILED_AT = "reconciledAt";
+    private static final String PREFIX_TYPE = "type:";
+    private static final String PREFIX_STATUS = "status:";
+
+    // ARGV = campo1, delta1, campo2, delta2, ...
+    private static final RedisScript<Long> INCREMENT_SCRIPT = RedisScript.of(
+            "for i = 1, #ARGV, 2 do redis.call('HINCRBY', KEYS[1], ARGV[i], ARGV[i + 1]) end return 1",
+            Long.class);
+
+    // Reemplaza el hash completo de forma atómica
+    private static final RedisScript<Long> REPLACE_SCRIPT = RedisScript.of(
+            "redis.call('DEL', KEYS[1]) for i = 1, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end return 1",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    @Value("${stats.redis.key}")
+    private String statsKey;
+
+    public CustomerStatsServiceImpl(ReactiveStringRedisTemplate redisTemplate, ReactiveMongoTemplate mongoTemplate) {
+        this.redisTemplate = redisTemplate;
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Void> onCreated(Customer customer) {
+        return increment(deltas(customer, 1));
+    }
+
+    @Override
+    public Mono<Void> onDeleted(Customer customer) {
+        return increment(deltas(customer, -1));
+    }
+
+    @Override
+    public Mono<Void> onStatusChanged(String oldStatus, String newStatus) {
+        if (oldStatus == null ? newStatus == null : oldStatus.equals(newStatus)) {
+            return Mono.empty();
+        }
+        List<String> args = new ArrayList<>();
+        addDelta(args, oldStatus == null ? null : PREFIX_STATUS + oldStatus, -1);
+        addDelta(args, newStatus == null ? null : PREFIX_STATUS + newStatus, 1);
+        return increment(args);
+    }
+
+    @Override
+    public Mono<CustomerStatsDto> getStats() {
+        return redisTemplate.<String, String>opsForHash()
+                .entries(statsKey)
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .map(this::toDto);
+    }
+
+    @Override
+    public Mono<CustomerStatsDto> reconcile() {
+        // Los clientes archivados siguen contando: el archivado no cambia los contadores
+        Aggregation aggregation = Aggregation.newAggregation(
+                UnionWithOperation.unionWith(CustomerArchiveServiceImpl.ARCHIVE_COLLECTION),
+                Aggregation.match(Criteria.where("deletedAt").is(null)),
+                Aggregation.facet(Aggregation.count().as("count")).as("total")
+                        .and(Aggregation.group("typeCustomer").count().as("count")).as("byType")
+                        .and(Aggregation.group("status").count().as("count")).as("byStatus")
+                        .and(Aggregation.match(Criteria.where("flagVip").is(true)),
+                                Aggregation.count().as("count")).as("vip")
+                        .and(Aggregation.match(Criteria.where("flagPyme").is(true)),
+                                Aggregation.count().as("count")).as("pyme"));
+
+        return mongoTemplate.aggregate(aggregation, Customer.class, Document.class)
+                .next()
+                .map(this::toHash)
+                .flatMap(hash -> {
+                    List<String> args = new ArrayList<>();
+                    hash.forEach((field, value) -> {
+                        args.add(field);
+                        args.add(value);
+                    });
+                    return redisTemplate.execute(REPLACE_SCRIPT, Collections.singletonList(statsKey), args)
+                            .then(Mono.just(toDto(hash)));
+                })
+                .doOnSuccess(stats -> LOGGER.info("Estadísticas de clientes reconciliadas: total={}",
+                        stats == null ? 0 : stats.getTotal()));
+    }
+
+    @Scheduled(cron = "${stats.reconcile.cron}")
+    public void scheduledReconcile() {
+        reconcile().subscribe(
+                stats -> { },
+                e -> LOGGER.warn("Error reconciliando estadísticas de clientes: {}", e.getMessage()));
+    }
+
+    private Mono<Void> increment(List<String> args) {
+        if (args.isEmpty()) {
+            return Mono.empty();
+        }
+        return redisTemplate.execute(INCREMENT_SCRIPT, Collections.singletonList(statsKey), args)
+                .then()
+                .onErrorResume(e -> {
+                    // El desvío lo corrige la reconciliación periódica
+                    LOGGER.warn("Error actualizando estadísticas de clientes: {}", e.getMessage());
+                    return Mono.empty();
+                });
+    }
+
+    private List<String> deltas(Customer customer, int delta) {
+        List<String> args = new ArrayList<>();
+        addDelta(args, FIELD_TOTAL, delta);
+        addDelta(args, customer.getTypeCustomer() == null ? null : PREFIX_TYPE + customer.getTypeCustomer(), delta);
+        addDelta(args, customer.getStatus() == null ? null : PREFIX_STATUS + customer.getStatus(), delta);
+        addDelta(args, Boolean.TRUE.equals(customer.getFlagVip()) ? FIELD_VIP : null, delta);
+        addDelta(args, Boolean.TRUE.equals(customer.getFlagPyme()) ? FIELD_PYME : null, delta);
+        return args;
+    }
+
+    private static void addDelta(List<String> args, String field, int delta) {
+        if (field != null) {
+            args.add(field);
+            args.add(String.valueOf(delta));
+        }
+    }
+
+    private Map<String, String> toHash(Document facets) {
+        Map<String, String> hash = new LinkedHashMap<>();
+        hash.put(FIELD_TOTAL, String.valueOf(firstCount(facets, "total")));
+        hash.put(FIELD_VIP, String.valueOf(firstCount(facets, FIELD_VIP)));
+        hash.put(FIELD_PYME, String.valueOf(firstCount(facets, FIELD_PYME)));
+        putGroups(hash, facets, "byType", PREFIX_TYPE);
+        putGroups(hash, facets, "byStatus", PREFIX_STATUS);
+        hash.put(FIELD_RECONCILED_AT, String.valueOf(System.currentTimeMillis()));
+        return hash;
+    }
+
+    private static long firstCount(Document facets, String facet) {
+        List<Document> rows = facets.getList(facet, Document.class);
+        return rows == null || rows.isEmpty() ? 0L : ((Number) rows.get(0).get("count")).longValue();
+    }
+
+    private static void putGroups(Map<String, String> hash, Document facets, String facet, String prefix) {
+        List<Document> rows = facets.getList(facet, Document.class);
+        if (rows == null) {
+            return;
+        }
+        rows.stream()
+                .filter(row -> row.get("_id") != null)
+                .forEach(row -> hash.put(prefix + row.get("_id"),
+                        String.valueOf(((Number) row.get("count")).longValue())));
+    }
+
+    private CustomerStatsDto toDto(Map<String, String> hash) {
+        CustomerStatsDto dto = new CustomerStatsDto();
+        dto.setTotal(parse(hash.get(FIELD_TOTAL)));
+        dto.setVip(parse(hash.get(FIELD_VIP)));
+        dto.setPyme(parse(hash.get(FIELD_PYME)));
+        dto.setByTypeCustomer(withPrefix(hash, PREFIX_TYPE));
+        dto.setByStatus(withPrefix(hash, PREFIX_STATUS));
+        String reconciledAt = hash.get(FIELD_RECONCILED_AT);
+        dto.setReconciledAt(reconciledAt == null ? null : new Date(parse(reconciledAt)));
+        return dto;
+    }
+
+    private static Map<String, Long> withPrefix(Map<String, String> hash, String prefix) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        hash.forEach((field, value) -> {
+            if (field.startsWith(prefix)) {
+                result.put(field.substring(prefix.length()), parse(value));
+            }
+        });
+        return result;
+    }
+
+    private static long parse(String value) {
+        return value == null ? 0L : Long.parseLong(value);
+    }
+}
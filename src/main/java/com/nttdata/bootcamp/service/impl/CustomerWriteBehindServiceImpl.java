@@ -0,0 +1,319 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.annotation.PostConstruct;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind de actualizaciones de clientes. El buffer es un hash de Redis
+ * (campo = _id del cliente, valor = JSON con los campos pendientes), así que varias
+ * actualizaciones del mismo cliente se fusionan en una sola escritura. Se indexa por _id
+ * y no por DNI porque un DNI lo comparten el cliente PERSONAL y los EMPRESARIAL que representa.
+ * Para volcar, el hash se renombra a una clave de trabajo y se escribe en Mongo
+ * por lotes; cada lote se borra del hash recién cuando Mongo lo confirma.
+ */
+@Service
+public class CustomerWriteBehindServiceImpl implements CustomerWriteBehindService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CustomerWriteBehindServiceImpl.class);
+
+    private static final String FIELD_ENQUEUED_AT = "_ts";
+    private static final String FIELD_MODIFICATION_DATE = "modificationDate";
+    private static final Type FIELDS_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+
+    // KEYS[1] = buffer; ARGV = _id, campos JSON, epoch ms. Devuelve el tamaño del buffer
+    private static final RedisScript<Long> ENQUEUE_SCRIPT = RedisScript.of(
+            "local current = redis.call('HGET', KEYS[1], ARGV[1]) "
+                    + "local doc "
+                    + "if current then doc = cjson.decode(current) else doc = {} doc['" + FIELD_ENQUEUED_AT + "'] = tonumber(ARGV[3]) end "
+                    + "for k, v in pairs(cjson.decode(ARGV[2])) do doc[k] = v end "
+                    + "redis.call('HSET', KEYS[1], ARGV[1], cjson.encode(doc)) "
+                    + "return redis.call('HLEN', KEYS[1])",
+            Long.class);
+
+    // Si quedó un volcado a medias se retoma ese; si no, el buffer pasa a ser la clave de trabajo
+    private static final RedisScript<Long> SWAP_SCRIPT = RedisScript.of(
+            "if redis.call('EXISTS', KEYS[2]) == 1 then return 1 end "
+                    + "if redis.call('EXISTS', KEYS[1]) == 1 then redis.call('RENAME', KEYS[1], KEYS[2]) return 1 end "
+                    + "return 0",
+            Long.class);
+
+    // KEYS = buffer y clave de trabajo; ARGV[1] = campo, ARGV[2..] = _ids. Quita el campo de las
+    // entradas pendientes y borra las que quedan sin cambios. Devuelve cuántas entradas lo tenían
+    private static final RedisScript<Long> DISCARD_SCRIPT = RedisScript.of(
+            "local discarded = 0 "
+                    + "for _, key in ipairs(KEYS) do "
+                    + "for i = 2, #ARGV do "
+                    + "local current = redis.call('HGET', key, ARGV[i]) "
+                    + "if current then "
+                    + "local doc = cjson.decode(current) "
+                    + "if doc[ARGV[1]] ~= nil then "
+                    + "discarded = discarded + 1 "
+                    + "doc[ARGV[1]] = nil "
+                    + "local left = false "
+                    + "for k, _ in pairs(doc) do "
+                    + "if k ~= '" + FIELD_ENQUEUED_AT + "' and k ~= '" + FIELD_MODIFICATION_DATE + "' then left = true end "
+                    + "end "
+                    + "if left then redis.call('HSET', key, ARGV[i], cjson.encode(doc)) "
+                    + "else redis.call('HDEL', key, ARGV[i]) end "
+                    + "end end end end "
+                    + "return discarded",
+            Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Gson gson = new Gson();
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final AtomicLong backlog = new AtomicLong();
+
+    private Timer flushLag;
+    private DistributionSummary batchSizes;
+    private Counter unmatched;
+
+    @Value("${write-behind.enabled}")
+    private boolean enabled;
+
+    // Ambas claves llevan el mismo hash tag para caer en el mismo slot en Redis Cluster (RENAME)
+    @Value("${write-behind.buffer-key}")
+    private String bufferKey;
+
+    @Value("${write-behind.flushing-key}")
+    private String flushingKey;
+
+    @Value("${write-behind.batch-size}")
+    private int batchSize;
+
+    public CustomerWriteBehindServiceImpl(ReactiveStringRedisTemplate redisTemplate,
+                                          ReactiveMongoTemplate mongoTemplate,
+                                          MeterRegistry meterRegistry) {
+        this.redisTemplate = redisTemplate;
+        this.mongoTemplate = mongoTemplate;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void registerMetrics() {
+        Gauge.builder("customer.write-behind.backlog", backlog, AtomicLong::get)
+                .description("Clientes con actualizaciones pendientes de volcar a Mongo")
+                .register(meterRegistry);
+        flushLag = Timer.builder("customer.write-behind.flush.lag")
+                .description("Tiempo desde la primera actualización pendiente hasta su escritura en Mongo")
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("customer.write-behind.batch.size")
+                .description("Documentos por bulkWrite")
+                .register(meterRegistry);
+        unmatched = Counter.builder("customer.write-behind.unmatched")
+                .description("Actualizaciones volcadas cuyo cliente ya no estaba vigente en customer (borrado o archivado)")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Mono<Void> enqueue(String customerId, Map<String, Object> fields) {
+        return redisTemplate.execute(ENQUEUE_SCRIPT, Collections.singletonList(bufferKey),
+                        Arrays.asList(customerId, gson.toJson(fields), String.valueOf(System.currentTimeMillis())))
+                .next()
+                .doOnNext(size -> {
+                    backlog.set(size);
+                    // Volcado por tamaño, sin esperar a la ventana de tiempo
+                    if (size >= batchSize) {
+                        flush().subscribe();
+                    }
+                })
+                .then();
+    }
+
+    @Override
+    public Mono<Boolean> isPending(String customerId) {
+        if (!enabled) {
+            return Mono.just(false);
+        }
+        // Ambas consultas salen juntas por la conexión compartida
+        return Mono.zip(redisTemplate.opsForHash().hasKey(bufferKey, customerId),
+                        redisTemplate.opsForHash().hasKey(flushingKey, customerId))
+                .map(found -> found.getT1() || found.getT2());
+    }
+
+    @Override
+    public Mono<Set<String>> pendingIds(Collection<String> customerIds) {
+        if (!enabled || customerIds.isEmpty()) {
+            return Mono.just(Collections.emptySet());
+        }
+        List<Object> keys = new ArrayList<>(customerIds);
+        return Mono.zip(redisTemplate.opsForHash().multiGet(bufferKey, keys),
+                        redisTemplate.opsForHash().multiGet(flushingKey, keys))
+                .map(values -> {
+                    Set<String> pending = new HashSet<>();
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (values.getT1().get(i) != null || values.getT2().get(i) != null) {
+                            pending.add((String) keys.get(i));
+                        }
+                    }
+                    return pending;
+                });
+    }
+
+    @Override
+    public Mono<Long> discard(Collection<String> customerIds, String field) {
+        if (!enabled || customerIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        List<String> args = new ArrayList<>(customerIds.size() + 1);
+        args.add(field);
+        args.addAll(customerIds);
+        return redisTemplate.execute(DISCARD_SCRIPT, Arrays.asList(bufferKey, flushingKey), args)
+                .next()
+                .doOnNext(discarded -> {
+                    if (discarded > 0) {
+                        LOGGER.debug("Write-behind: {} valores pendientes de '{}' descartados", discarded, field);
+                    }
+                });
+    }
+
+    /**
+     * Volcado por ventana de tiempo.
+     */
+    @Scheduled(fixedDelayString = "${write-behind.flush-interval-ms}")
+    public void scheduledFlush() {
+        if (!enabled) {
+            return;
+        }
+        flush().then(refreshBacklog()).subscribe();
+    }
+
+    @Override
+    public Mono<Long> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Mono.just(0L);
+        }
+        return redisTemplate.execute(SWAP_SCRIPT, Arrays.asList(bufferKey, flushingKey))
+                .next()
+                .filter(swapped -> swapped == 1)
+                .flatMapMany(swapped -> redisTemplate.<String, String>opsForHash()
+                        .scan(flushingKey, ScanOptions.scanOptions().count(batchSize).build()))
+                .buffer(batchSize)
+                .concatMap(this::writeBatch)
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> {
+                    if (count > 0) {
+                        LOGGER.debug("Write-behind: {} clientes volcados a Mongo", count);
+                    }
+                })
+                // Lo no confirmado queda en la clave de trabajo y se reintenta en el próximo volcado
+                .onErrorResume(e -> {
+                    LOGGER.warn("Error en el volcado write-behind: {}", e.getMessage());
+                    return Mono.just(0L);
+                })
+                .doFinally(signal -> flushing.set(false));
+    }
+
+    private Mono<Long> writeBatch(List<Map.Entry<String, String>> entries) {
+        List<WriteModel<Document>> models = new ArrayList<>(entries.size());
+        List<Long> lags = new ArrayList<>(entries.size());
+        Object[] customerIds = new Object[entries.size()];
+        List<Object> ids = new ArrayList<>(entries.size());
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < entries.size(); i++) {
+            Map.Entry<String, String> entry = entries.get(i);
+            customerIds[i] = entry.getKey();
+            Object id = ObjectId.isValid(entry.getKey()) ? new ObjectId(entry.getKey()) : entry.getKey();
+            ids.add(id);
+            Map<String, Object> fields = gson.fromJson(entry.getValue(), FIELDS_TYPE);
+            Object enqueuedAt = fields.remove(FIELD_ENQUEUED_AT);
+            if (enqueuedAt instanceof Number) {
+                lags.add(now - ((Number) enqueuedAt).longValue());
+            }
+            Document set = new Document();
+            fields.forEach((field, value) -> set.put(field, FIELD_MODIFICATION_DATE.equals(field) && value instanceof Number
+                    ? new Date(((Number) value).longValue())
+                    : value));
+            // Solo el cliente vigente: nunca un tombstone
+            models.add(new UpdateOneModel<>(Filters.and(Filters.eq("_id", id), Filters.eq("deletedAt", null)),
+                    new Document("$set", set)));
+        }
+
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Customer.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false)))
+                        .flatMap(result -> result.getMatchedCount() == models.size()
+                                ? Mono.<Void>empty()
+                                : reportUnmatched(collection, ids)))
+                // Las no encontradas tampoco se reintentan: el cliente ya no está en customer
+                .then(redisTemplate.opsForHash().remove(flushingKey, customerIds))
+                .doOnSuccess(removed -> {
+                    batchSizes.record(models.size());
+                    lags.forEach(lag -> flushLag.record(Duration.ofMillis(lag)));
+                })
+                .thenReturn((long) models.size());
+    }
+
+    private Mono<Void> reportUnmatched(MongoCollection<Document> collection, List<Object> ids) {
+        return Flux.from(collection.find(Filters.and(Filters.in("_id", ids), Filters.eq("deletedAt", null)))
+                        .projection(Projections.include("_id")))
+                .map(document -> document.get("_id"))
+                .collect(Collectors.toSet())
+                .doOnNext(matched -> {
+                    List<String> lost = ids.stream()
+                            .filter(id -> !matched.contains(id))
+                            .map(String::valueOf)
+                            .collect(Collectors.toList());
+                    unmatched.increment(lost.size());
+                    LOGGER.warn("Write-behind: {} actualizaciones sin cliente vigente en customer (borrado o archivado): {}",
+                            lost.size(), lost);
+                })
+                .then();
+    }
+
+    private Mono<Long> refreshBacklog() {
+        return Mono.zip(redisTemplate.opsForHash().size(bufferKey), redisTemplate.opsForHash().size(flushingKey))
+                .map(sizes -> sizes.getT1() + sizes.getT2())
+                .doOnNext(backlog::set)
+                .onErrorResume(e -> Mono.empty());
+    }
+}
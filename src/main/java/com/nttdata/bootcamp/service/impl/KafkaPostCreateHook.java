@@ -0,0 +1,49 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.KafkaService;
+import com.nttdata.bootcamp.service.PostCreateHook;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+/**
+ * Publica el evento CREATED del cliente en Kafka.
+ */
+@Component
+public class KafkaPostCreateHook implements PostCreateHook {
+
+    private final KafkaService kafkaService;
+
+    @Value("${post-create.kafka.timeout-ms}")
+    private long timeoutMs;
+
+    @Value("${post-create.kafka.failure-policy}")
+    private FailurePolicy failurePolicy;
+
+    public KafkaPostCreateHook(KafkaService kafkaService) {
+        this.kafkaService = kafkaService;
+    }
+
+    @Override
+    public String name() {
+        return "kafka";
+    }
+
+    @Override
+    public Duration timeout() {
+        return Duration.ofMillis(timeoutMs);
+    }
+
+    @Override
+    public FailurePolicy failurePolicy() {
+        return failurePolicy;
+    }
+
+    @Override
+    public Mono<Void> apply(Customer customer) {
+        return kafkaService.publish(customer);
+    }
+}
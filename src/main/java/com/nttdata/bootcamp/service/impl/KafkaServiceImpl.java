@@ -5,11 +5,18 @@ import com.nttdata.bootcamp.entity.enums.EventType;
 import com.nttdata.bootcamp.events.CustomerCreatedEventKafka;
 import com.nttdata.bootcamp.events.EventKafka;
 import com.nttdata.bootcamp.service.KafkaService;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.cloud.sleuth.Span;
+import org.springframework.cloud.sleuth.Tracer;
+import org.springframework.cloud.sleuth.propagation.Propagator;
+import org.springframework.kafka.core.reactive.ReactiveKafkaProducerTemplate;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
 import java.util.UUID;
 
@@ -17,12 +24,21 @@ import java.util.UUID;
 public class KafkaServiceImpl implements KafkaService {
 
     @Autowired
-    private KafkaTemplate<String, EventKafka<?>> producer;
+    private ReactiveKafkaProducerTemplate<String, EventKafka<?>> producer;
+
+    @Autowired
+    private DependencyGuard dependencyGuard;
+
+    @Autowired
+    private Tracer tracer;
+
+    @Autowired
+    private Propagator propagator;
 
     @Value("${topic.customer.name}")
     private String topicCustomer;
 
-    public void publish(Customer customer) {
+    public Mono<Void> publish(Customer customer) {
 
         CustomerCreatedEventKafka created = new CustomerCreatedEventKafka();
         created.setData(customer);
@@ -30,7 +46,23 @@ public class KafkaServiceImpl implements KafkaService {
         created.setType(EventType.CREATED);
         created.setDate(new Date());
 
-        this.producer.send(topicCustomer, created);
+        // reactor-kafka no pasa por el ProducerFactory instrumentado de Sleuth: el span de envío
+        // y la propagación del contexto en los headers del record se hacen acá
+        return Mono.defer(() -> {
+            ProducerRecord<String, EventKafka<?>> record = new ProducerRecord<>(topicCustomer, customer.getDni(), created);
+            Span span = tracer.spanBuilder()
+                    .name("kafka.send")
+                    .kind(Span.Kind.PRODUCER)
+                    .remoteServiceName("kafka")
+                    .tag("kafka.topic", topicCustomer)
+                    .start();
+            propagator.inject(span.context(), record.headers(),
+                    (headers, key, value) -> headers.remove(key).add(key, value.getBytes(StandardCharsets.UTF_8)));
+            return dependencyGuard.kafka(this.producer.send(record))
+                    .doOnError(span::error)
+                    .doFinally(signal -> span.end())
+                    .then();
+        });
     }
 
 }
@@ -0,0 +1,118 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import com.nttdata.bootcamp.service.ProductSummaryService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverOptions;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Consume los eventos de productos por lotes (tamaño o tiempo, lo que ocurra primero)
+ * y confirma los offsets solo después de aplicar el lote. Ante un error el lote se
+ * reintenta desde el último offset confirmado; la aplicación idempotente lo permite.
+ */
+@Component
+public class ProductEventConsumer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductEventConsumer.class);
+
+    private final ReceiverOptions<String, ProductEventKafka> receiverOptions;
+    private final ProductSummaryService productSummaryService;
+    private Disposable subscription;
+
+    @Value("${product-events.enabled}")
+    private boolean enabled;
+
+    @Value("${product-events.batch-size}")
+    private int batchSize;
+
+    @Value("${product-events.batch-timeout-ms}")
+    private long batchTimeoutMs;
+
+    public ProductEventConsumer(ReceiverOptions<String, ProductEventKafka> receiverOptions,
+                                ProductSummaryService productSummaryService) {
+        this.receiverOptions = receiverOptions;
+        this.productSummaryService = productSummaryService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        subscription = consume().subscribe(
+                count -> LOGGER.debug("Lote de {} eventos de productos aplicado", count),
+                e -> LOGGER.error("Consumo de eventos de productos detenido: {}", e.getMessage()));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    /**
+     * Emite el tamaño de cada lote aplicado.
+     */
+    Flux<Integer> consume() {
+        return applyInBatches(Flux.defer(() -> KafkaReceiver.create(receiverOptions).receive()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> LOGGER.warn("Reintentando consumo de eventos de productos: {}",
+                                signal.failure().getMessage())));
+    }
+
+    /**
+     * Lotes por tamaño o tiempo que respetan la demanda: con fairBackpressure la ventana
+     * siguiente solo se abre cuando se pidió, así un lote lento frena el consumo (el receptor
+     * pausa las particiones) en vez de fallar como bufferTimeout, que emite por tiempo aunque
+     * no haya demanda.
+     */
+    Flux<Integer> applyInBatches(Flux<ReceiverRecord<String, ProductEventKafka>> records) {
+        return records
+                .windowTimeout(batchSize, Duration.ofMillis(batchTimeoutMs), true)
+                .concatMap(window -> window.collectList()
+                        .filter(batch -> !batch.isEmpty())
+                        .flatMap(this::applyBatch), 1);
+    }
+
+    private Mono<Integer> applyBatch(List<ReceiverRecord<String, ProductEventKafka>> records) {
+        List<ProductEventKafka> events = records.stream()
+                .filter(record -> record.value() != null)
+                .map(ProductEventConsumer::withDate)
+                .collect(Collectors.toList());
+        if (events.size() < records.size()) {
+            LOGGER.warn("{} eventos de productos ilegibles descartados", records.size() - events.size());
+        }
+        return productSummaryService.apply(events)
+                .then(Mono.fromRunnable(() -> records.forEach(record -> record.receiverOffset().acknowledge())))
+                .thenReturn(records.size());
+    }
+
+    // Un evento sin fecha toma el timestamp del registro: es el mismo en cada reentrega,
+    // así el evento repetido no le gana al estado ya aplicado
+    private static ProductEventKafka withDate(ReceiverRecord<String, ProductEventKafka> record) {
+        ProductEventKafka event = record.value();
+        if (event.getDate() == null && record.timestamp() >= 0) {
+            event.setDate(new Date(record.timestamp()));
+        }
+        return event;
+    }
+}
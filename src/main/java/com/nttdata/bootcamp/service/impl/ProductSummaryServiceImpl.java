@@ -0,0 +1,198 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.nttdata.bootcamp.entity.CustomerProductSummary;
+import com.nttdata.bootcamp.entity.ProductTypeSummary;
+import com.nttdata.bootcamp.entity.dto.ProductDto;
+import com.nttdata.bootcamp.entity.enums.EventType;
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import com.nttdata.bootcamp.service.ProductSummaryService;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.BinaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Vista materializada cliente-productos en dos pasos por lote:
+ * 1) estado de cada cuenta (customer_product_account), guardado solo si el evento es más
+ *    reciente que el ya aplicado, así un evento repetido o atrasado no cambia nada;
+ * 2) resumen de cada DNI afectado recalculado desde ese estado, no por incrementos,
+ *    por lo que reprocesar un lote es idempotente.
+ */
+@Service
+public class ProductSummaryServiceImpl implements ProductSummaryService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductSummaryServiceImpl.class);
+
+    public static final String ACCOUNTS_COLLECTION = "customer_product_account";
+
+    // El último evento por fecha gana; a igual fecha, el de id mayor
+    private static final BinaryOperator<ProductEventKafka> LATEST = BinaryOperator.maxBy(
+            Comparator.comparing(ProductEventKafka::getDate)
+                    .thenComparing(event -> String.valueOf(event.getId())));
+
+    private final ReactiveMongoTemplate mongoTemplate;
+    private final DependencyGuard dependencyGuard;
+
+    public ProductSummaryServiceImpl(ReactiveMongoTemplate mongoTemplate, DependencyGuard dependencyGuard) {
+        this.mongoTemplate = mongoTemplate;
+        this.dependencyGuard = dependencyGuard;
+    }
+
+    @Override
+    public Mono<CustomerProductSummary> findByDni(String dni) {
+        return dependencyGuard.mongo(mongoTemplate.findById(dni, CustomerProductSummary.class))
+                .defaultIfEmpty(emptySummary(dni));
+    }
+
+    @Override
+    public Mono<Void> apply(List<ProductEventKafka> events) {
+        Map<String, ProductEventKafka> latestByAccount = events.stream()
+                .filter(ProductSummaryServiceImpl::isValid)
+                .collect(Collectors.toMap(event -> event.getData().getAccountNumber(), event -> event, LATEST));
+        if (latestByAccount.size() < events.size()) {
+            LOGGER.debug("Lote de {} eventos de productos colapsado a {} cuentas", events.size(), latestByAccount.size());
+        }
+        if (latestByAccount.isEmpty()) {
+            return Mono.empty();
+        }
+
+        List<UpdateOneModel<Document>> models = latestByAccount.values().stream()
+                .map(ProductSummaryServiceImpl::accountUpsert)
+                .collect(Collectors.toList());
+        Set<String> dnis = latestByAccount.values().stream()
+                .map(event -> event.getData().getDni())
+                .collect(Collectors.toCollection(TreeSet::new));
+
+        return writeAccounts(models).then(recompute(dnis));
+    }
+
+    // Un solo bulkWrite desordenado por lote
+    Mono<Void> writeAccounts(List<UpdateOneModel<Document>> models) {
+        return mongoTemplate.getCollection(ACCOUNTS_COLLECTION)
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .then();
+    }
+
+    /**
+     * Upsert con un pipeline de actualización: cada campo toma el valor del evento solo si
+     * la cuenta no tiene uno aplicado o el aplicado no es más reciente.
+     */
+    private static UpdateOneModel<Document> accountUpsert(ProductEventKafka event) {
+        ProductDto product = event.getData();
+        Date eventDate = event.getDate();
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("dni", product.getDni());
+        fields.put("accountType", product.getAccountType());
+        fields.put("balance", product.getBalance());
+        fields.put("deleted", event.getType() == EventType.DELETED);
+        fields.put("eventId", event.getId());
+        fields.put("eventDate", eventDate);
+
+        // Sin eventDate aplicada (cuenta nueva) $ifNull compara la fecha consigo misma: gana el evento
+        Document newer = new Document("$lte", Arrays.asList(
+                new Document("$ifNull", Arrays.asList("$eventDate", eventDate)), eventDate));
+        Document set = new Document();
+        fields.forEach((name, value) -> set.append(name,
+                new Document("$cond", Arrays.asList(newer, new Document("$literal", value), "$" + name))));
+
+        return new UpdateOneModel<>(Filters.eq("_id", product.getAccountNumber()),
+                Collections.singletonList(new Document("$set", set)),
+                new UpdateOptions().upsert(true));
+    }
+
+    private Mono<Void> recompute(Set<String> dnis) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("dni").in(dnis).and("deleted").ne(true)),
+                Aggregation.group("dni", "accountType").count().as("count").sum("balance").as("balance"));
+
+        return mongoTemplate.aggregate(aggregation, ACCOUNTS_COLLECTION, Document.class)
+                .collectList()
+                .map(rows -> summaries(dnis, rows))
+                .flatMap(this::replaceSummaries);
+    }
+
+    private static List<CustomerProductSummary> summaries(Set<String> dnis, List<Document> rows) {
+        Date now = new Date();
+        Map<String, CustomerProductSummary> byDni = new LinkedHashMap<>();
+        // Un DNI sin cuentas vigentes (todas borradas) queda con el resumen en cero
+        dnis.forEach(dni -> {
+            CustomerProductSummary summary = emptySummary(dni);
+            summary.setUpdatedAt(now);
+            byDni.put(dni, summary);
+        });
+        for (Document row : rows) {
+            Document id = row.get("_id", Document.class);
+            CustomerProductSummary summary = byDni.get(id.getString("dni"));
+            long count = ((Number) row.get("count")).longValue();
+            double balance = ((Number) row.get("balance")).doubleValue();
+            String accountType = StringUtils.hasText(id.getString("accountType")) ? id.getString("accountType") : "UNKNOWN";
+            summary.getByAccountType().put(accountType, new ProductTypeSummary(count, balance));
+            summary.setTotalProducts(summary.getTotalProducts() + count);
+            summary.setTotalBalance(summary.getTotalBalance() + balance);
+        }
+        return new ArrayList<>(byDni.values());
+    }
+
+    private Mono<Void> replaceSummaries(List<CustomerProductSummary> summaries) {
+        List<WriteModel<Document>> models = new ArrayList<>(summaries.size());
+        for (CustomerProductSummary summary : summaries) {
+            Document document = new Document();
+            mongoTemplate.getConverter().write(summary, document);
+            models.add(new ReplaceOneModel<>(Filters.eq("_id", summary.getDni()), document,
+                    new ReplaceOptions().upsert(true)));
+        }
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(CustomerProductSummary.class))
+                .flatMap(collection -> Mono.from(collection.bulkWrite(models, new BulkWriteOptions().ordered(false))))
+                .doOnSuccess(result -> LOGGER.debug("Resúmenes de productos actualizados: {}", summaries.size()))
+                .then();
+    }
+
+    /**
+     * Sin fecha el evento no se puede ordenar: tomar la de recepción haría que una reentrega
+     * le ganara siempre al estado aplicado. El consumidor completa la fecha con el timestamp
+     * del registro Kafka, que se conserva entre reentregas.
+     */
+    private static boolean isValid(ProductEventKafka event) {
+        boolean valid = event.getData() != null
+                && event.getDate() != null
+                && StringUtils.hasText(event.getData().getDni())
+                && StringUtils.hasText(event.getData().getAccountNumber());
+        if (!valid) {
+            LOGGER.warn("Evento de producto descartado por datos incompletos: {}", event.getId());
+        }
+        return valid;
+    }
+
+    private static CustomerProductSummary emptySummary(String dni) {
+        CustomerProductSummary summary = new CustomerProductSummary();
+        summary.setDni(dni);
+        return summary;
+    }
+}
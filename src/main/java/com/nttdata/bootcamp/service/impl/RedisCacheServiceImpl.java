@@ -1,111 +1,726 @@
 package com.nttdata.bootcamp.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
+import com.nttdata.bootcamp.repository.CustomerRepository;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
 import com.nttdata.bootcamp.service.RedisCacheService;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.DependencyGuard;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.data.redis.connection.RedisStringCommands;
 import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 @Service
 public class RedisCacheServiceImpl implements RedisCacheService {
 
+    private static final String TOMBSTONE = "__deleted__";
+    private static final String LAYOUT_HASH = "hash";
+    // Metadatos guardados junto al cliente: vencimiento (epoch ms) y revisión de la escritura.
+    // El vencimiento evita un PTTL por hit; la revisión permite que el refresh-ahead solo
+    // reemplace la entrada que leyó
+    private static final String EXPIRES_AT = "_exp";
+    private static final String REVISION = "_rev";
+
+    // KEYS[1] = hash del cliente; ARGV = ttl, campo1, valor1, ... Reemplaza el hash y fija el TTL atómicamente
+    private static final RedisScript<Long> STORE_HASH_SCRIPT = RedisScript.of(
+            "redis.call('DEL', KEYS[1]) redis.call('HSET', KEYS[1], unpack(ARGV, 2)) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[1]) return 1",
+            Long.class);
+
+    // KEYS[1] = cliente (string); ARGV = revisión leída, valor nuevo, ttl ms. Reemplaza solo si la
+    // entrada sigue siendo la que se leyó: no pisa un tombstone, una actualización ni una expulsión
+    private static final RedisScript<Long> REFRESH_STRING_SCRIPT = RedisScript.of(
+            "local current = redis.call('GET', KEYS[1]) if not current then return 0 end "
+                    + "local ok, doc = pcall(function() return cjson.decode(cjson.decode(current)) end) "
+                    + "if not ok or type(doc) ~= 'table' or doc['" + REVISION + "'] ~= ARGV[1] then return 0 end "
+                    + "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1",
+            Long.class);
+
+    // KEYS[1] = cliente (hash); ARGV = revisión leída, ttl ms, pares campo/valor. Misma condición que el string
+    private static final RedisScript<Long> REFRESH_HASH_SCRIPT = RedisScript.of(
+            "if redis.call('TYPE', KEYS[1]).ok ~= 'hash' then return 0 end "
+                    + "if redis.call('HGET', KEYS[1], '" + REVISION + "') ~= ARGV[1] then return 0 end "
+                    + "redis.call('DEL', KEYS[1]) redis.call('HSET', KEYS[1], unpack(ARGV, 3)) "
+                    + "redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1",
+            Long.class);
+
+    // ARGV = tombstone, n, n pares campo/valor, campos a borrar. Solo toca un hash existente y conserva su TTL:
+    // -1 = tombstone, 0 = no cacheado, 1 = actualizado
+    private static final RedisScript<Long> UPDATE_HASH_SCRIPT = RedisScript.of(
+            "if redis.call('TYPE', KEYS[1]).ok ~= 'hash' then return 0 end "
+                    + "if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 1 then return -1 end "
+                    + "local n = tonumber(ARGV[2]) "
+                    + "for i = 3, 2 + 2 * n, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+                    + "for i = 3 + 2 * n, #ARGV do redis.call('HDEL', KEYS[1], ARGV[i]) end return 1",
+            Long.class);
+
     private final ReactiveRedisTemplate<String, Object> redisTemplate;
+    // GET de clientes cacheados; en sentinel/cluster puede ir a una réplica (redis.cache-read-from)
+    private final ReactiveRedisTemplate<String, Object> cacheReadRedisTemplate;
+    private final ReactiveStringRedisTemplate stringRedisTemplate;
+    private final DependencyGuard dependencyGuard;
+    private final CustomerRepository customerRepository;
+    private final CustomerWriteBehindService customerWriteBehindService;
+    private final ObjectMapper objectMapper;
     private final Gson gson = new Gson();
     private final Logger logger = LogManager.getLogger(RedisCacheServiceImpl.class);
+    // DNIs con una recarga refresh-ahead en curso (evita recargas duplicadas del mismo key)
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile boolean generationLoaded;
 
     // TTL en segundos
     @Value("${redis.sessiondata.ttl}")
     private int sessiondataTTL;
 
-    public RedisCacheServiceImpl(ReactiveRedisTemplate<String, Object> redisTemplate) {
+    // Variación aleatoria del TTL (+/- %) para que las entradas no expiren todas juntas
+    @Value("${redis.sessiondata.ttl-jitter-percent}")
+    private int ttlJitterPercent;
+
+    @Value("${redis.refresh-ahead.enabled}")
+    private boolean refreshAheadEnabled;
+
+    // Un hit con menos TTL restante que este umbral dispara la recarga en segundo plano
+    @Value("${redis.refresh-ahead.threshold-seconds}")
+    private long refreshAheadThresholdSeconds;
+
+    @Value("${redis.passthrough.enabled}")
+    private boolean passthroughEnabled;
+
+    @Value("${redis.passthrough.key-prefix}")
+    private String passthroughKeyPrefix;
+
+    // Prefijos de los punteros de identidad (RUC / id de Mongo -> DNI)
+    @Value("${redis.identity.ruc-key-prefix}")
+    private String rucKeyPrefix;
+
+    @Value("${redis.identity.id-key-prefix}")
+    private String idKeyPrefix;
+
+    // Prefijo común de todas las claves de caché de clientes
+    @Value("${redis.namespace}")
+    private String namespace;
+
+    // true = clearAll incrementa una generación incluida en cada clave (flush lógico O(1))
+    @Value("${redis.namespace.generation.enabled}")
+    private boolean generationEnabled;
+
+    @Value("${redis.invalidation.scan-batch-size}")
+    private int scanBatchSize;
+
+    // Pausa entre lotes de UNLINK para no competir con el tráfico normal
+    @Value("${redis.invalidation.batch-delay-ms}")
+    private long invalidationBatchDelayMs;
+
+    // string = JSON completo bajo el DNI; hash = un campo del hash por atributo (HSET/HMGET parciales)
+    @Value("${redis.layout}")
+    private String layout;
+
+    // Vida del tombstone en caché tras un borrado
+    @Value("${redis.tombstone.ttl-seconds}")
+    private long tombstoneTtlSeconds;
+
+    public RedisCacheServiceImpl(ReactiveRedisTemplate<String, Object> redisTemplate,
+                                 @Qualifier("cacheReadRedisTemplate")
+                                 ReactiveRedisTemplate<String, Object> cacheReadRedisTemplate,
+                                 ReactiveStringRedisTemplate stringRedisTemplate,
+                                 DependencyGuard dependencyGuard,
+                                 CustomerRepository customerRepository,
+                                 CustomerWriteBehindService customerWriteBehindService,
+                                 ObjectMapper objectMapper) {
         this.redisTemplate = redisTemplate;
+        this.cacheReadRedisTemplate = cacheReadRedisTemplate;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.dependencyGuard = dependencyGuard;
+        this.customerRepository = customerRepository;
+        this.customerWriteBehindService = customerWriteBehindService;
+        this.objectMapper = objectMapper;
     }
 
     // ------------------------------------------------------------------------
     // REACTIVE METHODS
     // ------------------------------------------------------------------------
 
+    /**
+     * Carga la generación vigente antes de usar la caché; hasta entonces se opera en bypass.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${redis.namespace.generation.refresh-ms}")
+    public void refreshGeneration() {
+        if (!generationEnabled) {
+            return;
+        }
+        stringRedisTemplate.opsForValue().get(generationKey())
+                .map(Long::parseLong)
+                .defaultIfEmpty(0L)
+                .subscribe(current -> {
+                    generation.accumulateAndGet(current, Math::max);
+                    generationLoaded = true;
+                }, e -> logger.warn("Error reading cache generation: {}", e.toString()));
+    }
+
+    /**
+     * Invalida solo las claves del namespace de clientes. Con generación: un INCR (O(1)) y
+     * las claves viejas expiran por TTL. Sin generación: SCAN + UNLINK por lotes acotados,
+     * sin bloquear Redis como FLUSHALL ni tocar claves de otros servicios.
+     */
     @Override
     public Mono<Void> clearAll() {
-        return redisTemplate
-                .execute(connection -> connection.serverCommands().flushAll())
-                .then()
+        if (generationEnabled) {
+            return stringRedisTemplate.opsForValue().increment(generationKey())
+                    .doOnNext(next -> {
+                        generation.accumulateAndGet(next, Math::max);
+                        logger.info("Customer cache generation bumped to {}", next);
+                    })
+                    .then();
+        }
+        ScanOptions options = ScanOptions.scanOptions().match(namespace + "*").count(scanBatchSize).build();
+        return redisTemplate.scan(options)
+                .buffer(scanBatchSize)
+                .concatMap(keys -> redisTemplate.unlink(keys.toArray(new String[0]))
+                        .delayElement(Duration.ofMillis(invalidationBatchDelayMs)))
+                .reduce(0L, Long::sum)
+                .doOnNext(count -> logger.info("Customer cache cleared: {} keys unlinked under {}", count, namespace))
                 .onErrorResume(e -> {
-                    logger.error("Error flushing all Redis data: {}", e.getMessage());
+                    logger.error("Error clearing customer cache namespace {}: {}", namespace, e.getMessage());
                     return Mono.error(new RuntimeException(e));
-                });
+                })
+                .then();
     }
 
     @Override
     public Mono<Customer> retrieveCustomer(String customerDni) {
+        // Bajo el DNI solo se cachean clientes PERSONAL; un EMPRESARIAL de otra versión se trata como miss
+        return retrieveCanonical(customerKey(customerDni), customerDni)
+                .filter(customer -> !isBusiness(customer));
+    }
+
+    private Mono<Customer> retrieveCanonical(String key, String identifier) {
 
-        return redisTemplate.opsForValue()
-                .get(customerDni)
+        // Modo bypass: con el breaker de Redis abierto (o ante timeout) se responde como un miss
+        // y la lectura va directo a Mongo, sin esperar el timeout del comando.
+        if (!cacheUsable()) {
+            return Mono.empty();
+        }
+        if (hashLayout()) {
+            return dependencyGuard.redis(stringRedisTemplate.<String, String>opsForHash()
+                            .entries(key)
+                            .collectMap(Map.Entry::getKey, Map.Entry::getValue))
+                    .onErrorResume(e -> {
+                        logger.warn("Redis bypass retrieving customer {}: {}", identifier, e.toString());
+                        return Mono.empty();
+                    })
+                    .filter(hash -> !hash.isEmpty())
+                    .flatMap(hash -> {
+                        if (hash.containsKey(TOMBSTONE)) {
+                            return Mono.error(new CustomerNotFoundException(identifier));
+                        }
+                        JsonObject tree = toTree(hash);
+                        Customer customer = gson.fromJson(tree, Customer.class);
+                        refreshAheadIfExpiring(key, customer, tree);
+                        return Mono.just(customer);
+                    });
+        }
+        return dependencyGuard.redis(cacheReadRedisTemplate.opsForValue().get(key))
+                .onErrorResume(e -> {
+                    logger.warn("Redis bypass retrieving customer {}: {}", identifier, e.toString());
+                    return Mono.empty();
+                })
                 .flatMap(value -> {
+                    // Tombstone: el cliente fue borrado, se responde no encontrado sin ir a Mongo
+                    if (TOMBSTONE.equals(value)) {
+                        return Mono.error(new CustomerNotFoundException(identifier));
+                    }
                     if (value instanceof String && StringUtils.hasText((String) value)) {
-                        return Mono.just(gson.fromJson((String) value, Customer.class));
+                        JsonObject tree = JsonParser.parseString((String) value).getAsJsonObject();
+                        Customer customer = gson.fromJson(tree, Customer.class);
+                        refreshAheadIfExpiring(key, customer, tree);
+                        return Mono.just(customer);
                     }
                     return Mono.empty();
+                });
+    }
+
+    /**
+     * Con el layout hash lee solo los campos pedidos (HMGET); el DNI se pide siempre para
+     * distinguir un miss de campos nulos. Con el layout string lee el cliente completo.
+     */
+    @Override
+    public Mono<Customer> retrieveCustomerFields(String customerDni, List<String> fields) {
+        if (!hashLayout()) {
+            return retrieveCustomer(customerDni);
+        }
+        if (!cacheUsable()) {
+            return Mono.empty();
+        }
+        List<String> requested = new ArrayList<>(fields.size() + 2);
+        requested.add(TOMBSTONE);
+        requested.add("dni");
+        requested.addAll(fields);
+        return dependencyGuard.redis(hashFields(customerKey(customerDni), requested))
+                .onErrorResume(e -> {
+                    logger.warn("Redis bypass retrieving fields of customer {}: {}", customerDni, e.toString());
+                    return Mono.empty();
                 })
+                .filter(hash -> hash.containsKey(TOMBSTONE) || hash.containsKey("dni"))
+                .flatMap(hash -> fromHash(customerDni, hash));
+    }
+
+    /**
+     * Reemplaza el cliente por un tombstone de TTL corto y elimina JSON y punteros,
+     * todo en un solo pipeline.
+     */
+    @Override
+    public Mono<Void> markDeleted(Customer customer) {
+        String dni = customer.getDni();
+        String[] derivedKeys = identityKeys(customer);
+        Duration ttl = Duration.ofSeconds(tombstoneTtlSeconds);
+        Mono<Boolean> tombstone = hashLayout()
+                ? storeHash(derivedKeys[0], Arrays.asList(TOMBSTONE, "1"), ttl)
+                : redisTemplate.opsForValue().set(derivedKeys[0], TOMBSTONE, ttl);
+        // Un EMPRESARIAL sin id no tiene claves derivadas: DEL sin argumentos es un error
+        Mono<Long> derived = derivedKeys.length > 1
+                ? redisTemplate.delete(Arrays.copyOfRange(derivedKeys, 1, derivedKeys.length))
+                : Mono.just(0L);
+        return dependencyGuard.redis(Mono.when(tombstone, derived))
                 .onErrorResume(e -> {
-                    logger.error("Error retrieving customer {} from Redis: {}", customerDni, e.getMessage());
-                    return Mono.error(new RuntimeException(e));
+                    // Sin tombstone la caché puede servir el cliente hasta su TTL; se borra la entrada como respaldo
+                    logger.warn("Redis error marking customer {} as deleted: {}", dni, e.toString());
+                    return deleteKeys(dni, derivedKeys).then();
                 });
     }
 
+    // Los EMPRESARIAL se cachean bajo su RUC: la lectura es directa, sin puntero
     @Override
-    public Mono<Customer> storeCustomer(String customerDni, Customer customer) {
+    public Mono<Customer> retrieveCustomerByRuc(String ruc) {
+        return retrieveCanonical(rucKey(ruc), ruc)
+                .filter(customer -> ruc.equals(customer.getRuc()));
+    }
 
-        String json = gson.toJson(customer);
+    /**
+     * Resuelve el puntero id -> clave canónica (DNI o RUC) y lee el cliente. Un puntero huérfano
+     * (el canónico expiró o pertenece a otro cliente) se comporta como un miss.
+     */
+    @Override
+    public Mono<Customer> retrieveCustomerById(String id) {
+        if (!cacheUsable()) {
+            return Mono.empty();
+        }
+        return dependencyGuard.redis(redisTemplate.opsForValue().get(idKey(id)))
+                .filter(String.class::isInstance)
+                .map(String.class::cast)
+                .flatMap(suffix -> retrieveCanonical(keyPrefix() + suffix, id))
+                .filter(customer -> id.equals(customer.getId()))
+                .onErrorResume(e -> !(e instanceof CustomerNotFoundException), e -> {
+                    logger.warn("Redis bypass resolving id {}: {}", id, e.toString());
+                    return Mono.empty();
+                });
+    }
 
-        return redisTemplate.opsForValue()
-                .set(customerDni, json)
-                .flatMap(result -> redisTemplate.expire(customerDni, java.time.Duration.ofSeconds(sessiondataTTL)))
-                .map(ok -> customer)
+    /**
+     * Passthrough: lee el valor crudo por la conexión (sin serializer) y lo envuelve
+     * en un DataBuffer, listo para escribirse en la respuesta sin crear un Customer.
+     * Los bytes no llevan vencimiento: el refresh-ahead lo disparan las lecturas del canónico.
+     */
+    @Override
+    public Mono<DataBuffer> retrieveCustomerJson(String customerDni, DataBufferFactory bufferFactory) {
+        if (!passthroughEnabled || !cacheUsable()) {
+            return Mono.empty();
+        }
+        ByteBuffer key = passthroughKey(customerDni);
+        return dependencyGuard.redis(cacheReadRedisTemplate.createMono(connection -> connection.stringCommands().get(key)))
+                .filter(ByteBuffer::hasRemaining)
+                .map(bufferFactory::wrap)
                 .onErrorResume(e -> {
-                    logger.error("Error storing customer {} into Redis: {}", customerDni, e.getMessage());
-                    return Mono.error(new RuntimeException(e));
+                    logger.warn("Redis bypass retrieving customer json {}: {}", customerDni, e.toString());
+                    return Mono.empty();
                 });
     }
 
     @Override
-    public Mono<Void> flushCustomerCache(String customerId) {
+    public Mono<Customer> storeCustomer(Customer customer) {
 
-        Flux<String> keysFlux =
-                redisTemplate.opsForList()
-                        .range(customerId, 0, -1)
-                        .map(value -> (String) value);
+        if (dependencyGuard.isOpen(DependencyGuard.REDIS) || !cacheUsable()) {
+            return Mono.just(customer);
+        }
 
-        return keysFlux
-                .collectList()
-                .flatMap(keys -> {
+        String customerDni = customer.getDni();
+        String key = canonicalKey(customer);
+        Duration ttl = jitteredTtl();
+        JsonObject tree = cacheTree(customer, ttl);
 
-                    if (keys.isEmpty()) {
-                        return Mono.empty();
+        List<Mono<Boolean>> writes = new ArrayList<>();
+        if (hashLayout()) {
+            writes.add(storeHash(key, toHashArgs(tree), ttl));
+        } else {
+            writes.add(redisTemplate.opsForValue().set(key, gson.toJson(tree), ttl));
+        }
+        writes.addAll(derivedWrites(customer, ttl));
+
+        // Todos los SET salen en pipeline por la misma conexión
+        return dependencyGuard.redis(Mono.when(writes))
+                .thenReturn(customer)
+                .onErrorResume(e -> {
+                    // La escritura en caché es best-effort: el dato ya está en Mongo
+                    logger.warn("Redis bypass storing customer {}: {}", customerDni, e.toString());
+                    return Mono.just(customer);
+                });
+    }
+
+    // JSON passthrough (solo PERSONAL, se sirve por DNI) y puntero id -> clave canónica
+    private List<Mono<Boolean>> derivedWrites(Customer customer, Duration ttl) {
+        List<Mono<Boolean>> writes = new ArrayList<>(2);
+        if (!isBusiness(customer)) {
+            writes.add(storeCustomerJson(customer.getDni(), customer, ttl));
+        }
+        if (StringUtils.hasText(customer.getId())) {
+            writes.add(redisTemplate.opsForValue().set(idKey(customer.getId()), canonicalSuffix(customer), ttl));
+        }
+        return writes;
+    }
+
+    /**
+     * Con el layout hash escribe solo los campos indicados (los nulos se borran del hash)
+     * e invalida el JSON passthrough. Si el cliente no estaba cacheado se guarda completo,
+     * para que las lecturas vean el cambio aunque Mongo aún no lo tenga (write-behind).
+     */
+    @Override
+    public Mono<Customer> updateCustomerFields(Customer customer, String... fields) {
+        String customerDni = customer.getDni();
+        if (!hashLayout()) {
+            return storeCustomer(customer);
+        }
+        if (dependencyGuard.isOpen(DependencyGuard.REDIS) || !cacheUsable()) {
+            return Mono.just(customer);
+        }
+
+        JsonObject tree = gson.toJsonTree(customer).getAsJsonObject();
+        List<String> updated = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        // Revisión nueva: un refresh-ahead en curso ya no reemplaza esta entrada
+        updated.add(REVISION);
+        updated.add(gson.toJson(newRevision()));
+        for (String field : fields) {
+            JsonElement value = tree.get(field);
+            if (value == null) {
+                removed.add(field);
+            } else {
+                updated.add(field);
+                updated.add(value.toString());
+            }
+        }
+        List<String> args = new ArrayList<>(updated.size() + removed.size() + 2);
+        args.add(TOMBSTONE);
+        args.add(String.valueOf(updated.size() / 2));
+        args.addAll(updated);
+        args.addAll(removed);
+
+        Mono<Long> update = stringRedisTemplate
+                .execute(UPDATE_HASH_SCRIPT, Collections.singletonList(canonicalKey(customer)), args)
+                .next();
+        Mono<Long> dropJson = isBusiness(customer) ? Mono.just(0L) : redisTemplate.delete(jsonKey(customerDni));
+        return dependencyGuard.redis(Mono.zip(update, dropJson))
+                .flatMap(result -> result.getT1() == 0 ? storeCustomer(customer) : Mono.just(customer))
+                .onErrorResume(e -> {
+                    logger.warn("Redis bypass updating fields of customer {}: {}", customerDni, e.toString());
+                    return Mono.just(customer);
+                });
+    }
+
+    /**
+     * Refresh-ahead: si a la entrada leída le queda poco TTL (según el vencimiento guardado
+     * en el valor, sin consultar PTTL) se recarga desde Mongo en segundo plano. La escritura
+     * es condicional: se omite si hay una actualización write-behind pendiente, si Mongo
+     * tiene una modificationDate anterior a la cacheada, o si la entrada cambió desde que
+     * se leyó (tombstone, actualización o expulsión).
+     */
+    private void refreshAheadIfExpiring(String key, Customer cached, JsonObject tree) {
+        if (!refreshAheadEnabled || !tree.has(EXPIRES_AT) || !tree.has(REVISION)
+                || !StringUtils.hasText(cached.getId())) {
+            return;
+        }
+        long remainingMs = tree.get(EXPIRES_AT).getAsLong() - System.currentTimeMillis();
+        if (remainingMs < 0 || remainingMs >= refreshAheadThresholdSeconds * 1000
+                || !refreshing.add(key)) {
+            return;
+        }
+        String revision = tree.get(REVISION).getAsString();
+        String customerDni = cached.getDni();
+        // Se recarga por _id: el DNI no identifica al cliente cuando lo comparten varios EMPRESARIAL
+        dependencyGuard.redis(customerWriteBehindService.isPending(cached.getId()))
+                .filter(pending -> !pending)
+                .flatMap(notPending -> dependencyGuard.mongo(customerRepository.findById(cached.getId())))
+                .filter(fresh -> fresh.getDeletedAt() == null && key.equals(canonicalKey(fresh)))
+                .filter(fresh -> !isOlder(fresh, cached))
+                .flatMap(fresh -> refreshCustomer(key, fresh, revision))
+                .doFinally(signal -> refreshing.remove(key))
+                .subscribe(
+                        refreshed -> logger.debug("Refresh-ahead of customer {} completed", customerDni),
+                        e -> logger.warn("Refresh-ahead of customer {} failed: {}", customerDni, e.toString()));
+    }
+
+    private static boolean isOlder(Customer fresh, Customer cached) {
+        return cached.getModificationDate() != null
+                && (fresh.getModificationDate() == null || fresh.getModificationDate().before(cached.getModificationDate()));
+    }
+
+    private Mono<Customer> refreshCustomer(String key, Customer fresh, String revision) {
+        Duration ttl = jitteredTtl();
+        JsonObject tree = cacheTree(fresh, ttl);
+        List<String> keys = Collections.singletonList(key);
+        Mono<Long> replace;
+        if (hashLayout()) {
+            List<String> args = new ArrayList<>();
+            args.add(gson.toJson(revision));
+            args.add(String.valueOf(ttl.toMillis()));
+            args.addAll(toHashArgs(tree));
+            replace = stringRedisTemplate.execute(REFRESH_HASH_SCRIPT, keys, args).next();
+        } else {
+            // El valor va serializado igual que lo escribe redisTemplate, para que las lecturas lo entiendan
+            ByteBuffer value = redisTemplate.getSerializationContext().getValueSerializationPair()
+                    .write(gson.toJson(tree));
+            replace = stringRedisTemplate.execute(REFRESH_STRING_SCRIPT, keys, Arrays.asList(
+                            revision, StandardCharsets.UTF_8.decode(value).toString(), String.valueOf(ttl.toMillis())))
+                    .next();
+        }
+        return dependencyGuard.redis(replace)
+                .filter(replaced -> replaced == 1)
+                .flatMap(replaced -> dependencyGuard.redis(Mono.when(derivedWrites(fresh, ttl))))
+                .thenReturn(fresh);
+    }
+
+    /**
+     * Guarda los bytes con el mismo ObjectMapper que usa el encoder JSON de WebFlux,
+     * así un hit devuelve exactamente la respuesta que se habría serializado.
+     */
+    private Mono<Boolean> storeCustomerJson(String customerDni, Customer customer, Duration ttl) {
+        if (!passthroughEnabled) {
+            return Mono.just(true);
+        }
+        ByteBuffer value;
+        try {
+            value = ByteBuffer.wrap(objectMapper.writeValueAsBytes(customer));
+        } catch (JsonProcessingException e) {
+            return Mono.error(e);
+        }
+        ByteBuffer key = passthroughKey(customerDni);
+        return redisTemplate.createMono(connection -> connection.stringCommands()
+                .set(key, value, Expiration.from(ttl), RedisStringCommands.SetOption.upsert()));
+    }
+
+    private Mono<Boolean> storeHash(String key, List<String> fieldsAndValues, Duration ttl) {
+        List<String> args = new ArrayList<>(fieldsAndValues.size() + 1);
+        args.add(String.valueOf(ttl.getSeconds()));
+        args.addAll(fieldsAndValues);
+        return stringRedisTemplate
+                .execute(STORE_HASH_SCRIPT, Collections.singletonList(key), args)
+                .next()
+                .map(result -> result == 1);
+    }
+
+    // HMGET devuelve null para los campos ausentes; solo se conservan los presentes
+    private Mono<Map<String, String>> hashFields(String key, List<String> fields) {
+        return stringRedisTemplate.<String, String>opsForHash().multiGet(key, fields)
+                .map(values -> {
+                    Map<String, String> hash = new HashMap<>();
+                    for (int i = 0; i < fields.size(); i++) {
+                        if (values.get(i) != null) {
+                            hash.put(fields.get(i), values.get(i));
+                        }
                     }
+                    return hash;
+                });
+    }
+
+    // Cada campo del hash guarda el JSON (Gson) de ese atributo
+    private Mono<Customer> fromHash(String customerDni, Map<String, String> hash) {
+        if (hash.containsKey(TOMBSTONE)) {
+            return Mono.error(new CustomerNotFoundException(customerDni));
+        }
+        return Mono.just(toCustomer(hash));
+    }
 
-                    keys.add(customerId);
+    private Customer toCustomer(Map<String, String> hash) {
+        return gson.fromJson(toTree(hash), Customer.class);
+    }
 
-                    return redisTemplate.delete(Flux.fromIterable(keys)).then();
-                })
+    private JsonObject toTree(Map<String, String> hash) {
+        JsonObject tree = new JsonObject();
+        hash.forEach((field, value) -> {
+            if (!TOMBSTONE.equals(field)) {
+                tree.add(field, JsonParser.parseString(value));
+            }
+        });
+        return tree;
+    }
+
+    // Cliente en JSON (Gson) más vencimiento y revisión; Customer ignora esos campos al leerlo
+    private JsonObject cacheTree(Customer customer, Duration ttl) {
+        JsonObject tree = gson.toJsonTree(customer).getAsJsonObject();
+        tree.addProperty(EXPIRES_AT, System.currentTimeMillis() + ttl.toMillis());
+        tree.addProperty(REVISION, newRevision());
+        return tree;
+    }
+
+    private static List<String> toHashArgs(JsonObject tree) {
+        List<String> hash = new ArrayList<>(tree.size() * 2);
+        tree.entrySet().forEach(field -> {
+            hash.add(field.getKey());
+            hash.add(field.getValue().toString());
+        });
+        return hash;
+    }
+
+    private static String newRevision() {
+        return Long.toHexString(ThreadLocalRandom.current().nextLong());
+    }
+
+    private boolean hashLayout() {
+        return LAYOUT_HASH.equalsIgnoreCase(layout);
+    }
+
+    // La clave canónica va primero; después el JSON (solo PERSONAL) y el puntero por id
+    private String[] identityKeys(Customer customer) {
+        List<String> keys = new ArrayList<>(3);
+        keys.add(canonicalKey(customer));
+        if (!isBusiness(customer)) {
+            keys.add(jsonKey(customer.getDni()));
+        }
+        if (StringUtils.hasText(customer.getId())) {
+            keys.add(idKey(customer.getId()));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    /**
+     * Los PERSONAL se cachean bajo su DNI, único entre ellos. Los EMPRESARIAL, bajo su RUC:
+     * su DNI es el del representante y puede repetirse entre varias empresas y el propio
+     * cliente PERSONAL, así que guardarlos por DNI pisaría la entrada de otro cliente.
+     */
+    private String canonicalSuffix(Customer customer) {
+        return isBusiness(customer) ? rucKeyPrefix + customer.getRuc() : customer.getDni();
+    }
+
+    private String canonicalKey(Customer customer) {
+        return keyPrefix() + canonicalSuffix(customer);
+    }
+
+    private static boolean isBusiness(Customer customer) {
+        return Constant.BUSINESS_CUSTOMER.equalsIgnoreCase(customer.getTypeCustomer())
+                && StringUtils.hasText(customer.getRuc());
+    }
+
+    private ByteBuffer passthroughKey(String customerDni) {
+        return ByteBuffer.wrap(jsonKey(customerDni).getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Todas las claves de caché viven bajo el namespace (y la generación vigente, si está habilitada)
+    private String keyPrefix() {
+        return generationEnabled ? namespace + generation.get() + ":" : namespace;
+    }
+
+    private String customerKey(String customerDni) {
+        return keyPrefix() + customerDni;
+    }
+
+    private String jsonKey(String customerDni) {
+        return keyPrefix() + passthroughKeyPrefix + customerDni;
+    }
+
+    private String rucKey(String ruc) {
+        return keyPrefix() + rucKeyPrefix + ruc;
+    }
+
+    private String idKey(String id) {
+        return keyPrefix() + idKeyPrefix + id;
+    }
+
+    private String generationKey() {
+        return namespace + "generation";
+    }
+
+    private boolean cacheUsable() {
+        return !generationEnabled || generationLoaded;
+    }
+
+    private Duration jitteredTtl() {
+        long jitter = sessiondataTTL * (long) ttlJitterPercent / 100;
+        long offset = jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter + 1) : 0;
+        return Duration.ofSeconds(Math.max(1, sessiondataTTL + offset));
+    }
+
+    @Override
+    public Mono<Void> flushCustomerCache(String customerId) {
+        return deleteCustomer(customerId).then();
+    }
+
+    @Override
+    public Mono<Long> evictCustomers(List<Customer> customers) {
+        if (customers.isEmpty()) {
+            return Mono.just(0L);
+        }
+        String[] keys = customers.stream()
+                .flatMap(customer -> Arrays.stream(identityKeys(customer)))
+                .toArray(String[]::new);
+        return dependencyGuard.redis(redisTemplate.delete(keys))
                 .onErrorResume(e -> {
-                    logger.error("Error flushing cache for customer {}: {}", customerId, e.getMessage());
-                    return Mono.error(new RuntimeException(e));
+                    logger.warn("Error evicting {} customers from Redis: {}", customers.size(), e.toString());
+                    return Mono.just(0L);
                 });
     }
 
     @Override
     public Mono<Boolean> deleteCustomer(String customerDni) {
-        return redisTemplate
-                .delete(customerDni)  // Mono<Long>
+        // Cliente PERSONAL por DNI: el canónico indica el puntero por id; todo sale en un solo DEL
+        Mono<Customer> canonical = hashLayout()
+                ? hashFields(customerKey(customerDni), Collections.singletonList("id")).map(this::toCustomer)
+                : redisTemplate.opsForValue().get(customerKey(customerDni))
+                        .filter(value -> value instanceof String && !TOMBSTONE.equals(value))
+                        .map(value -> gson.fromJson((String) value, Customer.class));
+        Mono<String[]> keys = canonical
+                .filter(customer -> StringUtils.hasText(customer.getId()))
+                .map(customer -> new String[]{customerKey(customerDni), jsonKey(customerDni), idKey(customer.getId())})
+                .defaultIfEmpty(new String[]{customerKey(customerDni), jsonKey(customerDni)});
+
+        return dependencyGuard.redis(keys.flatMap(redisTemplate::delete))  // Mono<Long>
                 .map(count -> count != null && count > 0)  // Long → Boolean
                 .onErrorResume(e -> {
                     logger.error("Error deleting customer {} from Redis: {}", customerDni, e.getMessage());
@@ -113,6 +728,15 @@ public class RedisCacheServiceImpl implements RedisCacheService {
                 });
     }
 
+    private Mono<Boolean> deleteKeys(String customerDni, String[] keys) {
+        return dependencyGuard.redis(redisTemplate.delete(keys))
+                .map(count -> count > 0)
+                .onErrorResume(e -> {
+                    logger.error("Error deleting customer {} from Redis: {}", customerDni, e.getMessage());
+                    return Mono.just(false);
+                });
+    }
+
 
 
 }
@@ -0,0 +1,173 @@
+package com.nttdata.bootcamp.util;
+
+import com.nttdata.bootcamp.entity.Customer;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Generador determinista de clientes sintéticos: el cliente i depende solo de (seed, i),
+ * así los lotes se generan en paralelo y en cualquier orden con el mismo resultado.
+ * Los DNI (8 dígitos) y RUC (11 dígitos con dígito verificador) son únicos para
+ * índices menores a 10^8, porque salen de una permutación afín del índice.
+ */
+public class CustomerDataGenerator {
+
+    private static final long DNI_SPACE = 100_000_000L;
+    private static final int[] RUC_WEIGHTS = {5, 4, 3, 2, 7, 6, 5, 4, 3, 2};
+    private static final long CREATION_WINDOW_MS = 10L * 365 * 24 * 60 * 60 * 1000;
+
+    private static final String[] NAMES = {"Juan", "María", "José", "Rosa", "Luis", "Ana", "Carlos", "Lucía",
+            "Jorge", "Elena", "Miguel", "Sofía", "Pedro", "Carmen", "Raúl", "Inés", "Diego", "Valeria",
+            "Andrés", "Camila", "Fernando", "Gabriela", "Ricardo", "Patricia"};
+    private static final String[] SURNAMES = {"Pérez", "García", "Rodríguez", "Quispe", "Flores", "Sánchez",
+            "Ramírez", "Torres", "Díaz", "Vásquez", "Castillo", "Mendoza", "Chávez", "Romero", "Núñez", "Odar",
+            "Huamán", "Mamani", "Rojas", "Gutiérrez", "Espinoza", "Salazar", "Cárdenas", "Paredes"};
+    private static final String[] COMPANY_WORDS = {"Andina", "Pacífico", "Inca", "Sol", "Norte", "Sur", "Lima",
+            "Cusco", "Amazonía", "Costa", "Sierra", "Unión", "Progreso", "Horizonte", "Global", "Central"};
+    private static final String[] COMPANY_ACTIVITIES = {"Comercial", "Inversiones", "Servicios", "Textil",
+            "Logística", "Constructora", "Agroindustrial", "Tecnologías", "Distribuidora", "Minera"};
+    private static final String[] COMPANY_SUFFIXES = {"S.A.C.", "S.A.", "E.I.R.L.", "S.R.L."};
+    private static final String[] STREETS = {"Av. Arequipa", "Av. Brasil", "Jr. de la Unión", "Av. Larco",
+            "Av. Javier Prado", "Calle Las Begonias", "Av. Grau", "Jr. Ayacucho", "Av. Bolognesi", "Av. Balta"};
+    private static final String[] DISTRICTS = {"Lima", "Miraflores", "San Isidro", "Surco", "Chiclayo",
+            "José Leonardo Ortiz", "Trujillo", "Arequipa", "Piura", "Cusco"};
+
+    private final long seed;
+    private final double businessRatio;
+    private final double vipRatio;
+    private final double pymeRatio;
+    private final String[] statuses;
+    private final double[] statusCumulative;
+    private final long dniMultiplier;
+    private final long dniOffset;
+    private final long rucMultiplier;
+    private final long rucOffset;
+    private final long baseTimeMs;
+
+    /**
+     * @param statusWeights peso relativo de cada estado, ej. ACTIVE=80, INACTIVE=15, DEBTOR=5
+     */
+    public CustomerDataGenerator(long seed, double businessRatio, double vipRatio, double pymeRatio,
+                                 Map<String, Integer> statusWeights, long baseTimeMs) {
+        if (statusWeights.isEmpty() || statusWeights.values().stream().mapToInt(Integer::intValue).sum() <= 0) {
+            throw new IllegalArgumentException("Se requiere al menos un estado con peso positivo");
+        }
+        this.seed = seed;
+        this.businessRatio = businessRatio;
+        this.vipRatio = vipRatio;
+        this.pymeRatio = pymeRatio;
+        this.baseTimeMs = baseTimeMs;
+
+        Map<String, Integer> weights = new LinkedHashMap<>(statusWeights);
+        double total = weights.values().stream().mapToInt(Integer::intValue).sum();
+        this.statuses = weights.keySet().toArray(new String[0]);
+        this.statusCumulative = new double[statuses.length];
+        double accumulated = 0;
+        for (int i = 0; i < statuses.length; i++) {
+            accumulated += weights.get(statuses[i]) / total;
+            statusCumulative[i] = accumulated;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        this.dniMultiplier = coprimeMultiplier(random);
+        this.dniOffset = random.nextLong(DNI_SPACE);
+        this.rucMultiplier = coprimeMultiplier(random);
+        this.rucOffset = random.nextLong(DNI_SPACE);
+    }
+
+    public Customer generate(long index) {
+        if (index < 0 || index >= DNI_SPACE) {
+            throw new IllegalArgumentException("Índice fuera de rango: " + index);
+        }
+        SplittableRandom random = new SplittableRandom(mix(seed + index * 0x9e3779b97f4a7c15L));
+        Customer customer = new Customer();
+        customer.setDni(String.format("%08d", permute(index, dniMultiplier, dniOffset)));
+
+        String name = pick(random, NAMES);
+        String surName = pick(random, SURNAMES) + " " + pick(random, SURNAMES);
+        customer.setName(name);
+        customer.setSurName(surName);
+
+        if (random.nextDouble() < businessRatio) {
+            customer.setTypeCustomer(Constant.BUSINESS_CUSTOMER);
+            customer.setRuc(ruc("20", String.format("%08d", permute(index, rucMultiplier, rucOffset))));
+            customer.setCompanyName(pick(random, COMPANY_ACTIVITIES) + " " + pick(random, COMPANY_WORDS)
+                    + " " + pick(random, COMPANY_SUFFIXES));
+            customer.setFlagVip(false);
+            customer.setFlagPyme(random.nextDouble() < pymeRatio);
+        } else {
+            customer.setTypeCustomer(Constant.PERSONAL_CUSTOMER);
+            customer.setFlagVip(random.nextDouble() < vipRatio);
+            customer.setFlagPyme(false);
+        }
+
+        customer.setStatus(status(random.nextDouble()));
+        customer.setAddress(pick(random, STREETS) + " " + (100 + random.nextInt(2900)) + ", " + pick(random, DISTRICTS));
+        customer.setPhoneNumber("9" + String.format("%08d", random.nextInt(100_000_000)));
+        Date creationDate = new Date(baseTimeMs - (long) (random.nextDouble() * CREATION_WINDOW_MS));
+        customer.setCreationDate(creationDate);
+        customer.setModificationDate(creationDate);
+        customer.setSearchKeys(SearchNormalizer.searchKeys(customer));
+        return customer;
+    }
+
+    /**
+     * Arma un RUC con su dígito verificador (módulo 11 de SUNAT). Prefijo 10 = persona natural,
+     * 20 = persona jurídica.
+     */
+    public static String ruc(String prefix, String eightDigits) {
+        String body = prefix + eightDigits;
+        return body + rucCheckDigit(body);
+    }
+
+    public static int rucCheckDigit(String firstTenDigits) {
+        int sum = 0;
+        for (int i = 0; i < RUC_WEIGHTS.length; i++) {
+            sum += (firstTenDigits.charAt(i) - '0') * RUC_WEIGHTS[i];
+        }
+        int digit = 11 - sum % 11;
+        return digit == 10 ? 0 : digit == 11 ? 1 : digit;
+    }
+
+    public static boolean isValidRuc(String ruc) {
+        return ruc != null && ruc.matches("^(10|15|17|20)[0-9]{9}$")
+                && rucCheckDigit(ruc.substring(0, 10)) == ruc.charAt(10) - '0';
+    }
+
+    private String status(double value) {
+        for (int i = 0; i < statusCumulative.length; i++) {
+            if (value < statusCumulative[i]) {
+                return statuses[i];
+            }
+        }
+        return statuses[statuses.length - 1];
+    }
+
+    // (a * i + b) mod 10^8 es una biyección si a es coprimo con 10^8 (impar y no múltiplo de 5)
+    private static long permute(long index, long multiplier, long offset) {
+        // a, i, b < 10^8: el producto entra en un long
+        return (multiplier * index + offset) % DNI_SPACE;
+    }
+
+    private static long coprimeMultiplier(SplittableRandom random) {
+        long candidate;
+        do {
+            candidate = random.nextLong(DNI_SPACE / 10, DNI_SPACE) | 1;
+        } while (candidate % 5 == 0);
+        return candidate;
+    }
+
+    private static <T> T pick(SplittableRandom random, T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Mezclado splitmix64 para que índices consecutivos den semillas independientes
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
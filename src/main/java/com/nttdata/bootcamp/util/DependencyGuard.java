@@ -0,0 +1,102 @@
+package com.nttdata.bootcamp.util;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Aplica bulkhead, time limiter y circuit breaker (en ese orden, de adentro hacia afuera)
+ * a las llamadas a cada dependencia. Las instancias "redis", "mongo" y "kafka" se
+ * configuran en application.properties (resilience4j.*.instances.*). Los recorridos largos
+ * de Mongo usan "mongo-stream": su duración no es una llamada lenta ni debe ocupar los
+ * permisos de las consultas puntuales.
+ */
+@Component
+public class DependencyGuard {
+
+    public static final String REDIS = "redis";
+    public static final String MONGO = "mongo";
+    public static final String KAFKA = "kafka";
+    public static final String MONGO_STREAM = "mongo-stream";
+
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final TimeLimiterRegistry timeLimiterRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public DependencyGuard(CircuitBreakerRegistry circuitBreakerRegistry,
+                           TimeLimiterRegistry timeLimiterRegistry,
+                           BulkheadRegistry bulkheadRegistry) {
+        this.circuitBreakerRegistry = circuitBreakerRegistry;
+        this.timeLimiterRegistry = timeLimiterRegistry;
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    public <T> Mono<T> redis(Mono<T> call) {
+        return guard(REDIS, call);
+    }
+
+    public <T> Mono<T> mongo(Mono<T> call) {
+        return guard(MONGO, call);
+    }
+
+    public <T> Flux<T> mongo(Flux<T> call) {
+        return guard(MONGO, call);
+    }
+
+    /**
+     * Para cursores que recorren toda la colección: bulkhead y breaker propios, sin time
+     * limiter. El breaker solo cuenta fallos, no duración.
+     */
+    public <T> Flux<T> mongoStream(Flux<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkhead(MONGO_STREAM)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(MONGO_STREAM)));
+    }
+
+    public <T> Mono<T> kafka(Mono<T> call) {
+        return guard(KAFKA, call);
+    }
+
+    /**
+     * true si el breaker de la dependencia no deja pasar llamadas (OPEN o FORCED_OPEN).
+     */
+    public boolean isOpen(String dependency) {
+        CircuitBreaker.State state = circuitBreakerRegistry.circuitBreaker(dependency).getState();
+        return state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN;
+    }
+
+    private <T> Mono<T> guard(String dependency, Mono<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkhead(dependency)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter(dependency)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(dependency)));
+    }
+
+    private <T> Flux<T> guard(String dependency, Flux<T> call) {
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkhead(dependency)))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter(dependency)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker(dependency)));
+    }
+
+    private CircuitBreaker circuitBreaker(String dependency) {
+        return circuitBreakerRegistry.circuitBreaker(dependency);
+    }
+
+    private TimeLimiter timeLimiter(String dependency) {
+        return timeLimiterRegistry.timeLimiter(dependency);
+    }
+
+    private Bulkhead bulkhead(String dependency) {
+        return bulkheadRegistry.bulkhead(dependency);
+    }
+}
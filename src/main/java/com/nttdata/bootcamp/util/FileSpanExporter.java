@@ -0,0 +1,89 @@
+package com.nttdata.bootcamp.util;
+
+import brave.handler.MutableSpan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Exporta spans a un archivo local, uno por línea en JSON Zipkin v2 (lo aceptan
+ * Zipkin, Jaeger y el receptor zipkin del OpenTelemetry Collector). La escritura
+ * ocurre en un hilo propio: quien termina el span solo encola, y si la cola está
+ * llena el span se descarta en lugar de frenar la petición.
+ */
+public class FileSpanExporter implements Consumer<MutableSpan>, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileSpanExporter.class);
+
+    private final BlockingQueue<MutableSpan> queue;
+    private final BufferedWriter writer;
+    private final Thread worker;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean running = true;
+
+    public FileSpanExporter(Path file, int queueCapacity) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        this.worker = new Thread(this::drain, "span-file-exporter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    @Override
+    public void accept(MutableSpan span) {
+        if (!queue.offer(span)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        while (running || !queue.isEmpty()) {
+            try {
+                MutableSpan span = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (span == null) {
+                    writer.flush();
+                    continue;
+                }
+                // MutableSpan.toString() es el JSON Zipkin v2 del span
+                writer.write(span.toString());
+                writer.newLine();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                LOGGER.warn("Error escribiendo spans: {}", e.getMessage());
+            }
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        try {
+            worker.join(2000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer.close();
+    }
+}
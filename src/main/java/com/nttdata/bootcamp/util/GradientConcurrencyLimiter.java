@@ -0,0 +1,98 @@
+package com.nttdata.bootcamp.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Límite de concurrencia adaptativo basado en gradiente de latencia (estilo Gradient2
+ * de Netflix concurrency-limits). Compara la latencia reciente contra una media de
+ * largo plazo: si la reciente sube, el límite baja; si se mantiene, el límite crece
+ * en sqrt(límite) para sondear más capacidad.
+ */
+public class GradientConcurrencyLimiter {
+
+    private static final double LONG_RTT_WINDOW = 600;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    public GradientConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit,
+                                      double smoothing, double rttTolerance) {
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+    }
+
+    /**
+     * Reserva un lugar; false si ya hay tantas peticiones en curso como el límite.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Libera el lugar y usa la latencia observada para ajustar el límite.
+     */
+    public void onSample(long rttNanos) {
+        int inFlightAtEnd = inFlight.getAndDecrement();
+        update(rttNanos, inFlightAtEnd);
+    }
+
+    /**
+     * Libera el lugar sin muestrear (petición cancelada por el cliente).
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtEnd) {
+        if (longRttNanos == 0) {
+            longRttNanos = rttNanos;
+            shortRttNanos = rttNanos;
+            return;
+        }
+        shortRttNanos = shortRttNanos * 0.9 + rttNanos * 0.1;
+        longRttNanos = longRttNanos + (shortRttNanos - longRttNanos) / LONG_RTT_WINDOW;
+
+        // Si la media corta supera ampliamente a la larga, la media larga la sigue más rápido
+        // para recuperar pronto tras un pico sostenido
+        if (longRttNanos / shortRttNanos > 2) {
+            longRttNanos *= 0.95;
+        }
+
+        // Sin demanda suficiente no hay señal para crecer
+        if (inFlightAtEnd < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
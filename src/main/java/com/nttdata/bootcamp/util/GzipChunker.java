@@ -0,0 +1,73 @@
+package com.nttdata.bootcamp.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Acumula registros y, al superar el tamaño de bloque, los comprime como un miembro
+ * gzip completo. La concatenación de miembros es un gzip válido (RFC 1952), así que
+ * cada bloque emitido es un punto de corte seguro para reanudar una exportación.
+ * No es thread-safe: una instancia por flujo.
+ */
+public class GzipChunker {
+
+    private final int chunkBytes;
+    private final ByteArrayOutputStream pending;
+    private String pendingLastKey;
+
+    public GzipChunker(int chunkBytes) {
+        this.chunkBytes = chunkBytes;
+        this.pending = new ByteArrayOutputStream(chunkBytes + chunkBytes / 4);
+    }
+
+    /**
+     * Agrega un registro; devuelve el bloque comprimido si se llenó, o null.
+     */
+    public Chunk append(String key, byte[] record) {
+        pending.write(record, 0, record.length);
+        pendingLastKey = key;
+        return pending.size() >= chunkBytes ? flush() : null;
+    }
+
+    /**
+     * Comprime lo pendiente; null si no hay nada.
+     */
+    public Chunk flush() {
+        if (pending.size() == 0) {
+            return null;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(pending.size() / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            pending.writeTo(gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Chunk chunk = new Chunk(out.toByteArray(), pendingLastKey);
+        pending.reset();
+        pendingLastKey = null;
+        return chunk;
+    }
+
+    public static final class Chunk {
+        private final byte[] data;
+        private final String lastKey;
+
+        private Chunk(byte[] data, String lastKey) {
+            this.data = data;
+            this.lastKey = lastKey;
+        }
+
+        public byte[] getData() {
+            return data;
+        }
+
+        /**
+         * Clave del último registro del bloque, desde donde se reanuda.
+         */
+        public String getLastKey() {
+            return lastKey;
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.nttdata.bootcamp.util;
+
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bloom filter escalable (Almeida et al.) guardado en Redis: cuando una etapa llega a su
+ * capacidad se agrega otra del doble de tamaño con una tasa de falsos positivos más estricta,
+ * de modo que la tasa compuesta se mantiene por debajo de la configurada. Cada etapa es un
+ * bitmap (key:bits:N) y key:meta guarda las etapas en uso y sus inserciones; consulta y alta
+ * son un script Lua cada una, así todas las instancias comparten el mismo filtro y un alta
+ * se ve en todas en cuanto se confirma. Los bits los calcula Java (double hashing de 64 bits)
+ * y el script solo los lee o escribe.
+ * Una reconstrucción llena key:next y lo renombra al terminar; mientras tanto las altas se
+ * escriben en ambos filtros.
+ */
+public class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+    // SETBIT admite offsets de hasta 2^32 - 1 (strings de 512 MB)
+    private static final long MAX_STAGE_BITS = 1L << 32;
+
+    // Argumentos comunes: ARGV[1] = etapas posibles S; ARGV[2 + 2j] = capacidad y ARGV[3 + 2j] = hashes
+    // de la etapa j; ARGV[2 + 2S] = cantidad de valores; después, por valor, los bits de cada etapa.
+    // Las claves de etapa derivan de KEYS y comparten su hash tag (mismo slot en Redis Cluster)
+    private static final String CONTAINS_LUA =
+            "local meta = KEYS[1] .. ':meta' "
+                    + "if redis.call('EXISTS', meta) == 0 then return -1 end "
+                    + "local s = tonumber(ARGV[1]) "
+                    + "local n = tonumber(redis.call('HGET', meta, 'stages')) "
+                    + "local pos = 3 + 2 * s "
+                    + "for j = 0, s - 1 do "
+                    + "local k = tonumber(ARGV[3 + 2 * j]) "
+                    + "if j < n then "
+                    + "local all = true "
+                    + "for i = 0, k - 1 do "
+                    + "if redis.call('GETBIT', KEYS[1] .. ':bits:' .. j, ARGV[pos + i]) == 0 then all = false break end "
+                    + "end "
+                    + "if all then return 1 end "
+                    + "end "
+                    + "pos = pos + k "
+                    + "end "
+                    + "return 0";
+
+    // Escribe en cada filtro de KEYS que exista (nunca crea uno: un filtro a medio llenar daría
+    // negativos falsos). Devuelve cuántos valores eran nuevos en el primero
+    private static final String PUT_LUA =
+            "local s = tonumber(ARGV[1]) "
+                    + "local v = tonumber(ARGV[2 + 2 * s]) "
+                    + "local added = 0 "
+                    + "for ki, base in ipairs(KEYS) do "
+                    + "local meta = base .. ':meta' "
+                    + "if redis.call('EXISTS', meta) == 1 then "
+                    + "local n = tonumber(redis.call('HGET', meta, 'stages')) "
+                    + "local pos = 3 + 2 * s "
+                    + "for _ = 1, v do "
+                    + "local start = pos "
+                    + "local found = false "
+                    + "for j = 0, s - 1 do "
+                    + "local k = tonumber(ARGV[3 + 2 * j]) "
+                    + "if not found and j < n then "
+                    + "local all = true "
+                    + "for i = 0, k - 1 do "
+                    + "if redis.call('GETBIT', base .. ':bits:' .. j, ARGV[pos + i]) == 0 then all = false break end "
+                    + "end "
+                    + "found = all "
+                    + "end "
+                    + "pos = pos + k "
+                    + "end "
+                    + "if not found then "
+                    + "local cur = n - 1 "
+                    + "local ins = tonumber(redis.call('HGET', meta, 'insertions:' .. cur) or '0') "
+                    + "if ins >= tonumber(ARGV[2 + 2 * cur]) and n < s then "
+                    + "cur = n "
+                    + "n = n + 1 "
+                    + "redis.call('HSET', meta, 'stages', n) "
+                    + "end "
+                    + "local p = start "
+                    + "for j = 0, cur - 1 do p = p + tonumber(ARGV[3 + 2 * j]) end "
+                    + "for i = 0, tonumber(ARGV[3 + 2 * cur]) - 1 do "
+                    + "redis.call('SETBIT', base .. ':bits:' .. cur, ARGV[p + i], 1) "
+                    + "end "
+                    + "redis.call('HINCRBY', meta, 'insertions:' .. cur, 1) "
+                    + "if ki == 1 then added = added + 1 end "
+                    + "end "
+                    + "end "
+                    + "end "
+                    + "end "
+                    + "return added";
+
+    // KEYS[1] = filtro; ARGV[1] = S. Lo deja vacío, con una etapa
+    private static final String RESET_LUA =
+            "for j = 0, tonumber(ARGV[1]) - 1 do redis.call('DEL', KEYS[1] .. ':bits:' .. j) end "
+                    + "redis.call('DEL', KEYS[1] .. ':meta') "
+                    + "redis.call('HSET', KEYS[1] .. ':meta', 'stages', 1) "
+                    + "return 1";
+
+    // KEYS[1] = origen, KEYS[2] = destino; ARGV[1] = S. Reemplaza el destino de una sola vez
+    private static final String SWAP_LUA =
+            "if redis.call('EXISTS', KEYS[1] .. ':meta') == 0 then return 0 end "
+                    + "for j = 0, tonumber(ARGV[1]) - 1 do "
+                    + "if redis.call('EXISTS', KEYS[1] .. ':bits:' .. j) == 1 then "
+                    + "redis.call('RENAME', KEYS[1] .. ':bits:' .. j, KEYS[2] .. ':bits:' .. j) "
+                    + "else redis.call('DEL', KEYS[2] .. ':bits:' .. j) end "
+                    + "end "
+                    + "redis.call('RENAME', KEYS[1] .. ':meta', KEYS[2] .. ':meta') "
+                    + "return 1";
+
+    // KEYS[1] = filtro; ARGV[1] = S
+    private static final String DROP_LUA =
+            "for j = 0, tonumber(ARGV[1]) - 1 do redis.call('DEL', KEYS[1] .. ':bits:' .. j) end "
+                    + "return redis.call('DEL', KEYS[1] .. ':meta')";
+
+    private static final RedisScript<Long> CONTAINS_SCRIPT = RedisScript.of(CONTAINS_LUA, Long.class);
+    private static final RedisScript<Long> PUT_SCRIPT = RedisScript.of(PUT_LUA, Long.class);
+    private static final RedisScript<Long> RESET_SCRIPT = RedisScript.of(RESET_LUA, Long.class);
+    private static final RedisScript<Long> SWAP_SCRIPT = RedisScript.of(SWAP_LUA, Long.class);
+    private static final RedisScript<Long> DROP_SCRIPT = RedisScript.of(DROP_LUA, Long.class);
+
+    private final ReactiveStringRedisTemplate redisTemplate;
+    private final String key;
+    private final String rebuildKey;
+    private final long initialCapacity;
+    private final double falsePositiveRate;
+    private final long maxMemoryBytes;
+    private final List<Stage> stages = new ArrayList<>();
+    // Prefijo de ARGV: S y (capacidad, hashes) de cada etapa
+    private final List<String> stageArgs = new ArrayList<>();
+
+    public ScalableBloomFilter(ReactiveStringRedisTemplate redisTemplate, String key,
+                               long initialCapacity, double falsePositiveRate, long maxMemoryBytes) {
+        if (initialCapacity <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Parámetros de Bloom filter inválidos");
+        }
+        this.redisTemplate = redisTemplate;
+        this.key = key;
+        this.rebuildKey = key + ":next";
+        this.initialCapacity = initialCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxMemoryBytes = maxMemoryBytes;
+
+        // Las etapas posibles se fijan de antemano: la suma de p0 * r^i converge a
+        // p0 / (1 - r) = falsePositiveRate. Sin presupuesto se sigue llenando la última
+        // etapa y la tasa real sube (ver Stats.getExpectedFalsePositiveRate)
+        long capacity = initialCapacity;
+        double rate = falsePositiveRate * (1 - TIGHTENING_RATIO);
+        long memory = 0;
+        while (true) {
+            Stage stage = new Stage(capacity, rate);
+            if (stages.isEmpty() && stage.numBits > MAX_STAGE_BITS) {
+                throw new IllegalArgumentException("La primera etapa del Bloom filter excede el tamaño de un bitmap de Redis");
+            }
+            if (stage.numBits > MAX_STAGE_BITS
+                    || (!stages.isEmpty() && maxMemoryBytes > 0 && memory + stage.memoryBytes() > maxMemoryBytes)) {
+                break;
+            }
+            stages.add(stage);
+            memory += stage.memoryBytes();
+            capacity *= GROWTH_FACTOR;
+            rate *= TIGHTENING_RATIO;
+        }
+
+        stageArgs.add(String.valueOf(stages.size()));
+        stages.forEach(stage -> {
+            stageArgs.add(String.valueOf(stage.capacity));
+            stageArgs.add(String.valueOf(stage.numHashes));
+        });
+    }
+
+    /**
+     * true si el valor puede estar; vacío si el filtro aún no existe en Redis (sin construir o perdido).
+     */
+    public Mono<Boolean> mightContain(String value) {
+        return redisTemplate.execute(CONTAINS_SCRIPT, Collections.singletonList(key), args(Collections.singleton(value)))
+                .next()
+                .filter(found -> found >= 0)
+                .map(found -> found == 1);
+    }
+
+    /**
+     * Agrega el valor al filtro y a la reconstrucción en curso, si hay una. Devuelve 1 si era nuevo.
+     */
+    public Mono<Long> put(String value) {
+        return putAll(Collections.singleton(value));
+    }
+
+    public Mono<Long> putAll(Collection<String> values) {
+        return execute(PUT_SCRIPT, Arrays.asList(key, rebuildKey), values);
+    }
+
+    /**
+     * Empieza una reconstrucción vacía en key:next; desde ahora las altas se escriben en ambos.
+     */
+    public Mono<Void> startRebuild() {
+        return redisTemplate.execute(RESET_SCRIPT, Collections.singletonList(rebuildKey), stageCount()).then();
+    }
+
+    /**
+     * Agrega valores solo a la reconstrucción en curso.
+     */
+    public Mono<Long> putAllRebuilding(Collection<String> values) {
+        return execute(PUT_SCRIPT, Collections.singletonList(rebuildKey), values);
+    }
+
+    /**
+     * Reemplaza el filtro por la reconstrucción; false si no había una en curso.
+     */
+    public Mono<Boolean> finishRebuild() {
+        return redisTemplate.execute(SWAP_SCRIPT, Arrays.asList(rebuildKey, key), stageCount())
+                .next()
+                .map(swapped -> swapped == 1);
+    }
+
+    public Mono<Void> abortRebuild() {
+        return redisTemplate.execute(DROP_SCRIPT, Collections.singletonList(rebuildKey), stageCount()).then();
+    }
+
+    /**
+     * Etapas en uso e inserciones, leídas de key:meta; vacío si el filtro no existe.
+     */
+    public Mono<Stats> stats() {
+        return redisTemplate.<String, String>opsForHash().entries(key + ":meta")
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+                .filter(meta -> meta.containsKey("stages"))
+                .map(meta -> {
+                    int used = Math.min(Integer.parseInt(meta.get("stages")), stages.size());
+                    long insertions = 0;
+                    long memory = 0;
+                    double none = 1.0;
+                    for (int j = 0; j < used; j++) {
+                        Stage stage = stages.get(j);
+                        long stageInsertions = Long.parseLong(meta.getOrDefault("insertions:" + j, "0"));
+                        insertions += stageInsertions;
+                        memory += stage.memoryBytes();
+                        none *= 1.0 - stage.expectedFalsePositiveRate(stageInsertions);
+                    }
+                    return new Stats(used, insertions, memory, 1.0 - none);
+                });
+    }
+
+    public double getConfiguredFalsePositiveRate() {
+        return falsePositiveRate;
+    }
+
+    public long getInitialCapacity() {
+        return initialCapacity;
+    }
+
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    /**
+     * Etapas que admite el presupuesto de memoria.
+     */
+    public int getMaxStages() {
+        return stages.size();
+    }
+
+    private Mono<Long> execute(RedisScript<Long> script, List<String> keys, Collection<String> values) {
+        if (values.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return redisTemplate.execute(script, keys, args(values)).next();
+    }
+
+    private List<String> stageCount() {
+        return Collections.singletonList(stageArgs.get(0));
+    }
+
+    private List<String> args(Collection<String> values) {
+        int bitsPerValue = stages.stream().mapToInt(stage -> stage.numHashes).sum();
+        List<String> args = new ArrayList<>(stageArgs.size() + 1 + values.size() * bitsPerValue);
+        args.addAll(stageArgs);
+        args.add(String.valueOf(values.size()));
+        for (String value : values) {
+            long[] hashes = hash(value);
+            for (Stage stage : stages) {
+                for (int i = 0; i < stage.numHashes; i++) {
+                    args.add(String.valueOf(stage.index(hashes, i)));
+                }
+            }
+        }
+        return args;
+    }
+
+    // FNV-1a de 64 bits más un mezclado splitmix64 como segundo hash (double hashing de Kirsch-Mitzenmacher)
+    private static long[] hash(String value) {
+        long h1 = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h1 ^= b;
+            h1 *= 0x100000001b3L;
+        }
+        long h2 = h1 + 0x9e3779b97f4a7c15L;
+        h2 = (h2 ^ (h2 >>> 30)) * 0xbf58476d1ce4e5b9L;
+        h2 = (h2 ^ (h2 >>> 27)) * 0x94d049bb133111ebL;
+        h2 = h2 ^ (h2 >>> 31);
+        return new long[]{h1, h2 | 1};
+    }
+
+    /**
+     * Foto del filtro para las métricas.
+     */
+    public static final class Stats {
+        private final int stages;
+        private final long insertions;
+        private final long memoryBytes;
+        private final double expectedFalsePositiveRate;
+
+        Stats(int stages, long insertions, long memoryBytes, double expectedFalsePositiveRate) {
+            this.stages = stages;
+            this.insertions = insertions;
+            this.memoryBytes = memoryBytes;
+            this.expectedFalsePositiveRate = expectedFalsePositiveRate;
+        }
+
+        public int getStages() {
+            return stages;
+        }
+
+        public long getInsertions() {
+            return insertions;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        /**
+         * Tasa compuesta estimada según el llenado actual: 1 - prod(1 - p_i).
+         */
+        public double getExpectedFalsePositiveRate() {
+            return expectedFalsePositiveRate;
+        }
+    }
+
+    private static final class Stage {
+        private final long capacity;
+        private final long numBits;
+        private final int numHashes;
+
+        private Stage(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.numBits = Math.max(64, (bits + 63) / 64 * 64);
+            this.numHashes = Math.max(1, (int) Math.round((double) numBits / capacity * Math.log(2)));
+        }
+
+        private long index(long[] hashes, int i) {
+            return Math.floorMod(hashes[0] + i * hashes[1], numBits);
+        }
+
+        private long memoryBytes() {
+            return numBits / 8;
+        }
+
+        private double expectedFalsePositiveRate(long insertions) {
+            return Math.pow(1 - Math.exp(-(double) numHashes * insertions / numBits), numHashes);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.nttdata.bootcamp.util;
+
+import com.nttdata.bootcamp.entity.Customer;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Normaliza nombres para la búsqueda por prefijo (typeahead).
+ * Quita tildes, pasa a minúsculas y deja solo [a-z0-9 ], de modo que
+ * un prefijo normalizado nunca contiene metacaracteres de regex.
+ */
+public final class SearchNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NOT_ALPHANUMERIC = Pattern.compile("[^a-z0-9 ]");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    // Tope de claves por cliente para no inflar el índice multikey
+    private static final int MAX_KEYS = 16;
+
+    private SearchNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        String lower = folded.toLowerCase(Locale.ROOT);
+        String clean = NOT_ALPHANUMERIC.matcher(lower).replaceAll(" ");
+        return SPACES.matcher(clean).replaceAll(" ").trim();
+    }
+
+    /**
+     * Genera las claves de búsqueda de un cliente: para "name surName" y para
+     * companyName se indexa cada sufijo de palabras ("juan carlos perez",
+     * "carlos perez", "perez"), así un prefijo encaja con cualquier palabra.
+     */
+    public static List<String> searchKeys(Customer customer) {
+        Set<String> keys = new LinkedHashSet<>();
+        addWordSuffixes(keys, joinNonNull(customer.getName(), customer.getSurName()));
+        addWordSuffixes(keys, customer.getCompanyName());
+        List<String> result = new ArrayList<>(keys);
+        return result.size() > MAX_KEYS ? new ArrayList<>(result.subList(0, MAX_KEYS)) : result;
+    }
+
+    private static void addWordSuffixes(Set<String> keys, String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        String[] words = normalized.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            keys.add(String.join(" ", Arrays.copyOfRange(words, i, words.length)));
+        }
+    }
+
+    private static String joinNonNull(String first, String second) {
+        if (first == null) {
+            return second;
+        }
+        return second == null ? first : first + " " + second;
+    }
+}
@@ -0,0 +1,112 @@
+package com.nttdata.bootcamp.util;
+
+import brave.handler.MutableSpan;
+import brave.handler.SpanHandler;
+import brave.propagation.TraceContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Muestreo por cola (tail-based): los spans de una traza se retienen en memoria hasta
+ * que termina su raíz local, y recién ahí se decide si exportarla. Se conservan las
+ * trazas lentas o con error, más una fracción aleatoria del resto.
+ */
+public class TailSamplingSpanHandler extends SpanHandler {
+
+    private static final int SWEEP_EVERY = 1024;
+
+    private final Consumer<MutableSpan> exporter;
+    private final long slowThresholdMicros;
+    private final double keepProbability;
+    private final int maxPendingTraces;
+    private final long maxPendingAgeNanos;
+    private final Map<String, PendingTrace> pending = new ConcurrentHashMap<>();
+    private final AtomicLong endCount = new AtomicLong();
+    private final AtomicLong keptTraces = new AtomicLong();
+    private final AtomicLong droppedTraces = new AtomicLong();
+
+    public TailSamplingSpanHandler(Consumer<MutableSpan> exporter, long slowThresholdMillis,
+                                   double keepProbability, int maxPendingTraces, long maxPendingAgeMillis) {
+        this.exporter = exporter;
+        this.slowThresholdMicros = slowThresholdMillis * 1000;
+        this.keepProbability = keepProbability;
+        this.maxPendingTraces = maxPendingTraces;
+        this.maxPendingAgeNanos = maxPendingAgeMillis * 1_000_000;
+    }
+
+    @Override
+    public boolean end(TraceContext context, MutableSpan span, Cause cause) {
+        if (cause != Cause.FINISHED) {
+            return true;
+        }
+        if (endCount.incrementAndGet() % SWEEP_EVERY == 0) {
+            sweep();
+        }
+
+        String traceId = context.traceIdString();
+        if (!context.isLocalRoot()) {
+            // Con el límite alcanzado los hijos se descartan; la raíz se decide igual
+            if (pending.size() < maxPendingTraces || pending.containsKey(traceId)) {
+                pending.computeIfAbsent(traceId, id -> new PendingTrace()).add(span);
+            }
+            return true;
+        }
+
+        PendingTrace children = pending.remove(traceId);
+        if (!shouldKeep(span)) {
+            droppedTraces.incrementAndGet();
+            return true;
+        }
+        keptTraces.incrementAndGet();
+        if (children != null) {
+            children.spans().forEach(exporter);
+        }
+        exporter.accept(span);
+        return true;
+    }
+
+    private boolean shouldKeep(MutableSpan root) {
+        long durationMicros = root.finishTimestamp() - root.startTimestamp();
+        return durationMicros >= slowThresholdMicros
+                || root.error() != null
+                || root.tag("error") != null
+                || ThreadLocalRandom.current().nextDouble() < keepProbability;
+    }
+
+    // Trazas cuya raíz nunca terminó en este proceso (o hijos que terminaron después de la raíz)
+    private void sweep() {
+        long now = System.nanoTime();
+        pending.values().removeIf(trace -> now - trace.createdAtNanos > maxPendingAgeNanos);
+    }
+
+    public long getKeptTraces() {
+        return keptTraces.get();
+    }
+
+    public long getDroppedTraces() {
+        return droppedTraces.get();
+    }
+
+    public int getPendingTraces() {
+        return pending.size();
+    }
+
+    private static final class PendingTrace {
+        private final long createdAtNanos = System.nanoTime();
+        private final List<MutableSpan> spans = new ArrayList<>(8);
+
+        synchronized void add(MutableSpan span) {
+            spans.add(span);
+        }
+
+        synchronized List<MutableSpan> spans() {
+            return new ArrayList<>(spans);
+        }
+    }
+}
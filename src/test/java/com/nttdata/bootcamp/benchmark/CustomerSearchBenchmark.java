@@ -0,0 +1,105 @@
+package com.nttdata.bootcamp.benchmark;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.util.SearchNormalizer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import reactor.core.publisher.Flux;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Benchmark de la búsqueda por prefijo con un millón de clientes.
+ * Solo corre contra un Mongo real:
+ * mvn test -Dtest=CustomerSearchBenchmark -Dbenchmark.mongo.uri=mongodb://localhost:27017/customer_bench
+ * Solo reporta los percentiles; con -Dbenchmark.p99-max-ms=100 además falla si el p99 lo supera.
+ */
+@EnabledIfSystemProperty(named = "benchmark.mongo.uri", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CustomerSearchBenchmark {
+
+    private static final int CUSTOMERS = Integer.getInteger("benchmark.customers", 1_000_000);
+    private static final int QUERIES = 2_000;
+    // Umbral opcional: la latencia depende de la máquina, por eso no hay uno fijo
+    private static final Long P99_MAX_MS = Long.getLong("benchmark.p99-max-ms");
+    private static final String[] NAMES = {"Juan", "María", "José", "Rosa", "Luis", "Ana", "Carlos", "Lucía",
+            "Jorge", "Elena", "Miguel", "Sofía", "Pedro", "Carmen", "Raúl", "Inés"};
+    private static final String[] SURNAMES = {"Pérez", "García", "Rodríguez", "Quispe", "Flores", "Sánchez",
+            "Ramírez", "Torres", "Díaz", "Vásquez", "Castillo", "Mendoza", "Chávez", "Romero", "Núñez", "Odar"};
+
+    private MongoClient client;
+    private ReactiveMongoTemplate template;
+
+    @BeforeAll
+    void loadData() {
+        client = MongoClients.create(System.getProperty("benchmark.mongo.uri"));
+        template = new ReactiveMongoTemplate(client, "customer_bench");
+        template.dropCollection(Customer.class).block();
+        template.indexOps(Customer.class).ensureIndex(new Index().on("searchKeys", Sort.Direction.ASC)).block();
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        Flux.range(0, CUSTOMERS)
+                .map(i -> {
+                    Customer c = new Customer();
+                    c.setDni(String.format("%08d", i));
+                    c.setName(NAMES[random.nextInt(NAMES.length)]);
+                    c.setSurName(SURNAMES[random.nextInt(SURNAMES.length)] + " " + Integer.toString(i, 36));
+                    c.setSearchKeys(SearchNormalizer.searchKeys(c));
+                    return c;
+                })
+                .buffer(5_000)
+                .flatMap(batch -> template.insert(batch, Customer.class).then(), 4)
+                .blockLast();
+        System.out.printf("Carga de %d clientes: %d ms%n", CUSTOMERS,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @AfterAll
+    void tearDown() {
+        template.dropCollection(Customer.class).block();
+        client.close();
+    }
+
+    @Test
+    void prefixSearchTop10() {
+        Random random = new Random(7);
+        long[] latencies = new long[QUERIES];
+
+        for (int i = 0; i < QUERIES; i++) {
+            String word = SearchNormalizer.normalize(SURNAMES[random.nextInt(SURNAMES.length)]);
+            String prefix = word.substring(0, 2 + random.nextInt(word.length() - 1));
+            Query query = new Query(Criteria.where("searchKeys").regex("^" + prefix)).limit(10);
+
+            long start = System.nanoTime();
+            List<Customer> found = template.find(query, Customer.class).collectList().block();
+            latencies[i] = System.nanoTime() - start;
+            assertTrue(found != null && !found.isEmpty());
+        }
+
+        Arrays.sort(latencies);
+        long p99 = latencies[QUERIES * 99 / 100];
+        System.out.printf("Búsqueda top-10 sobre %d clientes: p50=%.2f ms p95=%.2f ms p99=%.2f ms max=%.2f ms%n",
+                CUSTOMERS, latencies[QUERIES / 2] / 1e6, latencies[QUERIES * 95 / 100] / 1e6, p99 / 1e6,
+                latencies[QUERIES - 1] / 1e6);
+        if (P99_MAX_MS != null) {
+            assertTrue(p99 < TimeUnit.MILLISECONDS.toNanos(P99_MAX_MS),
+                    String.format("p99=%.2f ms supera %d ms", p99 / 1e6, P99_MAX_MS));
+        }
+    }
+}
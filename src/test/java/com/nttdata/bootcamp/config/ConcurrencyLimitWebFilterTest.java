@@ -0,0 +1,54 @@
+package com.nttdata.bootcamp.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ConcurrencyLimitWebFilterTest {
+
+    private ConcurrencyLimitWebFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ConcurrencyLimitWebFilter(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(filter, "excludedPaths",
+                Arrays.asList("/customer/export", "/customer/status/bulk", "GET /customer/"));
+        ReflectionTestUtils.setField(filter, "minLimit", 4);
+        ReflectionTestUtils.setField(filter, "smoothing", 0.2);
+        ReflectionTestUtils.setField(filter, "rttTolerance", 1.5);
+        ReflectionTestUtils.setField(filter, "readInitialLimit", 100);
+        ReflectionTestUtils.setField(filter, "readMaxLimit", 1_000);
+        ReflectionTestUtils.setField(filter, "writeInitialLimit", 40);
+        ReflectionTestUtils.setField(filter, "writeMaxLimit", 400);
+        ReflectionTestUtils.setField(filter, "authInitialLimit", 20);
+        ReflectionTestUtils.setField(filter, "authMaxLimit", 200);
+        filter.init();
+    }
+
+    @Test
+    void streamingRoutesAreOutsideTheLimiter() {
+        assertNull(group(HttpMethod.GET, "/customer/"));
+        assertNull(group(HttpMethod.GET, "/customer/export"));
+        assertNull(group(HttpMethod.PUT, "/customer/status/bulk"));
+    }
+
+    @Test
+    void methodPrefixExcludesOnlyThatMethod() {
+        assertEquals(ConcurrencyLimitWebFilter.RouteGroup.WRITE, group(HttpMethod.POST, "/customer/"));
+        assertEquals(ConcurrencyLimitWebFilter.RouteGroup.READ, group(HttpMethod.GET, "/customer/findByClient/12345678"));
+        assertEquals(ConcurrencyLimitWebFilter.RouteGroup.AUTH, group(HttpMethod.POST, "/auth/login"));
+    }
+
+    private ConcurrencyLimitWebFilter.RouteGroup group(HttpMethod method, String path) {
+        return filter.routeGroup(MockServerWebExchange.from(MockServerHttpRequest.method(method, path)));
+    }
+}
@@ -0,0 +1,171 @@
+package com.nttdata.bootcamp.controller;
+
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
+import com.nttdata.bootcamp.service.CustomerService;
+import com.nttdata.bootcamp.util.JwtUtil;
+import io.rsocket.core.RSocketServer;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.transport.netty.server.CloseableChannel;
+import io.rsocket.transport.netty.server.TcpServerTransport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.cbor.Jackson2CborDecoder;
+import org.springframework.http.codec.cbor.Jackson2CborEncoder;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.messaging.rsocket.RSocketStrategies;
+import org.springframework.messaging.rsocket.annotation.support.RSocketMessageHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerRSocketControllerTest {
+
+    private static final String VALID_TOKEN = "valid-jwt";
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final RSocketStrategies strategies = RSocketStrategies.builder()
+            .encoders(encoders -> encoders.add(new Jackson2CborEncoder()))
+            .decoders(decoders -> decoders.add(new Jackson2CborDecoder()))
+            .build();
+
+    private CustomerService customerService;
+    private JwtUtil jwtUtil;
+    private CloseableChannel server;
+    private RSocketRequester requester;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        customerService = mock(CustomerService.class);
+        jwtUtil = mock(JwtUtil.class);
+        when(jwtUtil.validateToken(anyString())).thenReturn(false);
+        when(jwtUtil.validateToken(VALID_TOKEN)).thenReturn(true);
+        when(jwtUtil.getUsernameFromToken(VALID_TOKEN)).thenReturn("accounts-service");
+
+        CustomerRSocketController controller = new CustomerRSocketController();
+        ReflectionTestUtils.setField(controller, "customerService", customerService);
+        ReflectionTestUtils.setField(controller, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(controller, "channelConcurrency", 4);
+
+        RSocketMessageHandler handler = new RSocketMessageHandler();
+        handler.setRSocketStrategies(strategies);
+        handler.setHandlers(Collections.singletonList(controller));
+        handler.afterPropertiesSet();
+
+        server = RSocketServer.create(handler.responder())
+                .bind(TcpServerTransport.create("127.0.0.1", 0))
+                .block(TIMEOUT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (requester != null) {
+            requester.rsocketClient().dispose();
+        }
+        server.dispose();
+    }
+
+    @Test
+    void requestResponseRoutes() {
+        when(customerService.findByDni("12345678")).thenReturn(Mono.just(customer("1", "12345678", null)));
+        when(customerService.findByRuc("20123456789")).thenReturn(Mono.just(customer("2", null, "20123456789")));
+        requester = connect(VALID_TOKEN);
+
+        assertEquals("1", requester.route("customer.by-dni").data("12345678")
+                .retrieveMono(Customer.class).block(TIMEOUT).getId());
+        assertEquals("2", requester.route("customer.by-ruc").data("20123456789")
+                .retrieveMono(Customer.class).block(TIMEOUT).getId());
+    }
+
+    @Test
+    void notFoundIsSentAsApplicationError() {
+        when(customerService.findByDni("00000000")).thenReturn(Mono.error(new CustomerNotFoundException("00000000")));
+        requester = connect(VALID_TOKEN);
+
+        assertThrows(ApplicationErrorException.class, () -> requester.route("customer.by-dni").data("00000000")
+                .retrieveMono(Customer.class).block(TIMEOUT));
+    }
+
+    @Test
+    void requestStreamReturnsEveryCustomer() {
+        when(customerService.findAll()).thenReturn(Flux.range(0, 50)
+                .map(i -> customer(String.valueOf(i), String.format("%08d", i), null)));
+        requester = connect(VALID_TOKEN);
+
+        List<Customer> customers = requester.route("customer.all")
+                .retrieveFlux(Customer.class).collectList().block(TIMEOUT);
+
+        assertEquals(50, customers.size());
+        assertEquals("00000049", customers.get(49).getDni());
+    }
+
+    @Test
+    void requestChannelKeepsOrderAndSkipsUnknownDnis() {
+        // El primero tarda más: flatMapSequential igual debe responder en el orden de entrada
+        when(customerService.findByDni("11111111"))
+                .thenReturn(Mono.just(customer("1", "11111111", null)).delayElement(Duration.ofMillis(100)));
+        when(customerService.findByDni("22222222")).thenReturn(Mono.error(new CustomerNotFoundException("22222222")));
+        when(customerService.findByDni("33333333")).thenReturn(Mono.just(customer("3", "33333333", null)));
+        requester = connect(VALID_TOKEN);
+
+        List<Customer> customers = requester.route("customer.by-dnis")
+                .data(Flux.just("11111111", "22222222", "33333333"))
+                .retrieveFlux(Customer.class).collectList().block(TIMEOUT);
+
+        assertEquals(Arrays.asList("11111111", "33333333"),
+                customers.stream().map(Customer::getDni).collect(Collectors.toList()));
+    }
+
+    @Test
+    void setupWithInvalidTokenIsRejected() {
+        requester = connect("expired-jwt");
+
+        assertThrows(RejectedSetupException.class, () -> requester.route("customer.by-dni").data("12345678")
+                .retrieveMono(Customer.class).block(TIMEOUT));
+        verify(customerService, never()).findByDni(anyString());
+    }
+
+    @Test
+    void setupWithoutTokenIsRejected() {
+        requester = connect(null);
+
+        assertThrows(RejectedSetupException.class, () -> requester.route("customer.by-dni").data("12345678")
+                .retrieveMono(Customer.class).block(TIMEOUT));
+        verify(customerService, never()).findByDni(anyString());
+    }
+
+    private RSocketRequester connect(String token) {
+        RSocketRequester.Builder builder = RSocketRequester.builder()
+                .rsocketStrategies(strategies)
+                .dataMimeType(MediaType.APPLICATION_CBOR);
+        if (token != null) {
+            builder.setupData(token);
+        }
+        return builder.tcp(server.address().getHostString(), server.address().getPort());
+    }
+
+    private static Customer customer(String id, String dni, String ruc) {
+        Customer customer = new Customer();
+        customer.setId(id);
+        customer.setDni(dni);
+        customer.setRuc(ruc);
+        return customer;
+    }
+}
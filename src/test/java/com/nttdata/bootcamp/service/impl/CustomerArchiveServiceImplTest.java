@@ -0,0 +1,253 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import com.nttdata.bootcamp.service.RedisCacheService;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerArchiveServiceImplTest {
+
+    private static final String HOT = "customer";
+    private static final String ARCHIVE = CustomerArchiveServiceImpl.ARCHIVE_COLLECTION;
+    private static final Date OLD = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(400));
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private RedisCacheService redisCacheService;
+    private CustomerHistoryService customerHistoryService;
+    private CustomerWriteBehindService customerWriteBehindService;
+    private CustomerArchiveServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        // spy: los tests intercalan cambios entre la copia al archivo y el borrado de customer
+        mongoTemplate = spy(new ReactiveMongoTemplate(mongoClient, "test"));
+        redisCacheService = mock(RedisCacheService.class);
+        when(redisCacheService.evictCustomers(anyList())).thenReturn(Mono.just(0L));
+        customerHistoryService = mock(CustomerHistoryService.class);
+        customerWriteBehindService = mock(CustomerWriteBehindService.class);
+        when(customerWriteBehindService.pendingIds(anyCollection())).thenReturn(Mono.just(Collections.emptySet()));
+        DependencyGuard dependencyGuard = new DependencyGuard(CircuitBreakerRegistry.ofDefaults(),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(10)).build()),
+                BulkheadRegistry.ofDefaults());
+        service = new CustomerArchiveServiceImpl(mongoTemplate, redisCacheService, customerHistoryService,
+                customerWriteBehindService, dependencyGuard, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "inactiveDays", 365L);
+        ReflectionTestUtils.setField(service, "batchSize", 10);
+        ReflectionTestUtils.setField(service, "batchDelayMs", 0L);
+        ReflectionTestUtils.setField(service, "maxPerRun", 1_000L);
+        service.registerMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void onlyOldInactiveCustomersAreMoved() {
+        ObjectId archived = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        ObjectId recent = insert("22222222", Constant.CUSTOMER_INACTIVE, new Date());
+        ObjectId active = insert("33333333", Constant.CUSTOMER_ACTIVE, OLD);
+
+        assertEquals(1L, service.archiveInactive().block());
+
+        assertNull(find(HOT, archived));
+        Document copy = find(ARCHIVE, archived);
+        assertNotNull(copy);
+        assertEquals("11111111", copy.getString("dni"));
+        assertNotNull(copy.getDate("archivedAt"));
+        assertNotNull(find(HOT, recent));
+        assertNotNull(find(HOT, active));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Customer>> evicted = ArgumentCaptor.forClass(List.class);
+        verify(redisCacheService).evictCustomers(evicted.capture());
+        assertEquals(1, evicted.getValue().size());
+        assertEquals("11111111", evicted.getValue().get(0).getDni());
+    }
+
+    @Test
+    void customerReactivatedDuringTheBatchStaysHot() {
+        ObjectId id = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        // Se reactiva después de la copia y antes del borrado condicional
+        beforeHotRemove(mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                Update.update("status", Constant.CUSTOMER_ACTIVE).set("modificationDate", new Date()), HOT).then());
+
+        assertEquals(0L, service.archiveInactive().block());
+
+        assertEquals(Constant.CUSTOMER_ACTIVE, find(HOT, id).getString("status"));
+        assertNull(find(ARCHIVE, id));
+    }
+
+    @Test
+    void customerWithPendingWriteBehindUpdateIsNotMoved() {
+        ReflectionTestUtils.setField(service, "batchSize", 1);
+        ObjectId pending = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        ObjectId idle = insert("22222222", Constant.CUSTOMER_INACTIVE, OLD);
+        when(customerWriteBehindService.pendingIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> ids = invocation.getArgument(0);
+            return Mono.just(ids.contains(pending.toHexString())
+                    ? Collections.singleton(pending.toHexString())
+                    : Collections.<String>emptySet());
+        });
+
+        // El pendiente se salta y la ejecución sigue con el resto, sin volver a leerlo
+        assertEquals(1L, service.archiveInactive().block());
+
+        assertNotNull(find(HOT, pending));
+        assertNull(find(ARCHIVE, pending));
+        assertNull(find(HOT, idle));
+        assertNotNull(find(ARCHIVE, idle));
+    }
+
+    @Test
+    void restoreMovesTheCustomerBackToTheHotTier() {
+        ObjectId id = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        service.archiveInactive().block();
+
+        Customer restored = service.findArchivedByDni("11111111").flatMap(service::restore).block();
+
+        assertNotNull(restored);
+        assertEquals(id.toHexString(), restored.getId());
+        assertTrue(restored.getModificationDate().after(OLD));
+        Document hot = find(HOT, id);
+        assertNotNull(hot);
+        assertNull(hot.get("archivedAt"));
+        assertNull(find(ARCHIVE, id));
+        verify(customerHistoryService).record(argThat(change -> "RESTORE".equals(change.getOperation())
+                && ARCHIVE.equals(change.getOldValue()) && HOT.equals(change.getNewValue())));
+        // La fecha renovada evita que el siguiente archivado lo vuelva a mover
+        assertEquals(0L, service.archiveInactive().block());
+    }
+
+    @Test
+    void repeatedRestoreKeepsLaterUpdates() {
+        ObjectId id = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        service.archiveInactive().block();
+        Customer archived = service.findArchivedByDni("11111111").block();
+
+        // Dos restauraciones simultáneas del mismo cliente dejan un único documento
+        Flux.merge(service.restore(archived), service.restore(archived)).collectList().block();
+        mongoTemplate.updateFirst(Query.query(Criteria.where("_id").is(id)),
+                Update.update("address", "Av. Nueva 123"), HOT).block();
+        // Una restauración tardía ya no encuentra el archivado y no pisa la actualización
+        assertNull(service.restore(archived).block());
+
+        assertEquals(1L, mongoTemplate.count(new Query(), HOT).block());
+        assertEquals("Av. Nueva 123", find(HOT, id).getString("address"));
+        assertEquals(0L, mongoTemplate.count(new Query(), ARCHIVE).block());
+    }
+
+    @Test
+    void restoreDuringTheArchiveWindowKeepsTheCustomerHot() {
+        ObjectId id = insert("11111111", Constant.CUSTOMER_INACTIVE, OLD);
+        // El cliente ya está copiado al archivo y aún en customer cuando llega la restauración
+        beforeHotRemove(Mono.defer(() -> service.findArchivedByDni("11111111").flatMap(service::restore)).then());
+
+        assertEquals(0L, service.archiveInactive().block());
+
+        Document hot = find(HOT, id);
+        assertNotNull(hot);
+        assertTrue(hot.getDate("modificationDate").after(OLD));
+        assertNull(find(ARCHIVE, id));
+    }
+
+    @Test
+    void withArchivedMergesBothTiersInDniOrder() {
+        insert("22222222", Constant.CUSTOMER_INACTIVE, OLD);
+        insert("44444444", Constant.CUSTOMER_INACTIVE, OLD);
+        service.archiveInactive().block();
+        insert("11111111", Constant.CUSTOMER_ACTIVE, OLD);
+        insert("33333333", Constant.CUSTOMER_ACTIVE, OLD);
+        // Copiado al archivo y aún en customer (ventana del job): sale una vez
+        ObjectId both = insert("55555555", Constant.CUSTOMER_ACTIVE, OLD);
+        mongoTemplate.insert(find(HOT, both), ARCHIVE).block();
+
+        Query query = Query.query(Criteria.where("deletedAt").is(null)).with(Sort.by("dni", "id"));
+        List<String> dnis = service.withArchived(mongoTemplate.find(query, Customer.class), query)
+                .map(Customer::getDni)
+                .collectList().block();
+
+        assertEquals(Arrays.asList("11111111", "22222222", "33333333", "44444444", "55555555"), dnis);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void beforeHotRemove(Mono<Void> interleaved) {
+        doAnswer(invocation -> interleaved.then((Mono<DeleteResult>) invocation.callRealMethod()))
+                .when(mongoTemplate).remove(any(Query.class), eq(HOT));
+    }
+
+    private ObjectId insert(String dni, String status, Date modificationDate) {
+        ObjectId id = new ObjectId();
+        mongoTemplate.insert(new Document("_id", id)
+                .append("dni", dni)
+                .append("typeCustomer", Constant.PERSONAL_CUSTOMER)
+                .append("name", "Cliente " + dni)
+                .append("address", "Av. Antigua 1")
+                .append("status", status)
+                .append("creationDate", OLD)
+                .append("modificationDate", modificationDate), HOT).block();
+        return id;
+    }
+
+    private Document find(String collection, ObjectId id) {
+        return mongoTemplate.findById(id, Document.class, collection).block();
+    }
+}
@@ -0,0 +1,149 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.entity.CustomerChange;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.CollectionOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.ReactiveIndexOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CustomerHistoryServiceImplTest {
+
+    private final List<Integer> insertedBatches = new CopyOnWriteArrayList<>();
+    private ReactiveMongoTemplate mongoTemplate;
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        mongoTemplate = mock(ReactiveMongoTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+        ReactiveIndexOperations indexOperations = mock(ReactiveIndexOperations.class);
+        when(mongoTemplate.collectionExists(CustomerChange.class)).thenReturn(Mono.just(true));
+        when(mongoTemplate.createCollection(eq(CustomerChange.class), any(CollectionOptions.class))).thenReturn(Mono.empty());
+        when(mongoTemplate.indexOps(CustomerChange.class)).thenReturn(indexOperations);
+        when(indexOperations.ensureIndex(any(IndexDefinition.class))).thenReturn(Mono.just("dni_1_changedAt_-1"));
+        when(mongoTemplate.insert(anyCollection(), eq(CustomerChange.class))).thenAnswer(invocation -> {
+            Collection<?> batch = invocation.getArgument(0);
+            insertedBatches.add(batch.size());
+            return Flux.fromIterable(new ArrayList<>(batch));
+        });
+    }
+
+    @Test
+    void changesAreInsertedInBatches() {
+        CustomerHistoryServiceImpl service = service(100, 10, 60_000);
+        service.start();
+
+        for (int i = 0; i < 25; i++) {
+            service.record(change(i));
+        }
+        service.stop();
+
+        // Dos lotes llenos por tamaño y el resto al completar en el apagado
+        assertEquals(List.of(10, 10, 5), insertedBatches);
+        assertEquals(0, meterRegistry.get("customer.history.pending").gauge().value());
+    }
+
+    @Test
+    void fullQueueDropsInsteadOfBlocking() {
+        // Sin volcado en marcha la cola no se vacía
+        CustomerHistoryServiceImpl service = service(5, 10, 60_000);
+
+        for (int i = 0; i < 8; i++) {
+            service.record(change(i));
+        }
+
+        assertEquals(3, meterRegistry.get("customer.history.dropped").counter().count());
+        assertEquals(5, meterRegistry.get("customer.history.pending").gauge().value());
+    }
+
+    @Test
+    void concurrentRecordersAreNotLost() throws InterruptedException {
+        CustomerHistoryServiceImpl service = service(100_000, 500, 50);
+        service.start();
+        int threads = 8;
+        int perThread = 2_000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    service.record(change(offset + i));
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        service.stop();
+
+        assertEquals(threads * perThread, insertedBatches.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(0, meterRegistry.get("customer.history.dropped").counter().count());
+    }
+
+    @Test
+    void slowWriterKeepsDrainingWithoutOverflow() throws InterruptedException {
+        // Mongo más lento que los productores: los avisos de lote llegan sin demanda del escritor
+        when(mongoTemplate.insert(anyCollection(), eq(CustomerChange.class))).thenAnswer(invocation -> {
+            Collection<?> batch = invocation.getArgument(0);
+            insertedBatches.add(batch.size());
+            return Flux.fromIterable(new ArrayList<>(batch)).delaySubscription(Duration.ofMillis(20));
+        });
+        CustomerHistoryServiceImpl service = service(1_000, 10, 5);
+        service.start();
+
+        for (int i = 0; i < 300; i++) {
+            service.record(change(i));
+            if (i % 10 == 0) {
+                Thread.sleep(2);
+            }
+        }
+        service.stop();
+
+        assertEquals(300, insertedBatches.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(insertedBatches.stream().allMatch(size -> size <= 10));
+        assertEquals(0, meterRegistry.get("customer.history.dropped").counter().count());
+    }
+
+    private CustomerHistoryServiceImpl service(int queueCapacity, int batchSize, long flushIntervalMs) {
+        CustomerHistoryServiceImpl service = new CustomerHistoryServiceImpl(mongoTemplate,
+                mock(DependencyGuard.class), meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "storage", "timeseries");
+        ReflectionTestUtils.setField(service, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(service, "batchSize", batchSize);
+        ReflectionTestUtils.setField(service, "flushIntervalMs", flushIntervalMs);
+        ReflectionTestUtils.setField(service, "maxRetries", 0);
+        ReflectionTestUtils.setField(service, "shutdownTimeoutMs", 5_000L);
+        service.init();
+        return service;
+    }
+
+    private static CustomerChange change(int i) {
+        return new CustomerChange(String.format("%08d", i), "status", "ACTIVE", "INACTIVE",
+                new Date(), "UPDATE_STATUS");
+    }
+}
@@ -0,0 +1,113 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.util.Constant;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class CustomerPurgeServiceImplTest {
+
+    private static final long GRACE_SECONDS = 3_600;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private CustomerPurgeServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        // spy: los tests cuentan los lotes leídos
+        mongoTemplate = spy(new ReactiveMongoTemplate(mongoClient, "test"));
+        service = new CustomerPurgeServiceImpl(mongoTemplate);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "graceSeconds", GRACE_SECONDS);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void onlyTombstonesOlderThanTheGracePeriodAreRemoved() {
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(GRACE_SECONDS * 2));
+        ObjectId expired = insert("11111111", old);
+        ObjectId recent = insert("22222222", new Date());
+        ObjectId live = insert("33333333", null);
+
+        assertEquals(1L, service.purgeTombstones().block());
+
+        assertNull(find(expired));
+        // Dentro del período de gracia las lecturas tardías aún ven el borrado lógico
+        assertNotNull(find(recent));
+        assertNotNull(find(live));
+    }
+
+    @Test
+    void stopsAfterAShortBatch() {
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(GRACE_SECONDS * 2));
+        for (int i = 0; i < 5; i++) {
+            insert("1000000" + i, old);
+        }
+
+        // Lotes de 2, 2 y 1: el tercero viene incompleto y no se pide otro
+        assertEquals(5L, service.purgeTombstones().block());
+
+        assertEquals(0L, mongoTemplate.count(new Query(), "customer").block());
+        verify(mongoTemplate, times(3)).find(any(Query.class), eq(Customer.class));
+    }
+
+    @Test
+    void fullLastBatchEndsWithAnEmptyRead() {
+        Date old = new Date(System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(GRACE_SECONDS * 2));
+        for (int i = 0; i < 4; i++) {
+            insert("1000000" + i, old);
+        }
+
+        assertEquals(4L, service.purgeTombstones().block());
+
+        verify(mongoTemplate, times(3)).find(any(Query.class), eq(Customer.class));
+    }
+
+    private ObjectId insert(String dni, Date deletedAt) {
+        ObjectId id = new ObjectId();
+        mongoTemplate.insert(new Document("_id", id)
+                .append("dni", dni)
+                .append("typeCustomer", Constant.PERSONAL_CUSTOMER)
+                .append("status", Constant.CUSTOMER_ACTIVE)
+                .append("deletedAt", deletedAt), "customer").block();
+        return id;
+    }
+
+    private Document find(ObjectId id) {
+        return mongoTemplate.findById(id, Document.class, "customer").block();
+    }
+}
@@ -0,0 +1,256 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.entity.dto.BulkStatusProgressDto;
+import com.nttdata.bootcamp.repository.CustomerRepository;
+import com.nttdata.bootcamp.service.CustomerHistoryService;
+import com.nttdata.bootcamp.service.CustomerStatsService;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import com.nttdata.bootcamp.util.Constant;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Cambio de estado masivo contra Mongo y Redis embebidos: cada bloque actualiza, registra
+ * el historial e invalida la caché antes de emitir su avance; las estadísticas se
+ * reconcilian una sola vez al terminar.
+ */
+class CustomerServiceImplBulkStatusTest {
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private RedisCacheServiceImpl redisCacheService;
+    private CustomerHistoryService customerHistoryService;
+    private CustomerStatsService customerStatsService;
+    private CustomerWriteBehindService customerWriteBehindService;
+    private CustomerServiceImpl service;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).bind("127.0.0.1").build();
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new ReactiveMongoTemplate(mongoClient, "test");
+        DependencyGuard dependencyGuard = new DependencyGuard(CircuitBreakerRegistry.ofDefaults(),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(10)).build()),
+                BulkheadRegistry.ofDefaults());
+
+        ReactiveRedisTemplate<String, Object> redisTemplate = new ReactiveRedisTemplate<>(connectionFactory,
+                RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
+                        .value(new GenericJackson2JsonRedisSerializer())
+                        .build());
+        customerWriteBehindService = mock(CustomerWriteBehindService.class);
+        when(customerWriteBehindService.isPending(anyString())).thenReturn(Mono.just(false));
+        when(customerWriteBehindService.discard(any(), eq("status"))).thenReturn(Mono.just(0L));
+        redisCacheService = new RedisCacheServiceImpl(redisTemplate, redisTemplate,
+                new ReactiveStringRedisTemplate(connectionFactory), dependencyGuard, mock(CustomerRepository.class),
+                customerWriteBehindService, new ObjectMapper());
+        ReflectionTestUtils.setField(redisCacheService, "sessiondataTTL", 600);
+        ReflectionTestUtils.setField(redisCacheService, "ttlJitterPercent", 0);
+        ReflectionTestUtils.setField(redisCacheService, "refreshAheadEnabled", false);
+        ReflectionTestUtils.setField(redisCacheService, "passthroughEnabled", false);
+        ReflectionTestUtils.setField(redisCacheService, "passthroughKeyPrefix", "json:");
+        ReflectionTestUtils.setField(redisCacheService, "rucKeyPrefix", "ruc:");
+        ReflectionTestUtils.setField(redisCacheService, "idKeyPrefix", "id:");
+        ReflectionTestUtils.setField(redisCacheService, "namespace", "customer:cache:");
+        ReflectionTestUtils.setField(redisCacheService, "generationEnabled", false);
+        ReflectionTestUtils.setField(redisCacheService, "layout", "string");
+        ReflectionTestUtils.setField(redisCacheService, "tombstoneTtlSeconds", 300L);
+
+        customerHistoryService = mock(CustomerHistoryService.class);
+        customerStatsService = mock(CustomerStatsService.class);
+        when(customerStatsService.reconcile()).thenReturn(Mono.empty());
+
+        service = new CustomerServiceImpl();
+        ReflectionTestUtils.setField(service, "reactiveMongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "redisCacheService", redisCacheService);
+        ReflectionTestUtils.setField(service, "customerHistoryService", customerHistoryService);
+        ReflectionTestUtils.setField(service, "customerStatsService", customerStatsService);
+        ReflectionTestUtils.setField(service, "customerWriteBehindService", customerWriteBehindService);
+        ReflectionTestUtils.setField(service, "dependencyGuard", dependencyGuard);
+        ReflectionTestUtils.setField(service, "bulkStatusChunkSize", 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.getConnection().serverCommands().flushAll();
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void eachChunkIsAppliedBeforeItsProgressIsEmitted() throws InterruptedException {
+        insert("10000001", Constant.CUSTOMER_ACTIVE);
+        insert("10000002", Constant.CUSTOMER_ACTIVE);
+        insert("10000003", Constant.CUSTOMER_ACTIVE);
+        insert("10000004", Constant.CUSTOMER_ACTIVE);
+        insert("10000005", Constant.CUSTOMER_INACTIVE);
+
+        // Los DNIs llegan de a uno, como el cuerpo de la petición: el bloque siguiente no existe aún
+        Sinks.Many<String> dnis = Sinks.many().unicast().onBackpressureBuffer();
+        List<BulkStatusProgressDto> progress = new CopyOnWriteArrayList<>();
+        CountDownLatch completed = new CountDownLatch(1);
+        Disposable subscription = service.bulkUpdateStatus(dnis.asFlux(), Constant.CUSTOMER_INACTIVE)
+                .doFinally(signal -> completed.countDown())
+                .subscribe(progress::add);
+        try {
+            dnis.tryEmitNext("10000001");
+            dnis.tryEmitNext(" 10000002 ");
+            await(() -> progress.size() == 1);
+
+            assertEquals(new BulkStatusProgressDto(1, 2, 2, 2, 2, 2, progress.get(0).getElapsedMs()), progress.get(0));
+            assertStatus("10000001", Constant.CUSTOMER_INACTIVE);
+            assertStatus("10000003", Constant.CUSTOMER_ACTIVE);
+            verify(customerHistoryService, times(2)).record(any());
+            verify(customerHistoryService).record(argThat(change -> "10000001".equals(change.getDni())
+                    && Constant.CUSTOMER_ACTIVE.equals(change.getOldValue())
+                    && Constant.CUSTOMER_INACTIVE.equals(change.getNewValue())
+                    && "BULK_STATUS".equals(change.getOperation())));
+            assertNull(redisCacheService.retrieveCustomer("10000001").block());
+            assertNotNull(redisCacheService.retrieveCustomer("10000003").block());
+            verify(customerStatsService, never()).reconcile();
+
+            dnis.tryEmitNext("10000003");
+            dnis.tryEmitNext("10000004");
+            await(() -> progress.size() == 2);
+
+            assertEquals(4L, progress.get(1).getTotalModified());
+            assertStatus("10000004", Constant.CUSTOMER_INACTIVE);
+            verify(customerHistoryService, times(4)).record(any());
+            assertNull(redisCacheService.retrieveCustomer("10000003").block());
+            // Los bloques usan el filtro del buffer write-behind antes de actualizar
+            verify(customerWriteBehindService, times(2)).discard(any(), eq("status"));
+
+            // Un cliente que ya tiene el estado destino no cuenta como modificado ni deja historial
+            dnis.tryEmitNext("10000005");
+            dnis.tryEmitComplete();
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+        } finally {
+            subscription.dispose();
+        }
+
+        assertEquals(3, progress.size());
+        assertEquals(0L, progress.get(2).getModified());
+        assertEquals(5L, progress.get(2).getTotalProcessed());
+        verify(customerHistoryService, times(4)).record(any());
+        assertNotNull(redisCacheService.retrieveCustomer("10000005").block());
+        verify(customerStatsService, times(1)).reconcile();
+    }
+
+    @Test
+    void nothingModifiedSkipsTheStatsReconcile() {
+        insert("10000001", Constant.CUSTOMER_INACTIVE);
+        Sinks.Many<String> dnis = Sinks.many().unicast().onBackpressureBuffer();
+        dnis.tryEmitNext("10000001");
+        dnis.tryEmitNext("99999999");
+        dnis.tryEmitComplete();
+
+        List<BulkStatusProgressDto> progress = service.bulkUpdateStatus(dnis.asFlux(), Constant.CUSTOMER_INACTIVE)
+                .collectList().block();
+
+        assertEquals(1, progress.size());
+        assertEquals(0L, progress.get(0).getMatched());
+        verify(customerStatsService, never()).reconcile();
+        verify(customerHistoryService, never()).record(any());
+    }
+
+    private void insert(String dni, String status) {
+        Customer customer = new Customer();
+        customer.setDni(dni);
+        customer.setTypeCustomer(Constant.PERSONAL_CUSTOMER);
+        customer.setName("Cliente " + dni);
+        customer.setStatus(status);
+        customer.setCreationDate(new Date(1_000));
+        customer.setModificationDate(new Date(1_000));
+        Customer saved = mongoTemplate.insert(customer).block();
+        redisCacheService.storeCustomer(saved).block();
+    }
+
+    private void assertStatus(String dni, String status) {
+        Customer customer = mongoTemplate.findOne(Query.query(Criteria.where("dni").is(dni)), Customer.class).block();
+        assertEquals(status, customer.getStatus());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean(), "el bloque no terminó a tiempo");
+    }
+}
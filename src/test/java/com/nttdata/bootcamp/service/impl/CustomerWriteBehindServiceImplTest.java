@@ -0,0 +1,230 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.util.Constant;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+class CustomerWriteBehindServiceImplTest {
+
+    private static final String BUFFER_KEY = "{customer-wb}:buffer";
+    private static final String FLUSHING_KEY = "{customer-wb}:flushing";
+    private static final String DNI = "12345678";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private ReactiveStringRedisTemplate redisTemplate;
+    private MeterRegistry meterRegistry;
+    private CustomerWriteBehindServiceImpl service;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).bind("127.0.0.1").build();
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        // spy: los tests hacen fallar el acceso a Mongo en medio de un volcado
+        mongoTemplate = spy(new ReactiveMongoTemplate(mongoClient, "test"));
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        meterRegistry = new SimpleMeterRegistry();
+        service = new CustomerWriteBehindServiceImpl(redisTemplate, mongoTemplate, meterRegistry);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "bufferKey", BUFFER_KEY);
+        ReflectionTestUtils.setField(service, "flushingKey", FLUSHING_KEY);
+        // Sin volcado por tamaño al encolar: cada test decide cuándo vuelca
+        ReflectionTestUtils.setField(service, "batchSize", 1_000);
+        service.registerMetrics();
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.getConnection().serverCommands().flushAll();
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void updatesOfTheSameCustomerAreCoalesced() {
+        ObjectId id = insert(Constant.PERSONAL_CUSTOMER, null);
+
+        service.enqueue(id.toHexString(), fields("status", "INACTIVE", 1_000)).block();
+        service.enqueue(id.toHexString(), fields("address", "Av. Nueva 123", 2_000)).block();
+        service.enqueue(id.toHexString(), fields("status", "DEBTOR", 3_000)).block();
+
+        assertEquals(1L, redisTemplate.opsForHash().size(BUFFER_KEY).block());
+        assertEquals(1L, service.flush().block());
+
+        Document customer = find(id);
+        assertEquals("DEBTOR", customer.getString("status"));
+        assertEquals("Av. Nueva 123", customer.getString("address"));
+        assertEquals(new Date(3_000), customer.getDate("modificationDate"));
+        assertFalse(service.isPending(id.toHexString()).block());
+        assertEquals(0L, redisTemplate.opsForHash().size(FLUSHING_KEY).block());
+    }
+
+    @Test
+    void flushUpdatesOnlyTheBufferedCustomerOfASharedDni() {
+        ObjectId personal = insert(Constant.PERSONAL_CUSTOMER, null);
+        ObjectId business = insert(Constant.BUSINESS_CUSTOMER, null);
+        ObjectId tombstone = insert(Constant.PERSONAL_CUSTOMER, new Date());
+
+        service.enqueue(business.toHexString(), fields("status", "INACTIVE", 1_000)).block();
+        service.enqueue(tombstone.toHexString(), fields("status", "INACTIVE", 1_000)).block();
+        service.flush().block();
+
+        assertEquals("INACTIVE", find(business).getString("status"));
+        assertEquals("ACTIVE", find(personal).getString("status"));
+        // El tombstone no se toca: la actualización se informa como sin cliente y no se reintenta
+        assertEquals("ACTIVE", find(tombstone).getString("status"));
+        assertEquals(1.0, meterRegistry.get("customer.write-behind.unmatched").counter().count());
+        assertFalse(service.isPending(tombstone.toHexString()).block());
+    }
+
+    @Test
+    void failedFlushResumesFromTheFlushingKey() {
+        List<ObjectId> ids = Arrays.asList(insert(Constant.PERSONAL_CUSTOMER, null),
+                insert(Constant.PERSONAL_CUSTOMER, null), insert(Constant.PERSONAL_CUSTOMER, null),
+                insert(Constant.PERSONAL_CUSTOMER, null));
+        ids.forEach(id -> service.enqueue(id.toHexString(), fields("status", "INACTIVE", 1_000)).block());
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        failMongoOnCall(2);
+
+        // El primer lote se escribe y se borra de la clave de trabajo; el segundo queda pendiente
+        assertEquals(0L, service.flush().block());
+        assertEquals(2L, redisTemplate.opsForHash().size(FLUSHING_KEY).block());
+        assertEquals(2L, ids.stream().filter(id -> "INACTIVE".equals(find(id).getString("status"))).count());
+
+        service.flush().block();
+
+        assertTrue(ids.stream().allMatch(id -> "INACTIVE".equals(find(id).getString("status"))));
+        assertEquals(0L, redisTemplate.opsForHash().size(FLUSHING_KEY).block());
+        assertEquals(0L, redisTemplate.opsForHash().size(BUFFER_KEY).block());
+    }
+
+    @Test
+    void updateEnqueuedDuringAFailedFlushIsAppliedAfterTheResumedOne() {
+        ObjectId id = insert(Constant.PERSONAL_CUSTOMER, null);
+        service.enqueue(id.toHexString(), fields("status", "INACTIVE", 1_000)).block();
+        failMongoOnCall(1);
+        service.flush().block();
+
+        // Llega otra actualización mientras la anterior sigue en la clave de trabajo
+        service.enqueue(id.toHexString(), fields("status", "DEBTOR", 2_000)).block();
+        assertTrue(service.isPending(id.toHexString()).block());
+
+        // Se retoma primero el volcado a medias, sin renombrar el buffer encima
+        service.flush().block();
+        assertEquals("INACTIVE", find(id).getString("status"));
+        assertEquals(1L, redisTemplate.opsForHash().size(BUFFER_KEY).block());
+
+        service.flush().block();
+        assertEquals("DEBTOR", find(id).getString("status"));
+        assertEquals(new Date(2_000), find(id).getDate("modificationDate"));
+        assertFalse(service.isPending(id.toHexString()).block());
+    }
+
+    @Test
+    void discardDropsOnlyTheGivenField() {
+        String both = new ObjectId().toHexString();
+        String statusOnly = new ObjectId().toHexString();
+        service.enqueue(both, fields("status", "INACTIVE", 1_000)).block();
+        service.enqueue(both, fields("address", "Av. Nueva 123", 2_000)).block();
+        service.enqueue(statusOnly, fields("status", "INACTIVE", 1_000)).block();
+
+        assertEquals(2L, service.discard(Arrays.asList(both, statusOnly), "status").block());
+
+        String pending = (String) redisTemplate.opsForHash().get(BUFFER_KEY, both).block();
+        assertTrue(pending.contains("Av. Nueva 123"));
+        assertFalse(pending.contains("INACTIVE"));
+        assertNull(redisTemplate.opsForHash().get(BUFFER_KEY, statusOnly).block());
+        assertEquals(Set.of(both), service.pendingIds(Arrays.asList(both, statusOnly)).block());
+    }
+
+    // La llamada n-ésima a getCollection (una por lote) falla como si Mongo no respondiera
+    private void failMongoOnCall(int failingCall) {
+        AtomicInteger calls = new AtomicInteger();
+        doAnswer(invocation -> calls.incrementAndGet() == failingCall
+                ? Mono.error(new IllegalStateException("Mongo no disponible"))
+                : invocation.callRealMethod())
+                .when(mongoTemplate).getCollection(anyString());
+    }
+
+    private ObjectId insert(String typeCustomer, Date deletedAt) {
+        ObjectId id = new ObjectId();
+        mongoTemplate.insert(new Document("_id", id)
+                .append("dni", DNI)
+                .append("typeCustomer", typeCustomer)
+                .append("status", "ACTIVE")
+                .append("address", "Av. Antigua 1")
+                .append("deletedAt", deletedAt), "customer").block();
+        return id;
+    }
+
+    private Document find(ObjectId id) {
+        return mongoTemplate.findById(id, Document.class, "customer").block();
+    }
+
+    private static Map<String, Object> fields(String field, Object value, long modificationDate) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(field, value);
+        fields.put("modificationDate", modificationDate);
+        return fields;
+    }
+}
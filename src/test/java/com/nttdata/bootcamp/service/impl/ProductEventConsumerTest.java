@@ -0,0 +1,155 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.nttdata.bootcamp.config.KafkaConsumerConfig;
+import com.nttdata.bootcamp.entity.CustomerProductSummary;
+import com.nttdata.bootcamp.entity.dto.ProductDto;
+import com.nttdata.bootcamp.entity.enums.EventType;
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import com.nttdata.bootcamp.service.ProductSummaryService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProductEventConsumerTest {
+
+    private static final String TOPIC = "topic_product";
+
+    private static EmbeddedKafkaBroker broker;
+
+    @BeforeAll
+    static void startBroker() {
+        broker = new EmbeddedKafkaBroker(1, true, 1, TOPIC);
+        broker.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopBroker() {
+        broker.destroy();
+    }
+
+    @Test
+    void appliesBatchesAndSkipsUnreadableMessages() throws Exception {
+        Map<String, Object> producerProps = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        try (KafkaProducer<String, Object> producer = new KafkaProducer<>(producerProps)) {
+            producer.send(new ProducerRecord<>(TOPIC, "111", event("e1", "111", "ACC-1", 100))).get();
+            producer.send(new ProducerRecord<>(TOPIC, "111", event("e2", "111", "ACC-1", 150))).get();
+            producer.send(new ProducerRecord<>(TOPIC, "222", event("e3", "222", "ACC-2", 50))).get();
+        }
+        Map<String, Object> rawProps = Map.of(
+                ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, broker.getBrokersAsString(),
+                ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class);
+        try (KafkaProducer<String, byte[]> producer = new KafkaProducer<>(rawProps)) {
+            producer.send(new ProducerRecord<>(TOPIC, "333", "not-json".getBytes(StandardCharsets.UTF_8))).get();
+        }
+
+        List<ProductEventKafka> applied = new CopyOnWriteArrayList<>();
+        ProductSummaryService summaryService = new ProductSummaryService() {
+            @Override
+            public Mono<CustomerProductSummary> findByDni(String dni) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Mono<Void> apply(List<ProductEventKafka> events) {
+                return Mono.fromRunnable(() -> applied.addAll(events));
+            }
+        };
+        ProductEventConsumer consumer = new ProductEventConsumer(new KafkaConsumerConfig()
+                .productEventReceiverOptions(broker.getBrokersAsString(), TOPIC, "test-group"), summaryService);
+        ReflectionTestUtils.setField(consumer, "batchSize", 10);
+        ReflectionTestUtils.setField(consumer, "batchTimeoutMs", 200L);
+
+        Disposable subscription = consumer.consume().subscribe();
+        try {
+            long deadline = System.currentTimeMillis() + 30_000;
+            while (applied.size() < 3 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } finally {
+            subscription.dispose();
+        }
+
+        assertEquals(3, applied.size());
+        assertEquals(List.of("e1", "e2", "e3"),
+                applied.stream().map(ProductEventKafka::getId).collect(Collectors.toList()));
+        assertTrue(applied.stream().allMatch(event -> event.getData().getAccountNumber() != null));
+        assertEquals(150, applied.get(1).getData().getBalance());
+    }
+
+    @Test
+    void slowBatchesDoNotOverflowTheTimedBatching() {
+        List<ProductEventKafka> applied = new CopyOnWriteArrayList<>();
+        ProductSummaryService slowSummaryService = new ProductSummaryService() {
+            @Override
+            public Mono<CustomerProductSummary> findByDni(String dni) {
+                return Mono.empty();
+            }
+
+            @Override
+            public Mono<Void> apply(List<ProductEventKafka> events) {
+                // Mucho más lento que el tiempo máximo de lote
+                return Mono.delay(Duration.ofMillis(20)).then(Mono.fromRunnable(() -> applied.addAll(events)));
+            }
+        };
+        ProductEventConsumer consumer = new ProductEventConsumer(null, slowSummaryService);
+        ReflectionTestUtils.setField(consumer, "batchSize", 5);
+        ReflectionTestUtils.setField(consumer, "batchTimeoutMs", 2L);
+        ReceiverOffset offset = mock(ReceiverOffset.class);
+
+        // Como el receptor de Kafka, la fuente solo emite lo pedido
+        Flux<ReceiverRecord<String, ProductEventKafka>> records = Flux.range(0, 400)
+                .delayElements(Duration.ofMillis(1))
+                .map(i -> new ReceiverRecord<>(new ConsumerRecord<>(TOPIC, 0, i, "111",
+                        event("e" + i, "111", "ACC-1", i)), offset));
+
+        Integer total = consumer.applyInBatches(records)
+                .reduce(0, Integer::sum)
+                .block(Duration.ofSeconds(60));
+
+        assertEquals(400, total);
+        assertEquals(400, applied.size());
+        assertEquals("e399", applied.get(399).getId());
+        verify(offset, times(400)).acknowledge();
+    }
+
+    private static ProductEventKafka event(String id, String dni, String accountNumber, double balance) {
+        ProductEventKafka event = new ProductEventKafka();
+        event.setId(id);
+        event.setDate(new Date());
+        event.setType(EventType.UPDATED);
+        event.setData(new ProductDto(dni, "PERSONAL", accountNumber, "SAVINGS", balance));
+        return event;
+    }
+}
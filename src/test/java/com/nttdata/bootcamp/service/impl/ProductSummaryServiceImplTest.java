@@ -0,0 +1,172 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.nttdata.bootcamp.entity.CustomerProductSummary;
+import com.nttdata.bootcamp.entity.dto.ProductDto;
+import com.nttdata.bootcamp.entity.enums.EventType;
+import com.nttdata.bootcamp.events.ProductEventKafka;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSummaryServiceImplTest {
+
+    private static final String DNI = "12345678";
+
+    private MongoServer mongoServer;
+    private MongoClient mongoClient;
+    private ReactiveMongoTemplate mongoTemplate;
+    private ProductSummaryServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mongoServer = new MongoServer(new MemoryBackend());
+        InetSocketAddress address = mongoServer.bind();
+        mongoClient = MongoClients.create("mongodb://" + address.getHostString() + ":" + address.getPort());
+        mongoTemplate = new ReactiveMongoTemplate(mongoClient, "test");
+        DependencyGuard dependencyGuard = new DependencyGuard(CircuitBreakerRegistry.ofDefaults(),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(10)).build()),
+                BulkheadRegistry.ofDefaults());
+        service = new ProductSummaryServiceImpl(mongoTemplate, dependencyGuard) {
+            @Override
+            Mono<Void> writeAccounts(List<UpdateOneModel<Document>> models) {
+                return Flux.fromIterable(models).concatMap(ProductSummaryServiceImplTest.this::upsert).then();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        mongoClient.close();
+        mongoServer.shutdownNow();
+    }
+
+    @Test
+    void reappliedBatchLeavesTheSameSummary() {
+        List<ProductEventKafka> batch = List.of(
+                event("e1", "ACC-1", "SAVINGS", 100, 1_000, EventType.CREATED),
+                event("e2", "ACC-2", "CURRENT", 50, 1_000, EventType.CREATED));
+
+        service.apply(batch).block();
+        service.apply(batch).block();
+
+        CustomerProductSummary summary = service.findByDni(DNI).block();
+        assertEquals(2, summary.getTotalProducts());
+        assertEquals(150, summary.getTotalBalance());
+        assertEquals(1, summary.getByAccountType().get("SAVINGS").getCount());
+        assertEquals(50, summary.getByAccountType().get("CURRENT").getBalance());
+    }
+
+    @Test
+    void olderEventDoesNotOverwriteAppliedState() {
+        service.apply(List.of(event("e2", "ACC-1", "SAVINGS", 200, 2_000, EventType.UPDATED))).block();
+        // Llega tarde (o reentregado) un evento anterior de la misma cuenta
+        service.apply(List.of(event("e1", "ACC-1", "SAVINGS", 100, 1_000, EventType.UPDATED))).block();
+
+        assertEquals(200, service.findByDni(DNI).block().getTotalBalance());
+        Document account = account("ACC-1");
+        assertEquals("e2", account.getString("eventId"));
+        assertEquals(new Date(2_000), account.getDate("eventDate"));
+    }
+
+    @Test
+    void latestEventOfTheBatchWinsPerAccount() {
+        service.apply(List.of(
+                event("e3", "ACC-1", "SAVINGS", 300, 3_000, EventType.UPDATED),
+                event("e1", "ACC-1", "SAVINGS", 100, 1_000, EventType.CREATED),
+                event("e2", "ACC-1", "SAVINGS", 200, 2_000, EventType.UPDATED))).block();
+
+        CustomerProductSummary summary = service.findByDni(DNI).block();
+        assertEquals(1, summary.getTotalProducts());
+        assertEquals(300, summary.getTotalBalance());
+    }
+
+    @Test
+    void deletedAccountIsRecomputedOutOfTheSummary() {
+        service.apply(List.of(
+                event("e1", "ACC-1", "SAVINGS", 100, 1_000, EventType.CREATED),
+                event("e2", "ACC-2", "CURRENT", 50, 1_000, EventType.CREATED))).block();
+        service.apply(List.of(event("e3", "ACC-1", "SAVINGS", 100, 2_000, EventType.DELETED))).block();
+
+        CustomerProductSummary summary = service.findByDni(DNI).block();
+        assertEquals(1, summary.getTotalProducts());
+        assertEquals(50, summary.getTotalBalance());
+        assertNull(summary.getByAccountType().get("SAVINGS"));
+        assertTrue(account("ACC-1").getBoolean("deleted"));
+    }
+
+    @Test
+    void datelessEventIsRejected() {
+        service.apply(List.of(event("e1", "ACC-1", "SAVINGS", 100, 1_000, EventType.CREATED))).block();
+        ProductEventKafka dateless = event("e2", "ACC-1", "SAVINGS", 999, 0, EventType.UPDATED);
+        dateless.setDate(null);
+
+        service.apply(List.of(dateless)).block();
+
+        assertEquals(100, service.findByDni(DNI).block().getTotalBalance());
+        assertEquals("e1", account("ACC-1").getString("eventId"));
+    }
+
+    /**
+     * mongo-java-server no ejecuta updates con pipeline: se aplica el mismo $set como etapa de
+     * agregación sobre la cuenta (o sobre {_id} si no existe, igual que el upsert) y se guarda
+     * el resultado. Las expresiones ($cond, $ifNull, $lte, $literal) las evalúa el servidor.
+     */
+    private Mono<Void> upsert(UpdateOneModel<Document> model) {
+        Object id = model.getFilter().toBsonDocument().get("_id");
+        Bson byId = Filters.eq("_id", id);
+        List<Bson> pipeline = new ArrayList<>();
+        pipeline.add(Aggregates.match(byId));
+        // $set como etapa es un alias de $addFields, que es el nombre que reconoce el servidor embebido
+        model.getUpdatePipeline().forEach(stage -> pipeline.add(new Document("$addFields", ((Document) stage).get("$set"))));
+        return mongoTemplate.getCollection(ProductSummaryServiceImpl.ACCOUNTS_COLLECTION)
+                .flatMap(accounts -> Mono.from(accounts.updateOne(byId, Updates.setOnInsert("_id", id),
+                                new UpdateOptions().upsert(true)))
+                        .then(Mono.from(accounts.aggregate(pipeline)))
+                        .flatMap(updated -> Mono.from(accounts.replaceOne(byId, updated))))
+                .then();
+    }
+
+    private Document account(String accountNumber) {
+        return mongoTemplate.findById(accountNumber, Document.class, ProductSummaryServiceImpl.ACCOUNTS_COLLECTION)
+                .block();
+    }
+
+    private static ProductEventKafka event(String id, String accountNumber, String accountType, double balance,
+                                           long date, EventType type) {
+        ProductEventKafka event = new ProductEventKafka();
+        event.setId(id);
+        event.setDate(new Date(date));
+        event.setType(type);
+        event.setData(new ProductDto(DNI, "PERSONAL", accountNumber, accountType, balance));
+        return event;
+    }
+}
@@ -0,0 +1,323 @@
+package com.nttdata.bootcamp.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nttdata.bootcamp.entity.Customer;
+import com.nttdata.bootcamp.exception.CustomerNotFoundException;
+import com.nttdata.bootcamp.repository.CustomerRepository;
+import com.nttdata.bootcamp.service.CustomerWriteBehindService;
+import com.nttdata.bootcamp.util.DependencyGuard;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+import redis.embedded.RedisServer;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RedisCacheServiceImplTest {
+
+    private static final String DNI = "12345678";
+    private static final String ID = "64f0c0ffee00000000000001";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private ReactiveRedisTemplate<String, Object> redisTemplate;
+    private ReactiveStringRedisTemplate stringRedisTemplate;
+    private CustomerRepository customerRepository;
+    private CustomerWriteBehindService writeBehindService;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).bind("127.0.0.1").build();
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new ReactiveRedisTemplate<>(connectionFactory,
+                RedisSerializationContext.<String, Object>newSerializationContext(new StringRedisSerializer())
+                        .value(new GenericJackson2JsonRedisSerializer())
+                        .build());
+        stringRedisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+        customerRepository = mock(CustomerRepository.class);
+        writeBehindService = mock(CustomerWriteBehindService.class);
+        when(writeBehindService.isPending(anyString())).thenReturn(Mono.just(false));
+    }
+
+    @AfterEach
+    void flush() {
+        connectionFactory.getConnection().serverCommands().flushAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void refreshAheadReloadsEntryCloseToExpiry(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        service.storeCustomer(customer("ACTIVE", 1_000)).block();
+        when(customerRepository.findById(ID)).thenReturn(Mono.just(customer("INACTIVE", 2_000)));
+
+        // El TTL (100 s) queda por debajo del umbral (200 s): el hit dispara la recarga
+        assertEquals("ACTIVE", service.retrieveCustomer(DNI).block().getStatus());
+        awaitRefresh(service);
+
+        assertEquals("INACTIVE", service.retrieveCustomer(DNI).block().getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void refreshAheadDoesNotOverwriteTombstone(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        Customer cached = customer("ACTIVE", 1_000);
+        service.storeCustomer(cached).block();
+        // El borrado llega mientras la recarga lee Mongo
+        when(customerRepository.findById(ID)).thenReturn(
+                Mono.defer(() -> service.markDeleted(cached).thenReturn(customer("ACTIVE", 1_000))));
+
+        service.retrieveCustomer(DNI).block();
+        awaitRefresh(service);
+
+        assertThrows(CustomerNotFoundException.class, () -> service.retrieveCustomer(DNI).block());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void refreshAheadDoesNotOverwriteNewerUpdate(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        service.storeCustomer(customer("ACTIVE", 1_000)).block();
+        Customer updated = customer("DEBTOR", 3_000);
+        when(customerRepository.findById(ID)).thenReturn(
+                Mono.defer(() -> service.updateCustomerFields(updated, "status", "modificationDate")
+                        .thenReturn(customer("ACTIVE", 1_000))));
+
+        service.retrieveCustomer(DNI).block();
+        awaitRefresh(service);
+
+        assertEquals("DEBTOR", service.retrieveCustomer(DNI).block().getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void refreshAheadSkipsPendingWriteBehind(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        service.storeCustomer(customer("DEBTOR", 3_000)).block();
+        when(writeBehindService.isPending(ID)).thenReturn(Mono.just(true));
+
+        service.retrieveCustomer(DNI).block();
+        awaitRefresh(service);
+
+        verify(customerRepository, never()).findByDni(DNI);
+        assertEquals("DEBTOR", service.retrieveCustomer(DNI).block().getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void refreshAheadKeepsNewerCachedModificationDate(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        service.storeCustomer(customer("DEBTOR", 3_000)).block();
+        when(customerRepository.findById(ID)).thenReturn(Mono.just(customer("ACTIVE", 1_000)));
+
+        service.retrieveCustomer(DNI).block();
+        awaitRefresh(service);
+
+        assertEquals("DEBTOR", service.retrieveCustomer(DNI).block().getStatus());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"string", "hash"})
+    void businessCustomersSharingDniDoNotOverwritePersonalEntry(String layout) {
+        RedisCacheServiceImpl service = service(layout);
+        service.storeCustomer(customer("ACTIVE", 1_000)).block();
+        Customer business = business("20123456789", "64f0c0ffee00000000000002");
+        service.storeCustomer(business).block();
+        service.storeCustomer(business("20987654321", "64f0c0ffee00000000000003")).block();
+
+        assertEquals("PERSONAL", service.retrieveCustomer(DNI).block().getTypeCustomer());
+        assertEquals("20123456789", service.retrieveCustomerByRuc("20123456789").block().getRuc());
+        assertEquals("20987654321", service.retrieveCustomerByRuc("20987654321").block().getRuc());
+        assertEquals(ID, service.retrieveCustomerById(ID).block().getId());
+        assertEquals("20123456789", service.retrieveCustomerById(business.getId()).block().getRuc());
+
+        // Borrar una empresa deja intactos el cliente PERSONAL y la otra empresa
+        service.markDeleted(business).block();
+        assertThrows(CustomerNotFoundException.class, () -> service.retrieveCustomerByRuc("20123456789").block());
+        assertEquals("PERSONAL", service.retrieveCustomer(DNI).block().getTypeCustomer());
+        assertEquals("20987654321", service.retrieveCustomerByRuc("20987654321").block().getRuc());
+    }
+
+    @Test
+    void hashUpdateWritesOnlyTheGivenFields() {
+        RedisCacheServiceImpl service = service("hash");
+        service.storeCustomer(customer("ACTIVE", 1_000)).block();
+        Customer changed = customer("DEBTOR", 2_000);
+        changed.setName("Otro nombre");
+        changed.setAddress(null);
+
+        service.updateCustomerFields(changed, "status", "address").block();
+
+        Customer cached = service.retrieveCustomer(DNI).block();
+        assertEquals("DEBTOR", cached.getStatus());
+        // Un campo nulo se borra del hash; los no indicados conservan el valor cacheado
+        assertNull(cached.getAddress());
+        assertEquals("Ana", cached.getName());
+        assertEquals(new Date(1_000), cached.getModificationDate());
+    }
+
+    @Test
+    void hashUpdateOfUncachedCustomerStoresItWhole() {
+        RedisCacheServiceImpl service = service("hash");
+
+        service.updateCustomerFields(customer("DEBTOR", 2_000), "status").block();
+
+        Customer cached = service.retrieveCustomer(DNI).block();
+        assertEquals("DEBTOR", cached.getStatus());
+        assertEquals("Ana", cached.getName());
+        assertEquals("Av. Arequipa 123", cached.getAddress());
+    }
+
+    @Test
+    void hashUpdateDoesNotResurrectTombstone() {
+        RedisCacheServiceImpl service = service("hash");
+        Customer customer = customer("ACTIVE", 1_000);
+        service.storeCustomer(customer).block();
+        service.markDeleted(customer).block();
+
+        service.updateCustomerFields(customer("DEBTOR", 2_000), "status").block();
+
+        assertThrows(CustomerNotFoundException.class, () -> service.retrieveCustomer(DNI).block());
+        assertThrows(CustomerNotFoundException.class,
+                () -> service.retrieveCustomerFields(DNI, List.of("status")).block());
+    }
+
+    @Test
+    void hashFieldsReadReturnsOnlyRequestedFields() {
+        RedisCacheServiceImpl service = service("hash");
+        service.storeCustomer(customer("ACTIVE", 1_000)).block();
+
+        Customer partial = service.retrieveCustomerFields(DNI, List.of("status")).block();
+
+        assertEquals(DNI, partial.getDni());
+        assertEquals("ACTIVE", partial.getStatus());
+        assertNull(partial.getName());
+        assertNull(service.retrieveCustomerFields("99999999", List.of("status")).block());
+    }
+
+    @Test
+    void fieldsProjectionMatchesTheJacksonResponse() {
+        // El hash guarda JSON de Gson; la proyección debe verse igual que la respuesta completa (Jackson)
+        RedisCacheServiceImpl service = service("hash");
+        Customer original = customer("ACTIVE", 1_700_000_000_123L);
+        service.storeCustomer(original).block();
+        ObjectMapper objectMapper = new ObjectMapper();
+        CustomerServiceImpl customerService = new CustomerServiceImpl();
+        ReflectionTestUtils.setField(customerService, "redisCacheService", service);
+        ReflectionTestUtils.setField(customerService, "objectMapper", objectMapper);
+
+        Map<String, Object> projection = customerService
+                .findFieldsByDni(DNI, List.of("status", "modificationDate", "unknown")).block();
+
+        Map<?, ?> full = objectMapper.convertValue(original, Map.class);
+        assertEquals(List.of("status", "modificationDate"), List.copyOf(projection.keySet()));
+        assertEquals(full.get("status"), projection.get("status"));
+        assertEquals(full.get("modificationDate"), projection.get("modificationDate"));
+    }
+
+    private RedisCacheServiceImpl service(String layout) {
+        // Timeout holgado: el primer comando de la JVM (conexión, carga de clases) no debe ser un miss
+        DependencyGuard dependencyGuard = new DependencyGuard(CircuitBreakerRegistry.ofDefaults(),
+                TimeLimiterRegistry.of(TimeLimiterConfig.custom().timeoutDuration(Duration.ofSeconds(10)).build()),
+                BulkheadRegistry.ofDefaults());
+        RedisCacheServiceImpl service = new RedisCacheServiceImpl(redisTemplate, redisTemplate, stringRedisTemplate,
+                dependencyGuard, customerRepository, writeBehindService, new ObjectMapper());
+        ReflectionTestUtils.setField(service, "sessiondataTTL", 100);
+        ReflectionTestUtils.setField(service, "ttlJitterPercent", 0);
+        ReflectionTestUtils.setField(service, "refreshAheadEnabled", true);
+        ReflectionTestUtils.setField(service, "refreshAheadThresholdSeconds", 200L);
+        ReflectionTestUtils.setField(service, "passthroughEnabled", true);
+        ReflectionTestUtils.setField(service, "passthroughKeyPrefix", "json:");
+        ReflectionTestUtils.setField(service, "rucKeyPrefix", "ruc:");
+        ReflectionTestUtils.setField(service, "idKeyPrefix", "id:");
+        ReflectionTestUtils.setField(service, "namespace", "customer:cache:");
+        ReflectionTestUtils.setField(service, "generationEnabled", false);
+        ReflectionTestUtils.setField(service, "layout", layout);
+        ReflectionTestUtils.setField(service, "tombstoneTtlSeconds", 300L);
+        return service;
+    }
+
+    // La recarga corre en segundo plano; termina cuando la clave sale del conjunto "refreshing"
+    @SuppressWarnings("unchecked")
+    private static void awaitRefresh(RedisCacheServiceImpl service) {
+        Set<String> refreshing = (Set<String>) ReflectionTestUtils.getField(service, "refreshing");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!refreshing.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertTrue(refreshing.isEmpty(), "refresh-ahead sin terminar");
+    }
+
+    private static Customer business(String ruc, String id) {
+        Customer customer = customer("ACTIVE", 1_000);
+        customer.setId(id);
+        customer.setTypeCustomer("EMPRESARIAL");
+        customer.setRuc(ruc);
+        customer.setName("Comercial Quispe");
+        return customer;
+    }
+
+    private static Customer customer(String status, long modifiedAt) {
+        Customer customer = new Customer();
+        customer.setId(ID);
+        customer.setDni(DNI);
+        customer.setTypeCustomer("PERSONAL");
+        customer.setName("Ana");
+        customer.setSurName("Quispe");
+        customer.setAddress("Av. Arequipa 123");
+        customer.setStatus(status);
+        customer.setModificationDate(new Date(modifiedAt));
+        return customer;
+    }
+}
@@ -0,0 +1,73 @@
+package com.nttdata.bootcamp.util;
+
+import com.nttdata.bootcamp.entity.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerDataGeneratorTest {
+
+    private static final long BASE_TIME = 1_700_000_000_000L;
+
+    @Test
+    void rucCheckDigit() {
+        assertEquals(5, CustomerDataGenerator.rucCheckDigit("2013131295"));
+        assertTrue(CustomerDataGenerator.isValidRuc("20131312955"));
+        assertFalse(CustomerDataGenerator.isValidRuc("20131312954"));
+        assertFalse(CustomerDataGenerator.isValidRuc("30131312955"));
+    }
+
+    @Test
+    void sameSeedAndIndexGiveSameCustomer() {
+        CustomerDataGenerator first = generator(7);
+        CustomerDataGenerator second = generator(7);
+
+        assertEquals(first.generate(12_345), second.generate(12_345));
+        assertNotEquals(first.generate(12_345).getDni(), generator(8).generate(12_345).getDni());
+    }
+
+    @Test
+    void uniqueValidIdentifiersAndDistribution() {
+        CustomerDataGenerator generator = generator(42);
+        Set<String> dnis = new HashSet<>();
+        Set<String> rucs = new HashSet<>();
+        int business = 0;
+        int active = 0;
+        int total = 50_000;
+
+        for (int i = 0; i < total; i++) {
+            Customer customer = generator.generate(i);
+            assertTrue(customer.getDni().matches("^[0-9]{8}$"));
+            assertTrue(dnis.add(customer.getDni()));
+            assertFalse(customer.getSearchKeys().isEmpty());
+            if (Constant.BUSINESS_CUSTOMER.equals(customer.getTypeCustomer())) {
+                business++;
+                assertTrue(CustomerDataGenerator.isValidRuc(customer.getRuc()));
+                assertTrue(rucs.add(customer.getRuc()));
+                assertFalse(customer.getFlagVip());
+            } else {
+                assertNull(customer.getRuc());
+                assertFalse(customer.getFlagPyme());
+            }
+            if (Constant.CUSTOMER_ACTIVE.equals(customer.getStatus())) {
+                active++;
+            }
+        }
+
+        assertEquals(0.3, (double) business / total, 0.02);
+        assertEquals(0.8, (double) active / total, 0.02);
+    }
+
+    private static CustomerDataGenerator generator(long seed) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put(Constant.CUSTOMER_ACTIVE, 80);
+        weights.put(Constant.CUSTOMER_INACTIVE, 15);
+        weights.put(Constant.CUSTOMER_DEBTOR, 5);
+        return new CustomerDataGenerator(seed, 0.3, 0.1, 0.6, weights, BASE_TIME);
+    }
+}
@@ -0,0 +1,56 @@
+package com.nttdata.bootcamp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GradientConcurrencyLimiterTest {
+
+    @Test
+    void rejectsOverLimit() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(2, 1, 10, 0.2, 1.5);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        limiter.onIgnore();
+        assertTrue(limiter.tryAcquire());
+    }
+
+    @Test
+    void backsOffWhenLatencyGrows() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(50, 4, 200, 0.2, 1.5);
+        saturate(limiter, 500, TimeUnit.MILLISECONDS.toNanos(10));
+        int steadyLimit = limiter.getLimit();
+
+        saturate(limiter, 200, TimeUnit.MILLISECONDS.toNanos(200));
+
+        assertTrue(limiter.getLimit() < steadyLimit,
+                "limit " + limiter.getLimit() + " should drop below " + steadyLimit);
+    }
+
+    @Test
+    void growsWhileLatencyIsStable() {
+        GradientConcurrencyLimiter limiter = new GradientConcurrencyLimiter(10, 4, 200, 0.2, 1.5);
+
+        saturate(limiter, 200, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertTrue(limiter.getLimit() > 10);
+    }
+
+    // Mantiene el limitador lleno y completa una petición por vez con la latencia dada
+    private static void saturate(GradientConcurrencyLimiter limiter, int samples, long rttNanos) {
+        for (int i = 0; i < samples; i++) {
+            while (limiter.tryAcquire()) {
+                // llenar hasta el límite actual
+            }
+            limiter.onSample(rttNanos);
+        }
+        while (limiter.getInFlight() > 0) {
+            limiter.onIgnore();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.nttdata.bootcamp.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GzipChunkerTest {
+
+    @Test
+    void concatenatedMembersDecompressToAllRecords() throws IOException {
+        GzipChunker chunker = new GzipChunker(100);
+        List<GzipChunker.Chunk> chunks = new ArrayList<>();
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 50; i++) {
+            String line = "{\"dni\":\"" + String.format("%08d", i) + "\"}\n";
+            expected.append(line);
+            GzipChunker.Chunk chunk = chunker.append(String.format("%08d", i), line.getBytes(StandardCharsets.UTF_8));
+            if (chunk != null) {
+                chunks.add(chunk);
+            }
+        }
+        GzipChunker.Chunk last = chunker.flush();
+        if (last != null) {
+            chunks.add(last);
+        }
+
+        assertTrue(chunks.size() > 1);
+        assertEquals("00000049", chunks.get(chunks.size() - 1).getLastKey());
+
+        ByteArrayOutputStream all = new ByteArrayOutputStream();
+        for (GzipChunker.Chunk chunk : chunks) {
+            all.write(chunk.getData());
+        }
+        assertEquals(expected.toString(), gunzip(all.toByteArray()));
+
+        // Cortar después de cualquier bloque deja un gzip válido hasta su último registro
+        String firstChunk = gunzip(chunks.get(0).getData());
+        assertTrue(firstChunk.endsWith("\"" + chunks.get(0).getLastKey() + "\"}\n"));
+    }
+
+    @Test
+    void flushWithoutRecordsReturnsNull() {
+        assertNull(new GzipChunker(100).flush());
+    }
+
+    private static String gunzip(byte[] data) throws IOException {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
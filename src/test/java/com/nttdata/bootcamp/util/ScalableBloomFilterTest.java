@@ -0,0 +1,148 @@
+package com.nttdata.bootcamp.util;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import redis.embedded.RedisServer;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.util.Collections;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalableBloomFilterTest {
+
+    private static final String KEY = "{test-bloom}";
+
+    private static RedisServer redisServer;
+    private static LettuceConnectionFactory connectionFactory;
+
+    private ReactiveStringRedisTemplate redisTemplate;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = RedisServer.newRedisServer().port(port).bind("127.0.0.1").build();
+        redisServer.start();
+        connectionFactory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+        connectionFactory.afterPropertiesSet();
+    }
+
+    @AfterAll
+    static void stopRedis() throws IOException {
+        connectionFactory.destroy();
+        redisServer.stop();
+    }
+
+    @BeforeEach
+    void setUp() {
+        redisTemplate = new ReactiveStringRedisTemplate(connectionFactory);
+    }
+
+    @AfterEach
+    void tearDown() {
+        connectionFactory.getConnection().serverCommands().flushAll();
+    }
+
+    @Test
+    void missingFilterIsNotCreatedByPuts() {
+        ScalableBloomFilter filter = new ScalableBloomFilter(redisTemplate, KEY, 1_000, 0.01, 0);
+
+        assertEquals(0L, filter.put("12345678").block());
+
+        // Sin filtro no hay respuesta: el llamador consulta a Mongo
+        assertNull(filter.mightContain("12345678").block());
+        assertNull(filter.stats().block());
+    }
+
+    @Test
+    void noFalseNegativesWhileGrowing() {
+        ScalableBloomFilter filter = emptyFilter(0);
+
+        putAll(filter, 0, 10_000);
+
+        assertEquals(0L, Flux.range(0, 10_000)
+                .flatMap(i -> filter.mightContain(value(i)), 64)
+                .filter(found -> !found)
+                .count().block());
+        ScalableBloomFilter.Stats stats = filter.stats().block();
+        assertTrue(stats.getStages() > 1);
+        // Los que ya daban positivo no se vuelven a insertar
+        assertTrue(stats.getInsertions() <= 10_000L);
+    }
+
+    @Test
+    void falsePositiveRateStaysNearTarget() {
+        ScalableBloomFilter filter = emptyFilter(0);
+        putAll(filter, 0, 20_000);
+
+        long falsePositives = Flux.range(20_000, 20_000)
+                .flatMap(i -> filter.mightContain(value(i)), 64)
+                .filter(found -> found)
+                .count().block();
+
+        assertTrue(falsePositives / 20_000.0 < 0.02, "fpp=" + falsePositives / 20_000.0);
+    }
+
+    @Test
+    void memoryBudgetStopsGrowth() {
+        ScalableBloomFilter filter = emptyFilter(4_096);
+        putAll(filter, 0, 10_000);
+
+        ScalableBloomFilter.Stats stats = filter.stats().block();
+        assertTrue(stats.getMemoryBytes() <= 4_096);
+        assertTrue(stats.getExpectedFalsePositiveRate() > 0.01);
+    }
+
+    @Test
+    void rebuildReplacesTheFilterAndKeepsConcurrentPuts() {
+        ScalableBloomFilter filter = emptyFilter(0);
+        filter.put("borrado").block();
+
+        filter.startRebuild().block();
+        // Un alta durante la reconstrucción llega a los dos filtros
+        filter.put("durante").block();
+        filter.putAllRebuilding(Collections.singletonList("recorrido")).block();
+        assertTrue(filter.mightContain("durante").block());
+        assertFalse(filter.mightContain("recorrido").block());
+
+        assertTrue(filter.finishRebuild().block());
+
+        assertTrue(filter.mightContain("durante").block());
+        assertTrue(filter.mightContain("recorrido").block());
+        assertFalse(filter.mightContain("borrado").block());
+        assertEquals(2L, filter.stats().block().getInsertions());
+        // Sin reconstrucción en curso no hay nada que reemplazar
+        assertFalse(filter.finishRebuild().block());
+    }
+
+    // El filtro existe desde la primera reconstrucción, aunque esté vacío
+    private ScalableBloomFilter emptyFilter(long maxMemoryBytes) {
+        ScalableBloomFilter filter = new ScalableBloomFilter(redisTemplate, KEY, 1_000, 0.01, maxMemoryBytes);
+        filter.startRebuild().then(filter.finishRebuild()).block();
+        return filter;
+    }
+
+    private static void putAll(ScalableBloomFilter filter, int from, int to) {
+        Flux.range(from, to - from)
+                .buffer(500)
+                .concatMap(batch -> filter.putAll(batch.stream().map(ScalableBloomFilterTest::value)
+                        .collect(Collectors.toList())))
+                .blockLast();
+    }
+
+    private static String value(int i) {
+        return String.format("%08d", i);
+    }
+}
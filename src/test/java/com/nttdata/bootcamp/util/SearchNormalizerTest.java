@@ -0,0 +1,30 @@
+package com.nttdata.bootcamp.util;
+
+import com.nttdata.bootcamp.entity.Customer;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchNormalizerTest {
+
+    @Test
+    void normalize() {
+        assertEquals("jose nunez", SearchNormalizer.normalize("  JOSÉ   Núñez "));
+        assertEquals("o brien s a c", SearchNormalizer.normalize("O'Brien S.A.C."));
+        assertEquals("", SearchNormalizer.normalize(null));
+    }
+
+    @Test
+    void searchKeys() {
+        Customer customer = new Customer();
+        customer.setName("Juan Carlos");
+        customer.setSurName("Pérez");
+        customer.setCompanyName("Panadería Ñam");
+
+        List<String> keys = SearchNormalizer.searchKeys(customer);
+
+        assertEquals(List.of("juan carlos perez", "carlos perez", "perez", "panaderia nam", "nam"), keys);
+    }
+}
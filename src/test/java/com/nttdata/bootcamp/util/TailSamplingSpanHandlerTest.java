@@ -0,0 +1,63 @@
+package com.nttdata.bootcamp.util;
+
+import brave.Span;
+import brave.Tracer;
+import brave.Tracing;
+import brave.handler.MutableSpan;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TailSamplingSpanHandlerTest {
+
+    private final List<MutableSpan> exported = new CopyOnWriteArrayList<>();
+    private final TailSamplingSpanHandler handler =
+            new TailSamplingSpanHandler(exported::add, 200, 0.0, 100, 30_000);
+    private final Tracing tracing = Tracing.newBuilder().addSpanHandler(handler).build();
+    private final Tracer tracer = tracing.tracer();
+
+    @AfterEach
+    void close() {
+        tracing.close();
+    }
+
+    @Test
+    void slowTraceIsExportedWithItsChildren() {
+        Span root = tracer.newTrace().name("root").start(1_000_000);
+        tracer.newChild(root.context()).name("mongo").start(1_010_000).finish(1_290_000);
+        root.finish(1_300_000);
+
+        assertEquals(List.of("mongo", "root"), names());
+        assertEquals(1, handler.getKeptTraces());
+        assertEquals(0, handler.getPendingTraces());
+    }
+
+    @Test
+    void fastTraceIsDropped() {
+        Span root = tracer.newTrace().name("root").start(1_000_000);
+        tracer.newChild(root.context()).name("redis").start(1_001_000).finish(1_002_000);
+        root.finish(1_050_000);
+
+        assertTrue(exported.isEmpty());
+        assertEquals(1, handler.getDroppedTraces());
+        assertEquals(0, handler.getPendingTraces());
+    }
+
+    @Test
+    void fastTraceWithErrorIsExported() {
+        Span root = tracer.newTrace().name("root").start(1_000_000);
+        root.error(new IllegalStateException("boom"));
+        root.finish(1_010_000);
+
+        assertEquals(List.of("root"), names());
+    }
+
+    private List<String> names() {
+        return exported.stream().map(MutableSpan::name).collect(Collectors.toList());
+    }
+}